@@ -20,9 +20,27 @@ public abstract class AbstractAction
 	/** Update code that will only run on the client. */
 	public void onUpdateClient(){};
 	
-	/** Update code that will only run on the server. */
+	/** Update code that will only run on the server. Called once every getUpdateInterval() ticks. */
 	public void onUpdateServer(){};
 
+	/** @returns How many ticks apart onUpdateServer() is called. Villagers are staggered so they don't all run on the same tick. */
+	public int getUpdateInterval()
+	{
+		return 1;
+	}
+
+	/** @returns True if this action must keep running on villagers that are too far from players for full AI. */
+	public boolean isEssential()
+	{
+		return false;
+	}
+
+	/** @returns True if this action's server update can be postponed to a later tick when the villager tick budget is spent. */
+	public boolean isDeferrable()
+	{
+		return false;
+	}
+
 	public void reset(){};
 	
 	public void writeToNBT(NBTTagCompound nbt){};
@@ -39,6 +39,13 @@ public abstract class AbstractToggleAction extends AbstractAction
 		return actor.getDataManager().get(IS_AI_ACTIVE);
 	}
 	
+	/** Chores mostly search for and walk to blocks, so they can wait a tick when the server is busy. */
+	@Override
+	public boolean isDeferrable()
+	{
+		return true;
+	}
+	
 	/** @returns The user-friendly name of this AI. Displays above the actor's head. */
 	public abstract String getName();
 	
@@ -2,6 +2,7 @@ package mca.actions;
 
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerBehaviors;
 import radixcore.constant.Time;
 import radixcore.modules.RadixMath;
 
@@ -20,7 +21,7 @@ public class ActionBlink extends AbstractAction
 	@Override
 	public void onUpdateServer() 
 	{
-		if (MCA.getConfig().allowBlinking && !actor.getBehavior(ActionSleep.class).getIsSleeping() && actor.getHealth() > 0.0F)
+		if (MCA.getConfig().allowBlinking && !actor.getBehavior(VillagerBehaviors.SLEEP).getIsSleeping() && actor.getHealth() > 0.0F)
 		{
 			timeSinceLastBlink++;
 
@@ -34,13 +35,13 @@ public class ActionBlink extends AbstractAction
 					holdingBlink = false;
 					timeSinceLastBlink = 0;
 					nextBlink = RadixMath.getNumberInRange(Time.SECOND * 2, Time.SECOND * 8);
-					actor.getBehavior(ActionSleep.class).transitionSkinState(false);
+					actor.getBehavior(VillagerBehaviors.SLEEP).transitionSkinState(false);
 				}
 			}
 
 			else if (timeSinceLastBlink >= nextBlink)
 			{
-				actor.getBehavior(ActionSleep.class).transitionSkinState(true);
+				actor.getBehavior(VillagerBehaviors.SLEEP).transitionSkinState(true);
 				holdingBlink = true;
 			}
 		}
@@ -1,32 +1,41 @@
 package mca.actions;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
-
 import mca.api.CropEntry;
 import mca.api.enums.EnumCropCategory;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumMovementState;
+import mca.util.SchematicCache;
 import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
 import radixcore.math.Point3D;
-import radixcore.modules.RadixBlocks;
 import radixcore.modules.RadixLogic;
 import radixcore.modules.schematics.BlockObj;
-import radixcore.modules.schematics.RadixSchematics;
 
 public class ActionBuild extends AbstractToggleAction
 {	
-	private Map<Point3D, BlockObj> schematicMap;
+	private static final BlockObj FARMLAND = new BlockObj(Blocks.FARMLAND, 0);
+	private static final BlockObj WATER = new BlockObj(Blocks.WATER, 0);
+
+	//Placed every time the builder swings, as long as the shared build budget allows.
+	private static final int BLOCKS_PER_SWING = 10;
+	//Checking for plants is only a block read, so many more are checked per update than are placed.
+	private static final int CLEAR_CHECKS_PER_UPDATE = 256;
+
+	//Shared with every other villager building the same schematic. Only the index into it is this builder's own.
+	private SchematicCache.Schematic schematic;
+	private SchematicCache.BuildOrder buildOrder;
 	private CropEntry cropEntry;
+	private short seedRefBlock = -1;
+	private short waterRefBlock = -1;
+
+	//Plants in the way are cleared over the whole order before building starts over from the beginning.
+	private boolean isClearing;
+	private int layerStart;
+	private int blocksOwed;
 
-	private List<Point3D> blockPoints;
-	private List<Point3D> torchPoints;
 	private Point3D origin;
 
 	private String schematicName = "none";
@@ -51,48 +60,27 @@ public class ActionBuild extends AbstractToggleAction
 			{
 				interval = 20;
 				actor.swingItem();
+				blocksOwed = BLOCKS_PER_SWING;
+			}
+
+			if (isClearing)
+			{
+				clearPlants();
+			}
+
+			else
+			{
+				if (blocksOwed > 0)
+				{
+					placeBlocks();
+				}
 
-				for (int i = 0; i < 10; i++)
+				//Building is complete once index is too high. Torches are at the end of the order.
+				if (index >= buildOrder.size())
 				{
-					//Building the main schematic is complete once index is too high. Now place the torches and finish.
-					if (index >= blockPoints.size())
-					{
-						for (Point3D point : torchPoints)
-						{
-							final BlockObj blockObj = schematicMap.get(point);
-							RadixBlocks.setBlock(actor.world, origin.iX() + point.iX(), origin.iY() + point.iY(), origin.iZ() + point.iZ(), blockObj.getBlock());
-						}
-
-						actor.attributes.setMovementState(EnumMovementState.MOVE);
-						reset();
-						break;
-					}
-
-					else
-					{
-						final Point3D point = blockPoints.get(index);
-						final BlockObj blockObj = schematicMap.get(point);
-						final Point3D target = new Point3D(origin.iX() + point.iX(), origin.iY() + point.iY(), origin.iZ() + point.iZ());
-						index++;
-
-						if (blockObj.getBlock() == Blocks.GRASS && groundBlock != null)
-						{
-							RadixBlocks.setBlock(actor.world, target, groundBlock);							
-						}
-
-						else
-						{
-							if (blockObj.getBlock() == Blocks.OAK_FENCE_GATE && this.schematicName.contains("mine"))
-							{
-								RadixBlocks.setBlock(actor.world, target.toBlockPos(), Block.getStateById(blockObj.getMeta()));
-							}
-							
-							else
-							{
-								RadixBlocks.setBlock(actor.world, target, blockObj.getBlock());
-							}
-						}
-					}
+					relightLayer();
+					actor.attributes.setMovementState(EnumMovementState.MOVE);
+					reset();
 				}
 			}
 		}
@@ -102,12 +90,16 @@ public class ActionBuild extends AbstractToggleAction
 	public void reset() 
 	{
 		setIsActive(false);
-		schematicMap = null;
+		schematic = null;
+		buildOrder = null;
 		origin = Point3D.ZERO;
-		blockPoints.clear();
-		torchPoints.clear();
 		groundBlock = null;
 		cropEntry = null;
+		seedRefBlock = -1;
+		waterRefBlock = -1;
+		isClearing = false;
+		layerStart = 0;
+		blocksOwed = 0;
 
 		schematicName = "none";
 		index = -1; //-1 index indicates building is not taking place.
@@ -119,6 +111,7 @@ public class ActionBuild extends AbstractToggleAction
 		nbt.setString("schematicName", schematicName);
 		nbt.setInteger("interval", interval);
 		nbt.setInteger("index", index);
+		nbt.setBoolean("isClearing", isClearing);
 		nbt.setInteger("originX", origin.iX());
 		nbt.setInteger("originY", origin.iY());
 		nbt.setInteger("originZ", origin.iZ());
@@ -130,6 +123,7 @@ public class ActionBuild extends AbstractToggleAction
 		schematicName = nbt.getString("schematicName");
 		interval = nbt.getInteger("interval");
 		index = nbt.getInteger("index");
+		isClearing = nbt.getBoolean("isClearing");
 
 		int originX = nbt.getInteger("originX");
 		int originY = nbt.getInteger("originY");
@@ -137,8 +131,9 @@ public class ActionBuild extends AbstractToggleAction
 
 		if (index != -1)
 		{
-			primeSchematic(schematicName);
 			origin = new Point3D(originX, originY, originZ);
+			primeSchematic(schematicName);
+			layerStart = isClearing ? 0 : findLayerStart(Math.min(index, buildOrder.size()));
 		}
 	}
 
@@ -163,6 +158,9 @@ public class ActionBuild extends AbstractToggleAction
 			this.actor.attributes.setMovementState(EnumMovementState.STAY);
 
 			primeSchematic(schematicLocation);
+			index = 0;
+			layerStart = 0;
+			isClearing = true;
 
 			setIsActive(true);
 			return true;
@@ -184,88 +182,152 @@ public class ActionBuild extends AbstractToggleAction
 
 	private void primeSchematic(String schematicLocation)
 	{
-		SortedMap<Point3D, BlockObj> sortedSchematicMap = RadixSchematics.readSchematic(schematicLocation);
-		TreeMap<Point3D, BlockObj> treeSchematicMap = new TreeMap<Point3D, BlockObj>();
-		blockPoints = new ArrayList<Point3D>();
-		torchPoints = new ArrayList<Point3D>();
+		schematic = SchematicCache.get(schematicLocation);
 		schematicName = schematicLocation;
-		index = 0;
-		
-		treeSchematicMap.putAll(sortedSchematicMap);
-		schematicMap = treeSchematicMap;
-		
-		if (schematicName.contains("mine")) //Reverse mine schematics for top down building.
+
+		//Mine schematics are built from the top down.
+		buildOrder = schematic.getBuildOrder(schematicName.contains("mine"), origin.iX(), origin.iZ());
+
+		//Crop entries replace the schematic's reference wool as it is placed.
+		if (cropEntry != null)
 		{
-			schematicMap = treeSchematicMap.descendingMap();
+			seedRefBlock = schematic.getPaletteIndex(Blocks.WOOL, cropEntry.getCategory().getReferenceMeta());
+			waterRefBlock = schematic.getPaletteIndex(Blocks.WOOL, 11);
 		}
+	}
 
-		int compareY = -25;
-
-		for (final Map.Entry<Point3D, BlockObj> entry: schematicMap.entrySet())
+	private void clearPlants()
+	{
+		for (int checked = 0; checked < CLEAR_CHECKS_PER_UPDATE && index < buildOrder.size(); checked++, index++)
 		{
-			final Point3D point = entry.getKey();
-			Block blockAtPoint = RadixBlocks.getBlock(actor.world, origin.iX() + point.iX(), origin.iY() + point.iY(), origin.iZ() + point.iZ());
-			
+			final BlockPos pos = getTarget(index);
+			final Block blockAtPoint = actor.world.getBlockState(pos).getBlock();
+
 			if (blockAtPoint == Blocks.TALLGRASS || blockAtPoint == Blocks.RED_FLOWER || blockAtPoint == Blocks.DOUBLE_PLANT || blockAtPoint == Blocks.YELLOW_FLOWER)
 			{
-				RadixBlocks.setBlock(actor.world, origin.iX() + point.iX(), origin.iY() + point.iY(), origin.iZ() + point.iZ(), Blocks.AIR);
+				if (BuildScheduler.claim(1) == 0)
+				{
+					return;
+				}
+
+				//Plants neither block nor give off light, so there is nothing to relight.
+				BuildScheduler.placeBlock(actor.world, pos, Blocks.AIR.getDefaultState());
 			}
-			
-			compareY = -25;
+		}
+
+		if (index >= buildOrder.size())
+		{
+			isClearing = false;
+			index = 0;
+			layerStart = 0;
+		}
+	}
+
+	private void placeBlocks()
+	{
+		final int granted = BuildScheduler.claim(blocksOwed);
+		int placed = 0;
+
+		while (placed < granted && index < buildOrder.size())
+		{
+			final long position = buildOrder.getPosition(index);
 
-			while (compareY < 25)
+			//Light the finished layer before starting on the next.
+			if (index > layerStart && SchematicCache.unpackY(position) != SchematicCache.unpackY(buildOrder.getPosition(index - 1)))
 			{
-				if (schematicMap.get(point).getBlock() == Blocks.TORCH)
-				{
-					torchPoints.add(point);
-				}
+				relightLayer();
+			}
 
-				else if (point.iY() == compareY)
-				{
-					blockPoints.add(point);
-				}
+			final BlockObj blockObj = getBlockToPlace(buildOrder.getBlock(index), position);
+			final IBlockState state;
 
-				compareY++;
+			if (blockObj.getBlock() == Blocks.GRASS && groundBlock != null)
+			{
+				state = groundBlock.getDefaultState();
 			}
+
+			else if (blockObj.getBlock() == Blocks.OAK_FENCE_GATE && this.schematicName.contains("mine"))
+			{
+				state = Block.getStateById(blockObj.getMeta());
+			}
+
+			else
+			{
+				state = blockObj.getBlock().getDefaultState();
+			}
+
+			BuildScheduler.placeBlock(actor.world, getTarget(index), state);
+			index++;
+			placed++;
 		}
 
-		//Modify the schematic as needed if a crop entry is provided.
-		if (cropEntry != null)
+		blocksOwed -= placed;
+		BuildScheduler.release(granted - placed);
+	}
+
+	private void relightLayer()
+	{
+		final int layerEnd = Math.min(index, buildOrder.size());
+
+		for (int i = layerStart; i < layerEnd; i++)
+		{
+			BuildScheduler.relight(actor.world, getTarget(i));
+		}
+
+		layerStart = layerEnd;
+	}
+
+	/** @returns The index of the first block in the layer that the block before the index belongs to. */
+	private int findLayerStart(int fromIndex)
+	{
+		if (fromIndex == 0)
 		{
-			final BlockObj searchRefBlock = new BlockObj(Blocks.WOOL, cropEntry.getCategory().getReferenceMeta());
-			final BlockObj waterRefBlock = new BlockObj(Blocks.WOOL, 11);
-			final BlockObj farmland = new BlockObj(Blocks.FARMLAND, 0);
-			final BlockObj cropBlock = new BlockObj(cropEntry.getCropBlock(), 0);
-			final BlockObj waterBlock = new BlockObj(Blocks.WATER, 0);
+			return 0;
+		}
 
-			final Map<Point3D, BlockObj> changes = new HashMap<Point3D, BlockObj>();
+		final int layerY = SchematicCache.unpackY(buildOrder.getPosition(fromIndex - 1));
+		int i = fromIndex - 1;
 
-			for (final Map.Entry<Point3D, BlockObj> entry : schematicMap.entrySet())
+		while (i > 0 && SchematicCache.unpackY(buildOrder.getPosition(i - 1)) == layerY)
+		{
+			i--;
+		}
+
+		return i;
+	}
+
+	private BlockPos getTarget(int orderIndex)
+	{
+		final long position = buildOrder.getPosition(orderIndex);
+		return new BlockPos(origin.iX() + SchematicCache.unpackX(position), origin.iY() + SchematicCache.unpackY(position), origin.iZ() + SchematicCache.unpackZ(position));
+	}
+
+	private BlockObj getBlockToPlace(short paletteIndex, long position)
+	{
+		if (cropEntry != null)
+		{
+			if (paletteIndex == seedRefBlock)
 			{
-				if (entry.getValue().equals(searchRefBlock))
-				{
-					final Point3D key = entry.getKey();
-					final Point3D belowKey = RadixSchematics.getPoint3DWithValue(schematicMap, new Point3D(key.iX(), key.iY() - 1, key.iZ()));
-
-					if (belowKey != null && cropEntry.getCategory() != EnumCropCategory.SUGARCANE) 
-					{
-						changes.put(belowKey, farmland);
-					}
-					
-					changes.put(entry.getKey(), cropBlock);
-				}
+				return new BlockObj(cropEntry.getCropBlock(), 0);
+			}
 
-				else if (entry.getValue().equals(waterRefBlock))
-				{
-					changes.put(entry.getKey(), waterBlock);
-				}
+			else if (paletteIndex == waterRefBlock)
+			{
+				return WATER;
 			}
 
-			for (final Map.Entry<Point3D, BlockObj> entry : changes.entrySet())
+			else if (seedRefBlock != -1 && cropEntry.getCategory() != EnumCropCategory.SUGARCANE)
 			{
-				schematicMap.put(entry.getKey(), entry.getValue());
+				final long above = SchematicCache.packPosition(SchematicCache.unpackX(position), SchematicCache.unpackY(position) + 1, SchematicCache.unpackZ(position));
+
+				if (schematic.getPaletteIndexAt(above) == seedRefBlock)
+				{
+					return FARMLAND;
+				}
 			}
 		}
+
+		return schematic.getPaletteBlock(paletteIndex);
 	}
 
 	@Override
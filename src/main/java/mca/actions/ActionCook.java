@@ -3,6 +3,8 @@ package mca.actions;
 import mca.api.CookableFood;
 import mca.api.RegistryMCA;
 import mca.entity.EntityVillagerMCA;
+import mca.enums.EnumPointOfInterest;
+import mca.util.PointOfInterestIndex;
 import net.minecraft.block.BlockFurnace;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
@@ -12,7 +14,6 @@ import net.minecraftforge.fml.common.registry.GameRegistry;
 import radixcore.constant.Time;
 import radixcore.math.Point3D;
 import radixcore.modules.RadixBlocks;
-import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
 
 public class ActionCook extends AbstractToggleAction
@@ -148,7 +149,7 @@ public class ActionCook extends AbstractToggleAction
 
 	private boolean isFurnaceNearby()
 	{
-		final Point3D nearbyFurnace = RadixLogic.getNearestBlock(actor, 10, Blocks.FURNACE);
+		final Point3D nearbyFurnace = PointOfInterestIndex.get(actor.world).getNearestPoint(EnumPointOfInterest.FURNACE, actor, 10);
 		hasFurnace = nearbyFurnace != null;
 		furnacePos = hasFurnace ? nearbyFurnace : furnacePos;
 
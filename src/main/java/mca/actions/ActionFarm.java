@@ -2,15 +2,19 @@ package mca.actions;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
+import com.google.common.base.Predicate;
+
 import mca.api.CropEntry;
 import mca.api.RegistryMCA;
 import mca.api.enums.EnumCropCategory;
 import mca.api.exception.MappingNotFoundException;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
+import mca.util.BlockSearch;
+import mca.util.ChorePlanner;
+import mca.util.SchematicCache;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
@@ -18,15 +22,12 @@ import net.minecraft.init.Blocks;
 import net.minecraft.item.ItemHoe;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.util.math.BlockPos;
 import radixcore.constant.Font.Color;
 import radixcore.constant.Time;
 import radixcore.math.Point3D;
 import radixcore.modules.RadixBlocks;
 import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
-import radixcore.modules.schematics.BlockObj;
-import radixcore.modules.schematics.RadixSchematics;
 
 public class ActionFarm extends AbstractToggleAction
 {
@@ -42,6 +43,7 @@ public class ActionFarm extends AbstractToggleAction
 	private boolean isBuildingFarm;
 	private boolean farmCreatedFlag;
 	private String schematic;
+	private ChorePlanner.Plan harvestPlan;
 
 	public ActionFarm(EntityVillagerMCA actor) 
 	{
@@ -118,16 +120,31 @@ public class ActionFarm extends AbstractToggleAction
 				{
 					final double delta = RadixMath.getDistanceToXYZ(actor.posX, actor.posY, actor.posZ, harvestTargetPoint.dX(), harvestTargetPoint.dY(), harvestTargetPoint.dZ());
 
-					if (harvestTargetPoint.iX() == 0 && harvestTargetPoint.iY() == 0 && harvestTargetPoint.iZ() == 0)
+					if (harvestTargetPoint.iX() == 0 && harvestTargetPoint.iY() == 0 && harvestTargetPoint.iZ() == 0 && harvestPlan == null)
 					{
+						//Search for every crop at once in the background. Results come back in crop entry order.
+						final List<Predicate<IBlockState>> harvestPredicates = new ArrayList<Predicate<IBlockState>>();
+
 						for (int id : RegistryMCA.getCropEntryIDs())
 						{
 							final CropEntry entry = RegistryMCA.getCropEntryById(id);
-							
+							harvestPredicates.add(BlockSearch.forBlockWithMeta(entry.getHarvestBlock(), entry.getHarvestBlockMeta()));
+						}
+
+						harvestPlan = ChorePlanner.planNearestBlocks(actor, radius, harvestPredicates);
+					}
+
+					if (harvestPlan != null && harvestPlan.isDone())
+					{
+						int entryIndex = 0;
+
+						for (int id : RegistryMCA.getCropEntryIDs())
+						{
+							final CropEntry entry = RegistryMCA.getCropEntryById(id);
+							final Point3D nearestHarvest = harvestPlan.getResult(entryIndex++);
+
 							if (entry.getCategory() == EnumCropCategory.SUGARCANE)
 							{
-								Point3D nearestHarvest = RadixLogic.getFirstNearestBlockWithMeta(actor, entry.getHarvestBlock(), entry.getHarvestBlockMeta(), radius);
-
 								if (nearestHarvest == null)
 								{
 									harvestTargetPoint = Point3D.ZERO;
@@ -172,33 +189,11 @@ public class ActionFarm extends AbstractToggleAction
 
 							else
 							{
-								List<Point3D> nearbyBlocks = RadixLogic.getNearbyBlocks(actor, entry.getHarvestBlock(), radius);
-								List<Point3D> validMetaBlocks = new ArrayList<Point3D>();
-								
-								for (Point3D point : nearbyBlocks)
-								{
-									IBlockState state = actor.world.getBlockState(new BlockPos(point.iX(), point.iY(), point.iZ()));
-									int meta = state.getBlock().getMetaFromState(state);
-
-									if (meta == entry.getHarvestBlockMeta())
-									{
-										validMetaBlocks.add(point);
-									}
-								}
-								
-								double distance = 100.0D;
-								
-								for (Point3D point : validMetaBlocks)
+								if (nearestHarvest != null)
 								{
-									double distanceToPoint = RadixMath.getDistanceToXYZ(actor, point);
-									
-									if (distanceToPoint < distance)
-									{
-										distance = distanceToPoint;
-										harvestTargetPoint = point;
-									}
+									harvestTargetPoint = nearestHarvest;
 								}
-								
+
 								if (harvestTargetPoint == null || harvestTargetPoint == Point3D.ZERO)
 								{
 									harvestTargetPoint = Point3D.ZERO;
@@ -212,6 +207,8 @@ public class ActionFarm extends AbstractToggleAction
 								}
 							}
 						}
+
+						harvestPlan = null;
 					}
 
 					if (delta >= 2.0D && actor.getNavigator().noPath())
@@ -265,6 +262,12 @@ public class ActionFarm extends AbstractToggleAction
 	{
 		setIsActive(false);
 		seedsRequired = 0;
+
+		if (harvestPlan != null)
+		{
+			harvestPlan.cancel();
+			harvestPlan = null;
+		}
 	}
 
 	@Override
@@ -308,8 +311,7 @@ public class ActionFarm extends AbstractToggleAction
 			case SUGARCANE:	schematic = "/assets/mca/schematic/sugarcane1.schematic"; break;
 			}
 
-			Map<Point3D, BlockObj> schematicData = RadixSchematics.readSchematic(schematic);
-			seedsRequired = RadixSchematics.countOccurencesOfBlockObj(schematicData, new BlockObj(Blocks.WOOL, entry.getCategory().getReferenceMeta()));
+			seedsRequired = SchematicCache.get(schematic).getCount(Blocks.WOOL, entry.getCategory().getReferenceMeta());
 
 			if (doCreate1 && !actor.attributes.getInventory().containsCountOf(entry.getSeedItem(), seedsRequired))
 			{
@@ -333,6 +335,13 @@ public class ActionFarm extends AbstractToggleAction
 			this.harvestTargetPoint = Point3D.ZERO;
 			this.farmCreatedFlag = false;
 			this.isBuildingFarm = false;
+
+			if (harvestPlan != null)
+			{
+				harvestPlan.cancel();
+				harvestPlan = null;
+			}
+
 			this.setIsActive(true);
 			
 			actor.setHeldItem(actor.attributes.getInventory().getBestItemOfType(ItemHoe.class).getItem());
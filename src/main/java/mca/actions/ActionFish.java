@@ -9,8 +9,9 @@ import mca.core.Constants;
 import mca.core.MCA;
 import mca.entity.EntityChoreFishHook;
 import mca.entity.EntityVillagerMCA;
+import mca.enums.EnumPointOfInterest;
+import mca.util.PointOfInterestIndex;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.init.Blocks;
 import net.minecraft.init.Items;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
@@ -125,7 +126,7 @@ public class ActionFish extends AbstractToggleAction
 	private boolean trySetWaterCoordinates()
 	{
 		//Get all water up to 10 blocks away from the entity.
-		final Point3D waterCoordinates = RadixLogic.getNearestBlock(actor, 10, Blocks.WATER);
+		final Point3D waterCoordinates = PointOfInterestIndex.get(actor.world).getNearestPoint(EnumPointOfInterest.WATER, actor, 10);
 
 		if (waterCoordinates == null)
 		{
@@ -148,12 +149,12 @@ public class ActionFish extends AbstractToggleAction
 
 	private boolean canFishingBegin()
 	{
-		return RadixLogic.getNearestBlock(actor, 1, Blocks.WATER) != null;
+		return PointOfInterestIndex.get(actor.world).getNearestPoint(EnumPointOfInterest.WATER, actor, 1) != null;
 	}
 
 	private void doSetFishingTarget()
 	{
-		final List<Point3D> nearbyWater = RadixLogic.getNearbyBlocks(actor, Blocks.WATER, 10);
+		final List<Point3D> nearbyWater = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.WATER, actor, 10);
 		final Point3D randomNearbyWater = nearbyWater.get(RadixMath.getNumberInRange(0, nearbyWater.size() - 1));
 		
 		waterCoordinatesX = randomNearbyWater.iX();
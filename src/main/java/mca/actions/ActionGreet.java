@@ -4,6 +4,7 @@ import mca.core.MCA;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerMemory;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerBehaviors;
 import mca.enums.EnumDialogueType;
 import mca.enums.EnumInteraction;
 import mca.packets.PacketOpenVillagerPrompt;
@@ -22,8 +23,6 @@ public class ActionGreet extends AbstractAction
 	public static final int GREETING_INTERVAL = Time.SECOND * 120;
 	public static final int CHANCE_TO_GREET = 60;
 
-	private int ticksUntilUpdate = 0;
-
 	public ActionGreet(EntityVillagerMCA actor)
 	{
 		super(actor);
@@ -32,91 +31,86 @@ public class ActionGreet extends AbstractAction
 	@Override
 	public void onUpdateServer() 
 	{
-		if (!actor.getBehavior(ActionSleep.class).getIsSleeping())
+		if (!actor.getBehavior(VillagerBehaviors.SLEEP).getIsSleeping())
 		{
-			//Update ticks until actual update. This AI runs once per second for performance.
-			ticksUntilUpdate = ticksUntilUpdate <= 0 ? Time.SECOND : ticksUntilUpdate - 1;
-
-			//Update greeting ticks if necessary. This part of the AI runs every tick.
-			for (PlayerMemory memory : actor.attributes.getPlayerMemories().values())
+			//Update the distance that each known player has traveled from this entity.
+			for (Object obj : actor.world.playerEntities)
 			{
-				int timeUntilGreeting = memory.getTimeUntilGreeting();
+				EntityPlayer player = (EntityPlayer)obj;
 
-				if (timeUntilGreeting > 0)
+				if (actor.attributes.hasMemoryOfPlayer(player))
 				{
-					memory.setTimeUntilGreeting(timeUntilGreeting - 1);
+					PlayerMemory memory = actor.attributes.getPlayerMemory(player);
+					float distanceToPlayer = actor.getDistanceToEntity(player);
+
+					if (distanceToPlayer > memory.getDistanceTraveledFrom())
+					{
+						memory.setDistanceTraveledFrom(Math.round(distanceToPlayer));
+					}
 				}
 			}
 
-			//Perform the greeting attempt if time for the update.
-			if (ticksUntilUpdate <= 0)
+			//Get the closest player and try to greet them.
+			EntityPlayer closestPlayer = actor.world.getClosestPlayerToEntity(actor, 4);
+
+			if (closestPlayer != null)
 			{
-				//Update the distance that each known player has traveled from this entity.
-				for (Object obj : actor.world.playerEntities)
+				PlayerMemory memory = actor.attributes.getPlayerMemory(closestPlayer);
+				ActionSleep AISleep = actor.getBehavior(VillagerBehaviors.SLEEP);
+				
+				if (memory.getTimeUntilGreeting() <= 0 && RadixLogic.getBooleanWithProbability(CHANCE_TO_GREET) && actor.canEntityBeSeen(closestPlayer) && !AISleep.getIsSleeping())
 				{
-					EntityPlayer player = (EntityPlayer)obj;
-
-					if (actor.attributes.hasMemoryOfPlayer(player))
+					if (actor.attributes.getIsInfected() && !closestPlayer.capabilities.isCreativeMode)
 					{
-						PlayerMemory memory = actor.attributes.getPlayerMemory(player);
-						float distanceToPlayer = actor.getDistanceToEntity(player);
-
-						if (distanceToPlayer > memory.getDistanceTraveledFrom())
-						{
-							memory.setDistanceTraveledFrom(Math.round(distanceToPlayer));
-						}
+						closestPlayer.sendMessage(new TextComponentString(Color.RED + actor.getName() + " bites you."));
+						closestPlayer.attackEntityFrom(DamageSource.GENERIC, 2.0F);
+						closestPlayer.addPotionEffect(new PotionEffect(MobEffects.WEAKNESS, Time.MINUTE * 2, 1));
 					}
-				}
 
-				//Get the closest player and try to greet them.
-				EntityPlayer closestPlayer = actor.world.getClosestPlayerToEntity(actor, 4);
-
-				if (closestPlayer != null)
-				{
-					PlayerMemory memory = actor.attributes.getPlayerMemory(closestPlayer);
-					ActionSleep AISleep = actor.getBehavior(ActionSleep.class);
-					
-					if (memory.getTimeUntilGreeting() <= 0 && RadixLogic.getBooleanWithProbability(CHANCE_TO_GREET) && actor.canEntityBeSeen(closestPlayer) && !AISleep.getIsSleeping())
+					else
 					{
-						if (actor.attributes.getIsInfected() && !closestPlayer.capabilities.isCreativeMode)
+						//Check for low hearts on spouses.
+						if (memory.getDialogueType() == EnumDialogueType.SPOUSE && memory.getHearts() <= -25)
 						{
-							closestPlayer.sendMessage(new TextComponentString(Color.RED + actor.getName() + " bites you."));
-							closestPlayer.attackEntityFrom(DamageSource.GENERIC, 2.0F);
-							closestPlayer.addPotionEffect(new PotionEffect(MobEffects.WEAKNESS, Time.MINUTE * 2, 1));
+							actor.say(memory.getDialogueType() + ".lowhearts.greeting", closestPlayer);
+							actor.attributes.incrementLowHeartWarnings();
 						}
-
+						
 						else
 						{
-							//Check for low hearts on spouses.
-							if (memory.getDialogueType() == EnumDialogueType.SPOUSE && memory.getHearts() <= -25)
+							//Check for nobility greeting.
+							NBTPlayerData data = MCA.getPlayerData(closestPlayer);
+
+							if (data.getHappinessThresholdMet() && RadixLogic.getBooleanWithProbability(10))
 							{
-								actor.say(memory.getDialogueType() + ".lowhearts.greeting", closestPlayer);
-								actor.attributes.incrementLowHeartWarnings();
+								MCA.getPacketHandler().sendPacketToPlayer(new PacketOpenVillagerPrompt(closestPlayer, actor, EnumInteraction.NOBILITY), (EntityPlayerMP)closestPlayer);
 							}
 							
 							else
 							{
-								//Check for nobility greeting.
-								NBTPlayerData data = MCA.getPlayerData(closestPlayer);
-
-								if (data.getHappinessThresholdMet() && RadixLogic.getBooleanWithProbability(10))
-								{
-									MCA.getPacketHandler().sendPacketToPlayer(new PacketOpenVillagerPrompt(closestPlayer, actor, EnumInteraction.NOBILITY), (EntityPlayerMP)closestPlayer);
-								}
-								
-								else
-								{
-									actor.say(memory.getDialogueType() + ".greeting", closestPlayer);
-									actor.attributes.resetLowHeartWarnings(); //Make sure we reset when hearts are back to normal.
-								}
+								actor.say(memory.getDialogueType() + ".greeting", closestPlayer);
+								actor.attributes.resetLowHeartWarnings(); //Make sure we reset when hearts are back to normal.
 							}
 						}
-						
-						memory.setTimeUntilGreeting(GREETING_INTERVAL);
-						memory.setDistanceTraveledFrom(0);
 					}
+					
+					memory.setTimeUntilGreeting(GREETING_INTERVAL);
+					memory.setDistanceTraveledFrom(0);
 				}
 			}
 		}
 	}
+
+	@Override
+	public int getUpdateInterval()
+	{
+		//This AI runs once per second for performance.
+		return Time.SECOND;
+	}
+
+	@Override
+	public boolean isDeferrable()
+	{
+		return true;
+	}
 }
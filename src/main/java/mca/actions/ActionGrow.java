@@ -18,6 +18,12 @@ public class ActionGrow extends AbstractAction
 		super(entityHuman);
 	}
 
+	@Override
+	public boolean isEssential()
+	{
+		return true;
+	}
+
 	@Override
 	public void onUpdateCommon() 
 	{
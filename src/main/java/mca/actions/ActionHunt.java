@@ -6,6 +6,8 @@ import mca.api.RegistryMCA;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumMovementState;
+import mca.enums.EnumPointOfInterest;
+import mca.util.PointOfInterestIndex;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLiving;
 import net.minecraft.entity.item.EntityItem;
@@ -47,7 +49,7 @@ public class ActionHunt extends AbstractToggleAction
 		if (standPoint.iX() == 0 && standPoint.iY() == 0 && standPoint.iZ() == 0)
 		{
 			//Find a point to stand at and hunt.
-			List<Point3D> grassBlocks = RadixLogic.getNearbyBlocks(actor, Blocks.GRASS, 15);
+			List<Point3D> grassBlocks = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.GRASS, actor, 15);
 
 			if (grassBlocks.size() > 0)
 			{
@@ -88,7 +90,7 @@ public class ActionHunt extends AbstractToggleAction
 					{
 						final Class entityClass = RegistryMCA.getRandomHuntingEntity(isTaming);
 						final EntityLiving entity = (EntityLiving)entityClass.getDeclaredConstructor(World.class).newInstance(actor.world);
-						final List<Point3D> nearbyGrass = RadixLogic.getNearbyBlocks(actor, Blocks.GRASS, 3);
+						final List<Point3D> nearbyGrass = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.GRASS, actor, 3);
 						final Point3D spawnPoint = nearbyGrass.get(actor.world.rand.nextInt(nearbyGrass.size()));
 
 						if (spawnPoint != null)
@@ -1,6 +1,7 @@
 package mca.actions;
 
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerBehaviors;
 import mca.enums.EnumMovementState;
 import mca.enums.EnumProfessionSkinGroup;
 import mca.enums.EnumSleepingState;
@@ -23,7 +24,7 @@ public class ActionIdle extends AbstractAction
 	
 		if (idleTicks >= Time.MINUTE * 1 && actor.isInOverworld() && !actor.world.isDaytime() && actor.attributes.getProfessionSkinGroup() != EnumProfessionSkinGroup.Guard && actor.attributes.getMovementState() == EnumMovementState.STAY)
 		{
-			ActionSleep AISleep = actor.getBehavior(ActionSleep.class);
+			ActionSleep AISleep = actor.getBehavior(VillagerBehaviors.SLEEP);
 	
 			if (!AISleep.getIsSleeping())
 			{
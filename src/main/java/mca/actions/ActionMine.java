@@ -9,6 +9,9 @@ import mca.api.exception.MappingNotFoundException;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumMovementState;
+import mca.enums.EnumPointOfInterest;
+import mca.util.BlockSearch;
+import mca.util.PointOfInterestIndex;
 import net.minecraft.block.Block;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
@@ -55,7 +58,7 @@ public class ActionMine extends AbstractToggleAction
 				activityInterval = MINE_INTERVAL;
 
 				//If we're not already building and oak fence isn't found, begin building the mine.
-				if (!isBuildingMine && RadixLogic.getNearbyBlocks(actor, Blocks.OAK_FENCE, 8).size() == 0)
+				if (!isBuildingMine && PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.OAK_FENCE, actor, 8).isEmpty())
 				{
 					final int y = RadixLogic.getSpawnSafeTopLevel(actor.world, (int) actor.posX, (int) actor.posZ);
 					final Block groundBlock = RadixBlocks.getBlock(actor.world, (int)actor.posX, y - 1, (int)actor.posZ);
@@ -71,7 +74,7 @@ public class ActionMine extends AbstractToggleAction
 					{
 						//When the chore is not running, search for a group of fences nearby.
 						//This identifies this area as a mine.
-						List<Point3D> nearbyFence = RadixLogic.getNearbyBlocks(actor, Blocks.OAK_FENCE_GATE, 8);
+						List<Point3D> nearbyFence = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.OAK_FENCE_GATE, actor, 8);
 
 						if (nearbyFence.size() >= 1)
 						{
@@ -100,7 +103,7 @@ public class ActionMine extends AbstractToggleAction
 				}
 			}
 
-			activityInterval--;
+			activityInterval -= getUpdateInterval();
 		}
 
 		else //Searching
@@ -113,26 +116,10 @@ public class ActionMine extends AbstractToggleAction
 
 					final Block notifyBlock = RegistryMCA.getMiningEntryById(idOfNotifyBlock).getBlock();
 					final Point3D ownerPos = new Point3D(actor.posX, actor.posY, actor.posZ);
-					int distanceToBlock = -1;
 
 					//Find the nearest block we can notify about.
-					for (final Point3D point : RadixLogic.getNearbyBlocks(actor, notifyBlock, 20))
-					{
-						if (distanceToBlock == -1)
-						{
-							distanceToBlock = (int) RadixMath.getDistanceToXYZ(point.iX(), point.iY(), point.iZ(), ownerPos.iX(), ownerPos.iY(), ownerPos.iZ());
-						}
-
-						else
-						{
-							double distanceToPoint = RadixMath.getDistanceToXYZ(point.iX(), point.iY(), point.iZ(), ownerPos.iX(), ownerPos.iY(), ownerPos.iZ());
-
-							if (distanceToPoint < distanceToBlock)
-							{
-								distanceToBlock = (int) distanceToPoint;
-							}
-						}
-					}
+					final Point3D nearestBlock = BlockSearch.getNearestBlock(actor, 20, BlockSearch.forBlock(notifyBlock));
+					final int distanceToBlock = nearestBlock == null ? -1 : (int) RadixMath.getDistanceToXYZ(nearestBlock.iX(), nearestBlock.iY(), nearestBlock.iZ(), ownerPos.iX(), ownerPos.iY(), ownerPos.iZ());
 
 					//Damage the pick.
 					actor.damageHeldItem(5);
@@ -169,7 +156,7 @@ public class ActionMine extends AbstractToggleAction
 					}
 				}
 
-				activityInterval--;
+				activityInterval -= getUpdateInterval();
 			}
 
 			catch (MappingNotFoundException e)
@@ -179,6 +166,13 @@ public class ActionMine extends AbstractToggleAction
 		}
 	}
 
+	@Override
+	public int getUpdateInterval()
+	{
+		//Nothing the chore does happens more often than a pick swing.
+		return MINE_INTERVAL;
+	}
+
 	@Override
 	public void writeToNBT(NBTTagCompound nbt) 
 	{
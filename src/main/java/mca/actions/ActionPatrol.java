@@ -3,7 +3,9 @@ package mca.actions;
 import java.util.List;
 
 import mca.entity.EntityVillagerMCA;
+import mca.enums.EnumPointOfInterest;
 import mca.enums.EnumProfessionSkinGroup;
+import mca.util.PointOfInterestIndex;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockDoor;
 import net.minecraft.init.Blocks;
@@ -20,7 +22,6 @@ public class ActionPatrol extends AbstractAction
 	private boolean isWaitingAtDoor;
 	private int timeUntilMoveReset;
 	private Point3D movePoint;
-	private int timeUntilTick;
 	
 	public ActionPatrol(EntityVillagerMCA actor) 
 	{
@@ -30,23 +31,11 @@ public class ActionPatrol extends AbstractAction
 	@Override
 	public void onUpdateServer() 
 	{
-		//Run every second, instead of constantly.
-		if (timeUntilTick > 0)
-		{
-			timeUntilTick--;
-			return;
-		}
-		
-		else
-		{
-			timeUntilTick = 20;
-		}
-		
 		if (actor.attributes.getProfessionSkinGroup() == EnumProfessionSkinGroup.Guard && !actor.world.isDaytime())
 		{
 			if (!hasDoor)
 			{
-				List<Point3D> nearbyDoors = RadixLogic.getNearbyBlocks(actor, Blocks.OAK_DOOR, 15);
+				List<Point3D> nearbyDoors = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.OAK_DOOR, actor, 15);
 	
 				if (!nearbyDoors.isEmpty())
 				{
@@ -166,6 +155,19 @@ public class ActionPatrol extends AbstractAction
 		}
 	}
 	
+	@Override
+	public int getUpdateInterval()
+	{
+		//Run every second, instead of constantly.
+		return Time.SECOND;
+	}
+
+	@Override
+	public boolean isDeferrable()
+	{
+		return true;
+	}
+
 	private Point3D movePointToGround(Point3D point)
 	{
 		Point3D returnPoint = new Point3D(point.iX(), point.iY(), point.iZ());
@@ -1,48 +1,34 @@
 package mca.actions;
 
 import mca.entity.EntityVillagerMCA;
-import net.minecraft.nbt.NBTTagCompound;
 import radixcore.constant.Time;
 
 public class ActionRegenerate extends AbstractAction
 {
-	private int timeUntilNextRegen;
-
 	public ActionRegenerate(EntityVillagerMCA actor) 
 	{
 		super(actor);
-		timeUntilNextRegen = Time.SECOND * 3;
 	}
 
 	@Override
 	public void onUpdateServer() 
 	{
-		if (timeUntilNextRegen <= 0)
-		{
-			float maxHealth = actor.getMaxHealth();
-			if (actor.getHealth() < maxHealth && actor.getHealth() > 0.0F)
-			{
-				actor.setHealth(actor.getHealth() + 1);
-			}
-
-			timeUntilNextRegen = Time.SECOND * 3;
-		}
-
-		else
+		float maxHealth = actor.getMaxHealth();
+		if (actor.getHealth() < maxHealth && actor.getHealth() > 0.0F)
 		{
-			timeUntilNextRegen--;
+			actor.setHealth(actor.getHealth() + 1);
 		}
 	}
-	
+
 	@Override
-	public void writeToNBT(NBTTagCompound nbt) 
+	public int getUpdateInterval()
 	{
-		nbt.setInteger("timeUntilNextRegen", timeUntilNextRegen);
+		return Time.SECOND * 3;
 	}
 
 	@Override
-	public void readFromNBT(NBTTagCompound nbt) 
+	public boolean isEssential()
 	{
-		timeUntilNextRegen = nbt.getInteger("timeUntilNextRegen");
+		return true;
 	}
 }
@@ -1,19 +1,18 @@
 package mca.actions;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import mca.blocks.BlockVillagerBed;
 import mca.core.Constants;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumMovementState;
+import mca.enums.EnumPointOfInterest;
 import mca.enums.EnumProfessionSkinGroup;
 import mca.enums.EnumSleepingState;
 import mca.tile.TileVillagerBed;
+import mca.util.PointOfInterestIndex;
 import mca.util.Utilities;
 import net.minecraft.block.Block;
-import net.minecraft.block.BlockBed;
-import net.minecraft.block.BlockBed.EnumPartType;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
@@ -22,7 +21,6 @@ import net.minecraft.network.datasync.DataSerializers;
 import net.minecraft.network.datasync.EntityDataManager;
 import net.minecraft.util.math.BlockPos;
 import radixcore.math.Point3D;
-import radixcore.modules.RadixLogic;
 
 public class ActionSleep extends AbstractAction
 {
@@ -334,23 +332,8 @@ public class ActionSleep extends AbstractAction
 
 		else //Search for a bed.
 		{
-			List<Point3D> bedsNearby = RadixLogic.getNearbyBlocks(actor, BlockVillagerBed.class, 8);
-			List<Point3D> bedFeetNearby = new ArrayList<Point3D>();
-
-			for (final Point3D point : bedsNearby)
-			{
-				IBlockState state = actor.world.getBlockState(new BlockPos(point.iX(), point.iY(), point.iZ()));
-
-				if (state.getBlock() instanceof BlockVillagerBed)
-				{
-					EnumPartType part = (EnumPartType) state.getValue(BlockBed.PART);
-
-					if (part == BlockBed.EnumPartType.FOOT)
-					{
-						bedFeetNearby.add(point);
-					}
-				}
-			}
+			//Only the feet of villager beds are indexed.
+			List<Point3D> bedFeetNearby = PointOfInterestIndex.get(actor.world).getPoints(EnumPointOfInterest.VILLAGER_BED, actor, 8);
 
 			if (bedFeetNearby.size() > 0)
 			{
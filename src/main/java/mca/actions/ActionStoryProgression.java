@@ -3,6 +3,7 @@ package mca.actions;
 import mca.core.MCA;
 import mca.core.minecraft.AchievementsMCA;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumBabyState;
 import mca.enums.EnumGender;
 import mca.enums.EnumMarriageState;
@@ -35,6 +36,24 @@ public class ActionStoryProgression extends AbstractAction
 		setProgressionStep(EnumProgressionStep.SEARCH_FOR_PARTNER);
 	}
 
+	@Override
+	public boolean isEssential()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isDeferrable()
+	{
+		return true;
+	}
+
+	@Override
+	public int getUpdateInterval()
+	{
+		return Time.SECOND;
+	}
+
 	@Override
 	public void onUpdateServer() 
 	{
@@ -70,7 +89,7 @@ public class ActionStoryProgression extends AbstractAction
 
 			else
 			{
-				ticksUntilNextProgress--;
+				ticksUntilNextProgress -= getUpdateInterval();
 			}
 		}
 	}
@@ -112,7 +131,7 @@ public class ActionStoryProgression extends AbstractAction
 
 	private void doPartnerSearch()
 	{
-		EntityVillagerMCA partner = (EntityVillagerMCA) RadixLogic.getClosestEntityExclusive(actor, 15, EntityVillagerMCA.class);
+		EntityVillagerMCA partner = VillagerSpatialIndex.get(actor.world).getClosestVillager(actor, 15);
 
 		boolean partnerIsValid = partner != null 
 				&& partner.attributes.getGender() != actor.attributes.getGender() 
@@ -131,7 +150,7 @@ public class ActionStoryProgression extends AbstractAction
 	private void doTryForBaby()
 	{
 		final EntityVillagerMCA mate = actor.attributes.getVillagerSpouseInstance();
-		final int villagersInArea = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, actor, 32).size();
+		final int villagersInArea = VillagerSpatialIndex.get(actor.world).countVillagersWithinDistance(actor.posX, actor.posY, actor.posZ, 32);
 
 		if (villagersInArea >= MCA.getConfig().storyProgressionCap && MCA.getConfig().storyProgressionCap != -1 && !forceNextProgress)
 		{
@@ -25,8 +25,6 @@ public class ActionUpdateMood extends AbstractAction
 	@SideOnly(Side.CLIENT)
 	private int particleSpawnCounter;
 
-	private int counter;
-	
 	public ActionUpdateMood(EntityVillagerMCA entityHuman) 
 	{
 		super(entityHuman);
@@ -86,22 +84,21 @@ public class ActionUpdateMood extends AbstractAction
 	@Override
 	public void onUpdateServer() 
 	{
-		if (counter <= 0)
+		if (getMoodLevel() > 0)
 		{
-			if (getMoodLevel() > 0)
-			{
-				modifyMoodLevel(-1.0F);
-			}
-			
-			else if (getMoodLevel() < 0)
-			{
-				modifyMoodLevel(1.0F);
-			}
-			
-			counter = Time.SECOND * 45;
+			modifyMoodLevel(-1.0F);
 		}
 		
-		counter--;
+		else if (getMoodLevel() < 0)
+		{
+			modifyMoodLevel(1.0F);
+		}
+	}
+
+	@Override
+	public int getUpdateInterval()
+	{
+		return Time.SECOND * 45;
 	}
 
 	@Override
@@ -4,6 +4,7 @@ import java.util.List;
 
 import mca.core.Constants;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerBehaviors;
 import mca.enums.EnumMovementState;
 import mca.enums.EnumWorkdayState;
 import net.minecraft.entity.Entity;
@@ -35,7 +36,7 @@ public class ActionWander extends AbstractAction
 		//Prevent the workday while we're down for sleep or doing something with the player.
 		if (actor.attributes.getMovementState() == EnumMovementState.STAY 
 				|| actor.attributes.getMovementState() == EnumMovementState.FOLLOW 
-				|| actor.getBehavior(ActionSleep.class).getIsSleeping()
+				|| actor.getBehavior(VillagerBehaviors.SLEEP).getIsSleeping()
 				|| actor.getBehaviors().isToggleActionActive())
 		{
 			//Allow looking at the player while staying.
@@ -1,11 +1,15 @@
 package mca.actions;
 
+import com.google.common.base.Predicates;
+
 import mca.api.RegistryMCA;
 import mca.api.WoodcuttingEntry;
 import mca.api.exception.MappingNotFoundException;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumPersonality;
+import mca.util.BlockSearch;
+import mca.util.ChorePlanner;
 import net.minecraft.block.Block;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
@@ -17,7 +21,6 @@ import net.minecraft.nbt.NBTTagCompound;
 import radixcore.constant.Font.Color;
 import radixcore.math.Point3D;
 import radixcore.modules.RadixBlocks;
-import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
 
 public class ActionWoodcut extends AbstractToggleAction
@@ -28,6 +31,7 @@ public class ActionWoodcut extends AbstractToggleAction
 	private int cutInterval;
 	private int cutTimeLeft;
 	private boolean doReplant;
+	private ChorePlanner.Plan treePlan;
 
 	public ActionWoodcut(EntityVillagerMCA actor) 
 	{
@@ -57,7 +61,19 @@ public class ActionWoodcut extends AbstractToggleAction
 					return;
 				}
 
-				final Point3D point = RadixLogic.getNearestBlock(actor, 15, apiEntry.getLogBlock());
+				//Look for the nearest log in the background, and wait where we are until it's found.
+				if (treePlan == null)
+				{
+					treePlan = ChorePlanner.planNearestBlock(actor, 15, BlockSearch.forBlock(apiEntry.getLogBlock()));
+				}
+
+				if (!treePlan.isDone())
+				{
+					return;
+				}
+
+				final Point3D point = treePlan.getResult();
+				treePlan = null;
 
 				if (point != null)
 				{
@@ -150,16 +166,11 @@ public class ActionWoodcut extends AbstractToggleAction
 
 			else
 			{
-				for (Point3D point : RadixLogic.getNearbyBlocks(actor, Blocks.LEAVES, 1))
+				for (Point3D point : BlockSearch.getBlocks(actor, 1, Predicates.or(BlockSearch.forBlock(Blocks.LEAVES), BlockSearch.forBlock(Blocks.LEAVES2))))
 				{
 					RadixBlocks.setBlock(actor.world, point.iX(), point.iY(), point.iZ(), Blocks.AIR);
 				}
 
-				for (Point3D point : RadixLogic.getNearbyBlocks(actor, Blocks.LEAVES2, 1))
-				{
-					RadixBlocks.setBlock(actor.world, point.iX(), point.iY(), point.iZ(), Blocks.AIR);				
-				}
-
 				if (actor.getNavigator().noPath())
 				{
 					actor.getNavigator().tryMoveToXYZ(treeBasePoint.dX(), treeBasePoint.dY(), treeBasePoint.dZ(), actor.attributes.getSpeed());
@@ -208,6 +219,12 @@ public class ActionWoodcut extends AbstractToggleAction
 		this.cutInterval = calculateCutInterval();		
 		this.cutTimeLeft = cutInterval;
 
+		if (treePlan != null)
+		{
+			treePlan.cancel();
+			treePlan = null;
+		}
+
 		setIsActive(true);
 	}
 
@@ -0,0 +1,84 @@
+package mca.actions;
+
+import mca.core.MCA;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Shares a budget of blocks per server tick between every villager that is building, so that many farms and mines
+ * started at once are built over several ticks instead of in one. Blocks are placed without their lighting being
+ * updated, and builders light each layer once it is complete instead of after every block.
+ */
+public final class BuildScheduler
+{
+	private static int blocksRemaining;
+
+	private BuildScheduler()
+	{
+	}
+
+	/** Resets the budget for a new server tick. */
+	public static void beginTick()
+	{
+		blocksRemaining = MCA.getConfig().buildBlocksPerTick;
+	}
+
+	public static void clear()
+	{
+		blocksRemaining = 0;
+	}
+
+	/** @returns How many of the wanted blocks may be placed this tick. They are taken from the budget. */
+	/*package-private*/ static int claim(int wanted)
+	{
+		if (MCA.getConfig().buildBlocksPerTick < 0)
+		{
+			return wanted;
+		}
+
+		final int granted = Math.min(wanted, blocksRemaining);
+		blocksRemaining -= granted;
+		return granted;
+	}
+
+	/** Gives back blocks that were claimed but not placed, so other builders can use them this tick. */
+	/*package-private*/ static void release(int unused)
+	{
+		if (MCA.getConfig().buildBlocksPerTick >= 0)
+		{
+			blocksRemaining += unused;
+		}
+	}
+
+	/**
+	 * Places the block the way World.setBlockState does, notifying neighbors and clients, but leaves lighting
+	 * to be checked with relight() later.
+	 *
+	 * @returns True if the block changed.
+	 */
+	/*package-private*/ static boolean placeBlock(World world, BlockPos pos, IBlockState state)
+	{
+		if (pos.getY() < 0 || pos.getY() >= world.getHeight())
+		{
+			return false;
+		}
+
+		final Chunk chunk = world.getChunkFromBlockCoords(pos);
+		final IBlockState oldState = chunk.setBlockState(pos, state);
+
+		if (oldState == null)
+		{
+			return false;
+		}
+
+		world.markAndNotifyBlock(pos, chunk, oldState, state, 3);
+		return true;
+	}
+
+	/*package-private*/ static void relight(World world, BlockPos pos)
+	{
+		world.checkLight(pos);
+	}
+}
@@ -4,9 +4,9 @@ import java.util.Random;
 
 import mca.actions.ActionSleep;
 import mca.core.Constants;
-import mca.core.MCA;
 import mca.core.minecraft.ItemsMCA;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumBedColor;
 import mca.enums.EnumSleepingState;
 import mca.tile.TileVillagerBed;
@@ -94,7 +94,7 @@ public class BlockVillagerBed extends BlockBed implements ITileEntityProvider
 				{
 					try
 					{
-						final EntityVillagerMCA entity = (EntityVillagerMCA) MCA.getEntityByUUID(worldIn, villagerBed.getSleepingVillagerId());
+						final EntityVillagerMCA entity = VillagerSpatialIndex.getVillagerByUUID(worldIn, villagerBed.getSleepingVillagerId());
 
 						if (entity != null)
 						{
@@ -1,10 +1,10 @@
 package mca.blocks;
 
-import java.util.List;
 import java.util.Random;
 
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumGender;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
@@ -13,9 +13,7 @@ import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import radixcore.constant.Time;
-import radixcore.math.Point3D;
 import radixcore.modules.RadixBlocks;
-import radixcore.modules.RadixLogic;
 
 public class BlockVillagerSpawner extends Block
 {
@@ -39,9 +37,7 @@ public class BlockVillagerSpawner extends Block
 	{
 		super.updateTick(world, pos, state, random);
 
-		Point3D point = new Point3D(pos.getX(), pos.getY(), pos.getZ());
-		List<EntityVillagerMCA> nearbyEntities = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, world, point, 32);
-		int nearbyHumans = nearbyEntities.size();
+		int nearbyHumans = VillagerSpatialIndex.get(world).countVillagersWithinDistance(pos.getX(), pos.getY(), pos.getZ(), 32);
 
 		if (nearbyHumans < MCA.getConfig().villagerSpawnerCap)
 		{
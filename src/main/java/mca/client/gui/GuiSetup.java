@@ -12,6 +12,7 @@ import mca.data.NBTPlayerData;
 import mca.enums.EnumDestinyChoice;
 import mca.enums.EnumGender;
 import mca.packets.PacketDestinyChoice;
+import mca.util.SchematicCache;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.client.gui.GuiButton;
@@ -28,7 +29,6 @@ import radixcore.math.Point3D;
 import radixcore.modules.RadixBlocks;
 import radixcore.modules.client.RadixRender;
 import radixcore.modules.schematics.BlockObj;
-import radixcore.modules.schematics.RadixSchematics;
 
 @SideOnly(Side.CLIENT)
 public class GuiSetup extends GuiScreen
@@ -129,7 +129,7 @@ public class GuiSetup extends GuiScreen
 	{
 		try
 		{
-			Map<Point3D, BlockObj> destinySchematic = RadixSchematics.readSchematic("/assets/mca/schematic/destiny-test.schematic");
+			Map<Point3D, BlockObj> destinySchematic = SchematicCache.get("/assets/mca/schematic/destiny-test.schematic").getBlocks();
 
 			//Purge the old schematic.
 			for (Map.Entry<Point3D, BlockObj> entry : destinySchematic.entrySet())
@@ -6,8 +6,11 @@ import org.apache.commons.lang3.StringUtils;
 
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
-import mca.entity.VillagerAttributes;
+import mca.enums.EnumGender;
+import mca.enums.EnumProfession;
+import mca.enums.EnumRelation;
 import mca.packets.PacketCallVillager;
+import mca.packets.PacketRelatedVillagers.RelatedVillager;
 import mca.packets.PacketRequestRelatedVillagers;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiButton;
@@ -24,7 +27,7 @@ public class GuiWhistle extends GuiScreen
 {
 	private EntityVillagerMCA dummyHuman;
 
-	private List<VillagerAttributes> villagerDataList;
+	private List<RelatedVillager> villagerDataList;
 
 	private GuiButton selectionLeftButton;
 	private GuiButton selectionRightButton;
@@ -115,7 +118,7 @@ public class GuiWhistle extends GuiScreen
 
 			else if (guibutton == callButton)
 			{
-				MCA.getPacketHandler().sendPacketToServer(new PacketCallVillager(villagerDataList.get(selectedIndex - 1).getVillagerUUID()));
+				MCA.getPacketHandler().sendPacketToServer(new PacketCallVillager(villagerDataList.get(selectedIndex - 1).uuid));
 				Minecraft.getMinecraft().displayGuiScreen(null);
 			}
 
@@ -125,9 +128,7 @@ public class GuiWhistle extends GuiScreen
 				Minecraft.getMinecraft().displayGuiScreen(null);
 			}
 
-			VillagerAttributes data = villagerDataList.get(selectedIndex - 1);
-			villagerNameButton.displayString = data.getTitle(Minecraft.getMinecraft().player);
-			updateDummyVillagerWithData(data);
+			updateDummyVillagerWithData(villagerDataList.get(selectedIndex - 1));
 		}
 	}
 
@@ -171,7 +172,7 @@ public class GuiWhistle extends GuiScreen
 		net.minecraft.client.gui.inventory.GuiInventory.drawEntityOnScreen(posX, posY, 75, 0, 0, dummyHuman);
 	}
 
-	public void setVillagerDataList(List<VillagerAttributes> dataList)
+	public void setVillagerDataList(List<RelatedVillager> dataList)
 	{
 		this.villagerDataList = dataList;
 		this.loadingAnimationTicks = -1;
@@ -179,8 +180,7 @@ public class GuiWhistle extends GuiScreen
 
 		try
 		{
-			VillagerAttributes firstData = dataList.get(0);
-			villagerNameButton.displayString = firstData.getTitle(Minecraft.getMinecraft().player);
+			RelatedVillager firstData = dataList.get(0);
 			dummyHuman = new EntityVillagerMCA(Minecraft.getMinecraft().world);
 
 			updateDummyVillagerWithData(firstData);
@@ -193,16 +193,23 @@ public class GuiWhistle extends GuiScreen
 		}
 	}
 
-	private void updateDummyVillagerWithData(VillagerAttributes data)
+	private void updateDummyVillagerWithData(RelatedVillager data)
 	{
-		dummyHuman.attributes.setGender(data.getGender());
-		dummyHuman.attributes.setProfession(data.getProfessionEnum());
-		dummyHuman.attributes.setHeadTexture(data.getHeadTexture());
-		dummyHuman.attributes.setClothesTexture(data.getClothesTexture());
-		dummyHuman.attributes.setIsChild(data.getIsChild());
-		dummyHuman.attributes.setAge(data.getAge());
-		dummyHuman.attributes.setScaleWidth(data.getScaleWidth());
-		dummyHuman.attributes.setScaleHeight(data.getScaleHeight());
+		EntityPlayer player = Minecraft.getMinecraft().player;
+
+		dummyHuman.attributes.setName(data.name);
+		dummyHuman.attributes.setGender(EnumGender.byId(data.genderId));
+		dummyHuman.attributes.setProfession(EnumProfession.getProfessionById(data.professionId));
+		dummyHuman.attributes.setHeadTexture(data.headTexture);
+		dummyHuman.attributes.setClothesTexture(data.clothesTexture);
+		dummyHuman.attributes.setIsChild(data.isChild);
+		dummyHuman.attributes.setAge(data.age);
+		dummyHuman.attributes.setScaleWidth(data.scaleWidth);
+		dummyHuman.attributes.setScaleHeight(data.scaleHeight);
 		dummyHuman.attributes.setDoDisplay(true);
+
+		//The title is worded from the dummy's memory of the player, so it needs the relation the server sent.
+		dummyHuman.attributes.getPlayerMemory(player).setRelation(EnumRelation.getById(data.relationId));
+		villagerNameButton.displayString = dummyHuman.attributes.getTitle(player);
 	}
 }
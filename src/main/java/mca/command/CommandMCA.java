@@ -1,5 +1,7 @@
 package mca.command;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 import mca.actions.ActionStoryProgression;
@@ -8,7 +10,11 @@ import mca.data.NBTPlayerData;
 import mca.data.PlayerMemory;
 import mca.entity.EntityGrimReaper;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
+import mca.entity.VillagerTickBudget;
+import mca.enums.EnumAIDetail;
 import mca.items.ItemBaby;
+import mca.util.ActionProfiler;
 import mca.util.IngameTester;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandException;
@@ -26,6 +32,8 @@ import radixcore.constant.Time;
 
 public class CommandMCA extends CommandBase
 {
+	private static final String PROFILE_USAGE = "/mca profile <start|stop|dump [n]>";
+
 	@Override
 	public String getName() 
 	{
@@ -111,14 +119,10 @@ public class CommandMCA extends CommandBase
 			
 			else if (subcommand.equalsIgnoreCase("ffh"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						PlayerMemory memory = human.attributes.getPlayerMemory(player);
-						memory.setHearts(100);
-					}
+					PlayerMemory memory = human.attributes.getPlayerMemory(player);
+					memory.setHearts(100);
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Forced full hearts on all loaded villagers.");
@@ -144,20 +148,15 @@ public class CommandMCA extends CommandBase
 
 			else if (subcommand.equalsIgnoreCase("fcg"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
+					if (human.attributes.getIsChild())
 					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-
-						if (human.attributes.getIsChild())
-						{
-							human.attributes.setAge(0);
-							human.attributes.setIsChild(false);
+						human.attributes.setAge(0);
+						human.attributes.setIsChild(false);
 
-							float newHeight = 0.69F + (human.attributes.getAge() * (1.8F - 0.69F) / MCA.getConfig().childGrowUpTime);
-							human.attributes.setSize(human.width, newHeight);
-						}
+						float newHeight = 0.69F + (human.attributes.getAge() * (1.8F - 0.69F) / MCA.getConfig().childGrowUpTime);
+						human.attributes.setSize(human.width, newHeight);
 					}
 				}
 
@@ -166,16 +165,12 @@ public class CommandMCA extends CommandBase
 
 			else if (subcommand.equalsIgnoreCase("fsp"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						human.attributes.setTicksAlive(MCA.getConfig().storyProgressionThreshold * Time.MINUTE);
+					human.attributes.setTicksAlive(MCA.getConfig().storyProgressionThreshold * Time.MINUTE);
 
-						ActionStoryProgression storyAI = human.getBehavior(ActionStoryProgression.class);
-						storyAI.setTicksUntilNextProgress(0);
-					}
+					ActionStoryProgression storyAI = human.getBehavior(ActionStoryProgression.class);
+					storyAI.setTicksUntilNextProgress(0);
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Forced story progression on all loaded villagers.");
@@ -185,14 +180,10 @@ public class CommandMCA extends CommandBase
 			{
 				int num = 0;
 
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						human.setDead();
-						num++;
-					}
+					human.setDead();
+					num++;
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Removed " + num + " loaded villagers from the world.");				
@@ -200,14 +191,10 @@ public class CommandMCA extends CommandBase
 
 			else if (subcommand.equalsIgnoreCase("mh+"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						PlayerMemory memory = human.attributes.getPlayerMemory(player);
-						memory.setHearts(memory.getHearts() + 10);
-					}
+					PlayerMemory memory = human.attributes.getPlayerMemory(player);
+					memory.setHearts(memory.getHearts() + 10);
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Increased hearts of all villagers by 10.");
@@ -215,14 +202,10 @@ public class CommandMCA extends CommandBase
 
 			else if (subcommand.equalsIgnoreCase("mh-"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						PlayerMemory memory = human.attributes.getPlayerMemory(player);
-						memory.setHearts(memory.getHearts() - 10);
-					}
+					PlayerMemory memory = human.attributes.getPlayerMemory(player);
+					memory.setHearts(memory.getHearts() - 10);
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Decreased hearts of all villagers by 10.");
@@ -236,7 +219,7 @@ public class CommandMCA extends CommandBase
 				
 				if (targetPlayer != null)
 				{
-					EntityVillagerMCA spouse = (EntityVillagerMCA) MCA.getEntityByUUID(targetPlayer.world, targetPlayerData.getSpouseUUID());
+					EntityVillagerMCA spouse = VillagerSpatialIndex.getVillagerByUUID(targetPlayer.world, targetPlayerData.getSpouseUUID());
 					
 					if (spouse != null)
 					{
@@ -255,14 +238,10 @@ public class CommandMCA extends CommandBase
 
 			else if (subcommand.equalsIgnoreCase("rgt"))
 			{
-				for (Object obj : player.world.loadedEntityList)
+				for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) obj;
-						PlayerMemory memory = human.attributes.getPlayerMemory(player);
-						memory.setTimeUntilGreeting(0);
-					}
+					PlayerMemory memory = human.attributes.getPlayerMemory(player);
+					memory.setTimeUntilGreeting(0);
 				}
 
 				sendMessage(commandSender, Color.GOLD + "Reset greeting timers.");
@@ -294,14 +273,10 @@ public class CommandMCA extends CommandBase
 
 				if (targetPlayer != null)
 				{
-					for (Object obj : player.world.loadedEntityList)
+					for (EntityVillagerMCA human : VillagerSpatialIndex.get(player.world).getAllVillagers())
 					{
-						if (obj instanceof EntityVillagerMCA)
-						{
-							EntityVillagerMCA human = (EntityVillagerMCA) obj;
-							PlayerMemory memory = human.attributes.getPlayerMemory(targetPlayer);
-							memory.setHearts(0);
-						}
+						PlayerMemory memory = human.attributes.getPlayerMemory(targetPlayer);
+						memory.setHearts(0);
 					}
 
 					sendMessage(commandSender, Color.GOLD + playerName + "'s hearts for all loaded villagers were reset.");
@@ -363,6 +338,86 @@ public class CommandMCA extends CommandBase
 				}
 			}
 			
+			else if (subcommand.equalsIgnoreCase("stats"))
+			{
+				for (WorldServer world : server.worlds)
+				{
+					int[] detailCounts = new int[EnumAIDetail.values().length];
+					int total = 0;
+
+					for (EntityVillagerMCA villager : VillagerSpatialIndex.get(world).getAllVillagers())
+					{
+						detailCounts[villager.getAIDetail().ordinal()]++;
+						total++;
+					}
+
+					if (total > 0)
+					{
+						StringBuilder sb = new StringBuilder();
+						sb.append(Color.GOLD + "Dimension " + world.provider.getDimension() + ": " + Color.WHITE + total + " villagers");
+
+						for (EnumAIDetail detail : EnumAIDetail.values())
+						{
+							sb.append(Color.GOLD + ", " + detail.getFriendlyName() + " AI: " + Color.WHITE + detailCounts[detail.ordinal()]);
+						}
+
+						sendMessage(commandSender, sb.toString());
+					}
+				}
+
+				sendMessage(commandSender, Color.GOLD + "AI ranges: full " + Color.WHITE + MCA.getConfig().aiFullDetailRange + Color.GOLD + ", reduced " + Color.WHITE + MCA.getConfig().aiReducedDetailRange + Color.GOLD + " (every " + MCA.getConfig().aiReducedDetailInterval + " ticks)");
+				sendMessage(commandSender, Color.GOLD + "Tick budget: " + Color.WHITE + MCA.getConfig().villagerTickBudget + "ms" + Color.GOLD + ", deferred updates: " + Color.WHITE + VillagerTickBudget.getDeferredCount());
+			}
+
+			else if (subcommand.equalsIgnoreCase("profile"))
+			{
+				if (arguments.length == 0)
+				{
+					throw new WrongUsageException(PROFILE_USAGE);
+				}
+
+				String action = arguments[0];
+
+				if (action.equalsIgnoreCase("start"))
+				{
+					ActionProfiler.start();
+					sendMessage(commandSender, Color.GOLD + "Villager action profiling started.");
+				}
+
+				else if (action.equalsIgnoreCase("stop"))
+				{
+					ActionProfiler.stop();
+					sendMessage(commandSender, Color.GOLD + "Villager action profiling stopped.");
+				}
+
+				else if (action.equalsIgnoreCase("dump"))
+				{
+					int topVillagers = arguments.length > 1 ? parseInt(arguments[1], 1) : 5;
+
+					for (String line : ActionProfiler.getSummary(topVillagers))
+					{
+						sendMessage(commandSender, Color.WHITE + line, true);
+					}
+
+					try
+					{
+						File file = ActionProfiler.writeCSV();
+						sendMessage(commandSender, Color.GOLD + "Profile written to " + file.getName() + ".");
+					}
+
+					catch (IOException e)
+					{
+						MCA.getLog().error("Unable to write villager action profile.", e);
+						sendMessage(commandSender, Color.RED + "Unable to write the profile to disk. See the server log for details.");
+					}
+				}
+
+				else
+				{
+					throw new WrongUsageException(PROFILE_USAGE);
+				}
+			}
+
 			else if (subcommand.equalsIgnoreCase("test"))
 			{
 				IngameTester.run(player);
@@ -370,7 +425,7 @@ public class CommandMCA extends CommandBase
 			
 			else
 			{
-				throw new WrongUsageException("");
+				throw new WrongUsageException(getUsage(commandSender));
 			}
 		}
 
@@ -379,6 +434,12 @@ public class CommandMCA extends CommandBase
 			throw new CommandException("MCA commands cannot be used through rcon.");
 		}
 
+		catch (CommandException e)
+		{
+			//Usage and number errors already describe the problem.
+			throw e;
+		}
+
 		catch (Exception e)
 		{
 			throw new CommandException("An invalid argument was provided. Usage: " + getUsage(commandSender));
@@ -424,6 +485,8 @@ public class CommandMCA extends CommandBase
 		sendMessage(commandSender, Color.WHITE + " /mca rgt " + Color.GOLD + " - Reset your greeting timers.", true);
 		sendMessage(commandSender, Color.WHITE + " /mca kgr " + Color.GOLD + " - Kill all Grim Reapers in the world.", true);
 		sendMessage(commandSender, Color.WHITE + " /mca dpd " + Color.GOLD + " - Dump player data for <username>.", true);
+		sendMessage(commandSender, Color.WHITE + " /mca stats " + Color.GOLD + " - Show villager counts by AI detail level.", true);
+		sendMessage(commandSender, Color.WHITE + " " + PROFILE_USAGE + " " + Color.GOLD + " - Time villager actions. Dump writes a CSV to the config folder.", true);
 		sendMessage(commandSender, Color.WHITE + " /mca cpd " + Color.GOLD + " - Convert old player data to the new format.", true);
 		
 		sendMessage(commandSender, Color.DARKRED + "--- " + Color.GOLD + "OP COMMANDS" + Color.DARKRED + " ---", true);
@@ -4,6 +4,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.netty.buffer.ByteBuf;
+import mca.network.PacketCodec;
 import net.minecraftforge.common.config.ConfigElement;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.fml.client.config.IConfigElement;
@@ -11,6 +13,9 @@ import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 
 public final class Config implements Serializable
 {
+	//Upper bound on the dimension whitelist and additional gifts accepted from a server.
+	private static final int MAX_LIST_LENGTH = 1024;
+
 	private transient final Configuration config;
 
 	public int baseItemId;
@@ -74,6 +79,13 @@ public final class Config implements Serializable
 	public boolean allowCrashReporting;
 	public boolean allowUpdateChecking;
 	public boolean showPlayerDataMigrationErrors;
+
+	public int aiFullDetailRange;
+	public int aiReducedDetailRange;
+	public int aiReducedDetailInterval;
+	public int villagerTickBudget;
+	public int chorePlannerThreads;
+	public int buildBlocksPerTick;
 	
 	public Config(FMLPreInitializationEvent event)
 	{
@@ -81,6 +93,12 @@ public final class Config implements Serializable
 		addConfigValues();
 	}
 
+	/** Only for configuration received from the server. */
+	private Config()
+	{
+		config = null;
+	}
+
 	private void addConfigValues()
 	{
 		config.setCategoryComment("Init", "Settings that affect how MCA starts up.");
@@ -194,12 +212,187 @@ public final class Config implements Serializable
 		allowVillagerRevival = config.get("Server", "Allow dead villagers to be revived?", true, "True if players can have the ability to revive villagers they are related to. Creates a file in [world name]/data/ that could become very large on big servers.").getBoolean();
 		showPlayerDataMigrationErrors = config.get("Server", "Show player data migration errors?", true, "If you're updating MCA on an existing world, some internal migrations of data must be performed. This can be error prone, but if you want to ignore these errors, set this to false - NOT RECOMMENDED! YOUR PLAYERS COULD LOSE PROGRESS!").getBoolean();
 		
+		config.setCategoryComment("Performance", "Settings that trade villager behavior detail for server performance.");
+		aiFullDetailRange = config.get("Performance", "Full AI range", 48, "Villagers within this many blocks of a player run all of their AI. Set to -1 to always run full AI.").getInt();
+		aiReducedDetailRange = config.get("Performance", "Reduced AI range", 96, "Villagers within this many blocks of a player, but outside the full AI range, run their AI less often. Villagers further away only regenerate, age, and progress their story. Chores are paused until a player comes back.").getInt();
+		aiReducedDetailInterval = config.get("Performance", "Reduced AI interval", 4, "How many ticks apart per-tick AI runs on villagers at reduced detail. Range (1 and above)").getInt();
+		villagerTickBudget = config.get("Performance", "Villager tick budget", 10, "Milliseconds per server tick that villagers may spend on behaviors like chores and story progression before the rest is postponed to the next tick. Combat is never postponed. Set to 0 or less for no limit.").getInt();
+		chorePlannerThreads = config.get("Performance", "Chore planner threads", 1, "Background threads used to find chore targets such as trees and crops. Set to 0 to search on the server thread.").getInt();
+		buildBlocksPerTick = config.get("Performance", "Build blocks per tick", 40, "Blocks that all villagers building farms and mines may place or clear in a single server tick, shared between them. Villagers wait for the next tick once it is used up. Set to -1 for no limit.").getInt();
+
 		//Additional gifts.
 		additionalGiftItems = config.get("Server", "Additional gifts", new String[]{"#<EXAMPLE> fermented_spider_eye|25", "#<EXAMPLE> poisonous_potato|12"}, "The names of the items/blocks that can be gifted in addition to the default items. Include hearts value preceded by |. 10 hearts points equals 1 heart.").getStringList();
 
 		config.save();
 	}
 
+	/** Writes every setting, for sending the server's configuration to a client. */
+	public void writeToByteBuf(ByteBuf buf)
+	{
+		PacketCodec.writeVarInt(buf, baseItemId);
+		PacketCodec.writeVarInt(buf, baseBlockId);
+		PacketCodec.writeVarInt(buf, baseEntityId);
+		buf.writeBoolean(disableWeddingRingRecipe);
+		buf.writeBoolean(overwriteOriginalVillagers);
+		buf.writeBoolean(allowMobAttacks);
+		buf.writeBoolean(shiftClickForPlayerMarriage);
+		buf.writeBoolean(giveCrystalBall);
+		buf.writeBoolean(enableDiminishingReturns);
+		buf.writeBoolean(enableInfection);
+		buf.writeBoolean(enableStructureSpawning);
+		buf.writeBoolean(serverEnableStructureSpawning);
+		buf.writeBoolean(allowVillagerRevival);
+
+		//Null when villagers spawn in all dimensions.
+		buf.writeBoolean(dimensionWhitelist != null);
+
+		if (dimensionWhitelist != null)
+		{
+			PacketCodec.writeVarInt(buf, dimensionWhitelist.length);
+
+			for (Integer dimension : dimensionWhitelist)
+			{
+				PacketCodec.writeVarInt(buf, dimension);
+			}
+		}
+
+		PacketCodec.writeVarInt(buf, additionalGiftItems.length);
+
+		for (String item : additionalGiftItems)
+		{
+			PacketCodec.writeString(buf, item);
+		}
+
+		PacketCodec.writeVarInt(buf, guardSpawnRate);
+		PacketCodec.writeVarInt(buf, chanceToHaveTwins);
+		PacketCodec.writeVarInt(buf, villagerMaxHealth);
+		PacketCodec.writeVarInt(buf, villagerAttackDamage);
+		PacketCodec.writeVarInt(buf, guardMaxHealth);
+		PacketCodec.writeVarInt(buf, guardAttackDamage);
+		buf.writeBoolean(storyProgression);
+		PacketCodec.writeVarInt(buf, storyProgressionThreshold);
+		PacketCodec.writeVarInt(buf, storyProgressionRate);
+		PacketCodec.writeVarInt(buf, marriageHeartsRequirement);
+		PacketCodec.writeVarInt(buf, tradeHeartsRequirement);
+		PacketCodec.writeVarInt(buf, hiringHeartsRequirement);
+		PacketCodec.writeVarInt(buf, roseGoldSpawnWeight);
+		PacketCodec.writeVarInt(buf, babyGrowUpTime);
+		PacketCodec.writeVarInt(buf, childGrowUpTime);
+		buf.writeBoolean(isAgingEnabled);
+		PacketCodec.writeVarInt(buf, childLimit);
+		PacketCodec.writeVarInt(buf, villagerSpawnerCap);
+		PacketCodec.writeVarInt(buf, storyProgressionCap);
+		buf.writeBoolean(allowFarmingChore);
+		buf.writeBoolean(allowFishingChore);
+		buf.writeBoolean(allowWoodcuttingChore);
+		buf.writeBoolean(allowMiningChore);
+		buf.writeBoolean(allowHuntingChore);
+		buf.writeBoolean(allowGiftDemands);
+		buf.writeBoolean(allowTrading);
+		buf.writeBoolean(logVillagerDeaths);
+		buf.writeBoolean(spawnInAllDimensions);
+		buf.writeBoolean(replenishEmptyVillages);
+		PacketCodec.writeString(buf, villagerChatPrefix);
+		buf.writeBoolean(showMoodParticles);
+		buf.writeBoolean(showNameTagOnHover);
+		buf.writeBoolean(showVillagerConversations);
+		buf.writeBoolean(modifyFemaleBody);
+		buf.writeBoolean(allowBlinking);
+		buf.writeBoolean(inTutorialMode);
+		buf.writeBoolean(allowCrashReporting);
+		buf.writeBoolean(allowUpdateChecking);
+		buf.writeBoolean(showPlayerDataMigrationErrors);
+		PacketCodec.writeVarInt(buf, aiFullDetailRange);
+		PacketCodec.writeVarInt(buf, aiReducedDetailRange);
+		PacketCodec.writeVarInt(buf, aiReducedDetailInterval);
+		PacketCodec.writeVarInt(buf, villagerTickBudget);
+		PacketCodec.writeVarInt(buf, chorePlannerThreads);
+		PacketCodec.writeVarInt(buf, buildBlocksPerTick);
+	}
+
+	/** Reads settings written by writeToByteBuf into a configuration that isn't backed by a file. */
+	public static Config readFromByteBuf(ByteBuf buf)
+	{
+		Config config = new Config();
+		config.baseItemId = PacketCodec.readVarInt(buf);
+		config.baseBlockId = PacketCodec.readVarInt(buf);
+		config.baseEntityId = PacketCodec.readVarInt(buf);
+		config.disableWeddingRingRecipe = buf.readBoolean();
+		config.overwriteOriginalVillagers = buf.readBoolean();
+		config.allowMobAttacks = buf.readBoolean();
+		config.shiftClickForPlayerMarriage = buf.readBoolean();
+		config.giveCrystalBall = buf.readBoolean();
+		config.enableDiminishingReturns = buf.readBoolean();
+		config.enableInfection = buf.readBoolean();
+		config.enableStructureSpawning = buf.readBoolean();
+		config.serverEnableStructureSpawning = buf.readBoolean();
+		config.allowVillagerRevival = buf.readBoolean();
+
+		if (buf.readBoolean())
+		{
+			config.dimensionWhitelist = new Integer[PacketCodec.readLength(buf, MAX_LIST_LENGTH)];
+
+			for (int i = 0; i < config.dimensionWhitelist.length; i++)
+			{
+				config.dimensionWhitelist[i] = PacketCodec.readVarInt(buf);
+			}
+		}
+
+		config.additionalGiftItems = new String[PacketCodec.readLength(buf, MAX_LIST_LENGTH)];
+
+		for (int i = 0; i < config.additionalGiftItems.length; i++)
+		{
+			config.additionalGiftItems[i] = PacketCodec.readString(buf);
+		}
+
+		config.guardSpawnRate = PacketCodec.readVarInt(buf);
+		config.chanceToHaveTwins = PacketCodec.readVarInt(buf);
+		config.villagerMaxHealth = PacketCodec.readVarInt(buf);
+		config.villagerAttackDamage = PacketCodec.readVarInt(buf);
+		config.guardMaxHealth = PacketCodec.readVarInt(buf);
+		config.guardAttackDamage = PacketCodec.readVarInt(buf);
+		config.storyProgression = buf.readBoolean();
+		config.storyProgressionThreshold = PacketCodec.readVarInt(buf);
+		config.storyProgressionRate = PacketCodec.readVarInt(buf);
+		config.marriageHeartsRequirement = PacketCodec.readVarInt(buf);
+		config.tradeHeartsRequirement = PacketCodec.readVarInt(buf);
+		config.hiringHeartsRequirement = PacketCodec.readVarInt(buf);
+		config.roseGoldSpawnWeight = PacketCodec.readVarInt(buf);
+		config.babyGrowUpTime = PacketCodec.readVarInt(buf);
+		config.childGrowUpTime = PacketCodec.readVarInt(buf);
+		config.isAgingEnabled = buf.readBoolean();
+		config.childLimit = PacketCodec.readVarInt(buf);
+		config.villagerSpawnerCap = PacketCodec.readVarInt(buf);
+		config.storyProgressionCap = PacketCodec.readVarInt(buf);
+		config.allowFarmingChore = buf.readBoolean();
+		config.allowFishingChore = buf.readBoolean();
+		config.allowWoodcuttingChore = buf.readBoolean();
+		config.allowMiningChore = buf.readBoolean();
+		config.allowHuntingChore = buf.readBoolean();
+		config.allowGiftDemands = buf.readBoolean();
+		config.allowTrading = buf.readBoolean();
+		config.logVillagerDeaths = buf.readBoolean();
+		config.spawnInAllDimensions = buf.readBoolean();
+		config.replenishEmptyVillages = buf.readBoolean();
+		config.villagerChatPrefix = PacketCodec.readString(buf);
+		config.showMoodParticles = buf.readBoolean();
+		config.showNameTagOnHover = buf.readBoolean();
+		config.showVillagerConversations = buf.readBoolean();
+		config.modifyFemaleBody = buf.readBoolean();
+		config.allowBlinking = buf.readBoolean();
+		config.inTutorialMode = buf.readBoolean();
+		config.allowCrashReporting = buf.readBoolean();
+		config.allowUpdateChecking = buf.readBoolean();
+		config.showPlayerDataMigrationErrors = buf.readBoolean();
+		config.aiFullDetailRange = PacketCodec.readVarInt(buf);
+		config.aiReducedDetailRange = PacketCodec.readVarInt(buf);
+		config.aiReducedDetailInterval = PacketCodec.readVarInt(buf);
+		config.villagerTickBudget = PacketCodec.readVarInt(buf);
+		config.chorePlannerThreads = PacketCodec.readVarInt(buf);
+		config.buildBlocksPerTick = PacketCodec.readVarInt(buf);
+		return config;
+	}
+
 	public void syncConfiguration()
 	{
 		config.load();
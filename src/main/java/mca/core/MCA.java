@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import org.apache.logging.log4j.Logger;
 
+import mca.actions.BuildScheduler;
 import mca.api.CookableFood;
 import mca.api.CropEntry;
 import mca.api.FishingEntry;
@@ -24,19 +25,28 @@ import mca.core.minecraft.BlocksMCA;
 import mca.core.minecraft.ItemsMCA;
 import mca.core.radix.CrashWatcher;
 import mca.core.radix.LanguageParser;
+import mca.data.FamilyGraph;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerDataCollection;
+import mca.data.PlayerDataSync;
+import mca.data.PlayerMemorySync;
+import mca.data.SavedDataWriter;
 import mca.entity.EntityChoreFishHook;
 import mca.entity.EntityGrimReaper;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
+import mca.entity.VillagerTickBudget;
 import mca.enums.EnumGender;
 import mca.enums.EnumProfession;
 import mca.network.PacketHandlerMCA;
 import mca.tile.TileMemorial;
 import mca.tile.TileTombstone;
 import mca.tile.TileVillagerBed;
+import mca.util.ChorePlanner;
 import mca.util.Either;
+import mca.util.SchematicCache;
 import mca.util.SkinLoader;
+import mca.util.TimingWheel;
 import net.minecraft.block.Block;
 import net.minecraft.creativetab.CreativeTabs;
 import net.minecraft.entity.Entity;
@@ -54,6 +64,7 @@ import net.minecraft.item.ItemFishFood;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
@@ -64,6 +75,7 @@ import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.registry.EntityRegistry;
@@ -96,6 +108,7 @@ public class MCA
 	private static Localizer localizer;
 	private static PacketHandlerMCA packetHandler;
 	private static CrashWatcher crashWatcher;
+	private static TimingWheel timingWheel = new TimingWheel();
 
 	private static Logger logger;
 
@@ -518,17 +531,38 @@ public class MCA
 		RegistryMCA.addWeddingGift(new WeddingGift(Blocks.IRON_BLOCK, 1, 8), EnumGiftCategory.BEST);
 		RegistryMCA.addWeddingGift(new WeddingGift(Blocks.OBSIDIAN, 4, 8), EnumGiftCategory.BEST);
 		RegistryMCA.addWeddingGift(new WeddingGift(Items.EMERALD, 4, 6), EnumGiftCategory.BEST);
+
+		SchematicCache.warm();
 	}
 
 	@EventHandler
 	public void serverStarting(FMLServerStartingEvent event)
 	{
 		event.registerServerCommand(new CommandMCA());
+		SavedDataWriter.reset();
 	}
 	
 	@EventHandler
 	public void serverStopping(FMLServerStoppingEvent event)
 	{
+		VillagerTickBudget.clear();
+		BuildScheduler.clear();
+		PlayerMemorySync.clear();
+		PlayerDataSync.clear();
+		timingWheel.clear();
+		ChorePlanner.clear();
+
+		//Finish writing MCA's data before the final world save, which then writes on the server thread.
+		PlayerDataCollection.save();
+		FamilyGraph.save();
+		SavedDataWriter.flush();
+	}
+
+	@EventHandler
+	public void serverStopped(FMLServerStoppedEvent event)
+	{
+		PlayerDataCollection.clear();
+		FamilyGraph.clear();
 	}
 
 	public static MCA getInstance()
@@ -536,6 +570,12 @@ public class MCA
 		return instance;
 	}
 
+	/** @returns The server's timing wheel, advanced once per server tick. */
+	public static TimingWheel getTimingWheel()
+	{
+		return timingWheel;
+	}
+
 	public static Logger getLog()
 	{
 		return logger;
@@ -658,16 +698,16 @@ public class MCA
 		return crashWatcher;
 	}
 
+	/** @returns The loaded entity with the given UUID, or null. This may be a player, so use VillagerSpatialIndex.getVillagerByUUID when a villager is expected. */
 	public static Entity getEntityByUUID(World world, UUID uuid) 
 	{
-		for (Entity entity : world.loadedEntityList)
+		final EntityVillagerMCA villager = VillagerSpatialIndex.getVillagerByUUID(world, uuid);
+
+		if (villager != null || world.isRemote)
 		{
-			if (entity.getUniqueID() == uuid)
-			{
-				return entity;
-			}
+			return villager;
 		}
-		
-		return null;
+
+		return ((WorldServer) world).getEntityFromUuid(uuid);
 	}
 }
@@ -3,19 +3,24 @@ package mca.core.forge;
 import java.util.ArrayList;
 import java.util.List;
 
+import mca.actions.BuildScheduler;
 import mca.core.Constants;
 import mca.core.MCA;
 import mca.core.minecraft.ItemsMCA;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerDataCollection;
+import mca.data.PlayerDataSync;
+import mca.data.PlayerMemorySync;
 import mca.entity.EntityGrimReaper;
 import mca.entity.EntityVillagerMCA;
-import mca.enums.EnumBabyState;
+import mca.entity.VillagerSpatialIndex;
+import mca.entity.VillagerTickBudget;
 import mca.enums.EnumProfession;
-import mca.enums.EnumProfessionSkinGroup;
 import mca.packets.PacketPlayerDataLogin;
 import mca.packets.PacketSpawnLightning;
 import mca.packets.PacketSyncConfig;
+import mca.util.ChorePlanner;
+import mca.util.SchematicCache;
 import mca.util.Utilities;
 import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.entity.ai.RandomPositionGenerator;
@@ -34,6 +39,7 @@ import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent.ItemCraftedEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedInEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ClientTickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.relauncher.Side;
@@ -42,7 +48,6 @@ import radixcore.constant.Time;
 import radixcore.math.Point3D;
 import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
-import radixcore.modules.schematics.RadixSchematics;
 
 public class EventHooksFML 
 {
@@ -162,7 +167,7 @@ public class EventHooksFML
 
 			if (MCA.destinySpawnFlag)
 			{
-				RadixSchematics.spawnStructureRelativeToPoint("/assets/mca/schematic/destiny-test.schematic", MCA.destinyCenterPoint, mc.world);
+				SchematicCache.get("/assets/mca/schematic/destiny-test.schematic").placeAt(mc.world, MCA.destinyCenterPoint);
 			}
 		}
 
@@ -175,6 +180,20 @@ public class EventHooksFML
 	@SubscribeEvent
 	public void serverTickEventHandler(ServerTickEvent event)
 	{
+		if (event.phase == Phase.START)
+		{
+			MCA.getTimingWheel().tick();
+			VillagerTickBudget.beginTick();
+			BuildScheduler.beginTick();
+			ChorePlanner.processFinishedPlans();
+		}
+
+		else
+		{
+			PlayerMemorySync.flush();
+			PlayerDataSync.flush();
+		}
+
 		MCA.getPacketHandler().processPackets(Side.SERVER);
 
 		// This block prevents the long-standing issue of crashing while using a world that previously contained villagers.
@@ -256,13 +275,7 @@ public class EventHooksFML
 
 			for (World world : FMLCommonHandler.instance().getMinecraftServerInstance().worlds)
 			{
-				for (Object obj : world.loadedEntityList)
-				{
-					if (obj instanceof EntityVillagerMCA)
-					{
-						humans.add((EntityVillagerMCA)obj);
-					}
-				}
+				humans.addAll(VillagerSpatialIndex.get(world).getAllVillagers());
 			}
 
 			if (!humans.isEmpty())
@@ -273,9 +286,9 @@ public class EventHooksFML
 					EntityVillagerMCA human = humans.get(RadixMath.getNumberInRange(0, humans.size() - 1));
 
 					//Don't count guards in the total count of villagers.
-					List<EntityVillagerMCA> villagersAroundMe = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, human, 50);
-					int numberOfGuardsAroundMe = getNumberOfGuardsFromEntityList(villagersAroundMe);
-					int numberOfVillagersAroundMe = villagersAroundMe.size() - numberOfGuardsAroundMe; 
+					VillagerSpatialIndex.Census censusAroundMe = VillagerSpatialIndex.get(human.world).getCensus(human.posX, human.posZ, 50, null);
+					int numberOfGuardsAroundMe = censusAroundMe.getGuards();
+					int numberOfVillagersAroundMe = censusAroundMe.getPopulation() - numberOfGuardsAroundMe;
 					int neededNumberOfGuards = numberOfVillagersAroundMe / MCA.getConfig().guardSpawnRate;
 
 					if (numberOfGuardsAroundMe < neededNumberOfGuards)
@@ -316,27 +329,13 @@ public class EventHooksFML
 					Village village = (Village)obj;
 
 					int populationCapacity = village.getNumVillageDoors();
-					int population = 0;
 					double posX = village.getCenter().getX();
 					double posY = village.getCenter().getY();
 					double posZ = village.getCenter().getZ();
 
-					for (EntityVillagerMCA entity : RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, world, posX, posY, posZ, village.getVillageRadius()))
-					{
-						EntityVillagerMCA human = (EntityVillagerMCA) entity;
-
-						//Count everyone except guards
-						if (human.attributes.getProfessionSkinGroup() != EnumProfessionSkinGroup.Guard)
-						{
-							population++;
-						}
-
-						//Count babies with the villager population.
-						if (human.attributes.getBabyState() != EnumBabyState.NONE)
-						{
-							population++;
-						}
-					}
+					//Count everyone except guards, and count babies with the villager population.
+					VillagerSpatialIndex.Census census = VillagerSpatialIndex.get(world).getCensus(posX, posZ, village.getVillageRadius(), null);
+					int population = census.getPopulation() - census.getGuards() + census.getVillagersWithBabies();
 
 					//If the village can support more villagers, spawn.
 					int tries = 0;
@@ -409,19 +408,4 @@ public class EventHooksFML
 		summonPos = point;
 		summonCounter = Time.SECOND * 6;
 	}
-
-	private int getNumberOfGuardsFromEntityList(List<EntityVillagerMCA> entityList) 
-	{
-		int returnValue = 0;
-
-		for (EntityVillagerMCA entity : entityList)
-		{
-			if (entity.attributes.getProfessionSkinGroup() == EnumProfessionSkinGroup.Guard)
-			{
-				returnValue++;
-			}
-		}
-
-		return returnValue;
-	}
 }
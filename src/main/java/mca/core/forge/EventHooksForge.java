@@ -9,12 +9,18 @@ import com.google.common.base.Predicate;
 import mca.actions.ActionCombat;
 import mca.core.Constants;
 import mca.core.MCA;
+import mca.data.FamilyGraph;
+import mca.data.PlayerDataCollection;
 import mca.data.PlayerMemory;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumCombatBehaviors;
 import mca.enums.EnumProfession;
 import mca.items.ItemBaby;
 import mca.packets.PacketInteractWithPlayerC;
+import mca.util.BlockChangeListener;
+import mca.util.ChorePlanner;
+import mca.util.PointOfInterestIndex;
 import mca.util.TutorialManager;
 import mca.util.Utilities;
 import net.minecraft.block.Block;
@@ -38,15 +44,19 @@ import net.minecraft.init.Blocks;
 import net.minecraft.init.SoundEvents;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.EnumParticleTypes;
+import net.minecraft.util.ClassInheritanceMultiMap;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraftforge.client.event.RenderGameOverlayEvent;
 import net.minecraftforge.common.util.FakePlayer;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.living.LivingAttackEvent;
 import net.minecraftforge.event.entity.living.LivingSetAttackTargetEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent.StartTracking;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent.EntityInteract;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent.RightClickBlock;
+import net.minecraftforge.event.world.BlockEvent.NeighborNotifyEvent;
 import net.minecraftforge.event.world.BlockEvent.PlaceEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
@@ -68,6 +78,11 @@ public class EventHooksForge
 				doAddMobTasks((EntityMob) event.getEntity());
 			}
 
+			if (event.getEntity() instanceof EntityVillagerMCA)
+			{
+				VillagerSpatialIndex.get(event.getWorld()).update((EntityVillagerMCA) event.getEntity());
+			}
+
 			if (event.getEntity().getClass() == EntityVillager.class && MCA.getConfig().overwriteOriginalVillagers)
 			{
 				EntityVillager villager = (EntityVillager)event.getEntity();
@@ -223,15 +238,81 @@ public class EventHooksForge
 		}
 	}
 
+	@SubscribeEvent
+	public void chunkUnloadEventHandler(ChunkEvent.Unload event)
+	{
+		if (!event.getWorld().isRemote)
+		{
+			VillagerSpatialIndex index = VillagerSpatialIndex.get(event.getWorld());
+
+			for (ClassInheritanceMultiMap<Entity> entityList : event.getChunk().getEntityLists())
+			{
+				for (EntityVillagerMCA villager : entityList.getByClass(EntityVillagerMCA.class))
+				{
+					index.remove(villager);
+				}
+			}
+
+			PointOfInterestIndex.onChunkUnload(event.getWorld(), event.getChunk().xPosition, event.getChunk().zPosition);
+		}
+	}
+
+	@SubscribeEvent
+	public void neighborNotifyEventHandler(NeighborNotifyEvent event)
+	{
+		//Only fired for changes that notify neighbors. The BlockChangeListener hears the rest.
+		if (!event.getWorld().isRemote)
+		{
+			PointOfInterestIndex.onBlockChanged(event.getWorld(), event.getPos(), event.getState());
+			ChorePlanner.onBlockChanged(event.getWorld(), event.getPos());
+		}
+	}
+
+	@SubscribeEvent
+	public void worldLoadEventHandler(WorldEvent.Load event)
+	{
+		if (!event.getWorld().isRemote)
+		{
+			BlockChangeListener.register(event.getWorld());
+		}
+	}
+
 	@SubscribeEvent
 	public void worldSaveEventHandler(WorldEvent.Unload event)
 	{
+		if (!event.getWorld().isRemote)
+		{
+			VillagerSpatialIndex.remove(event.getWorld());
+			PointOfInterestIndex.remove(event.getWorld());
+		}
+
 		if (!event.getWorld().isRemote && event.getWorld().provider.getDimension() == 0)
 		{
 			MCA.getCrashWatcher().checkForCrashReports();
 		}
 	}
 
+	@SubscribeEvent
+	public void onWorldSave(WorldEvent.Save event)
+	{
+		//MCA's data is kept with the overworld, and written off the server thread.
+		if (!event.getWorld().isRemote && event.getWorld().provider.getDimension() == 0)
+		{
+			PlayerDataCollection.save();
+			FamilyGraph.save();
+		}
+	}
+
+	@SubscribeEvent
+	public void startTrackingEventHandler(StartTracking event)
+	{
+		if (event.getTarget() instanceof EntityVillagerMCA && event.getEntityPlayer() instanceof EntityPlayerMP)
+		{
+			EntityVillagerMCA villager = (EntityVillagerMCA) event.getTarget();
+			villager.attributes.sendPlayerMemory((EntityPlayerMP) event.getEntityPlayer());
+		}
+	}
+
 	@SubscribeEvent
 	public void rightClickBlockEventHandler(RightClickBlock event)
 	{
@@ -245,7 +326,8 @@ public class EventHooksForge
 	public void onLivingAttack(LivingAttackEvent event)
 	{
 		//Not interested in fake players due to the inability to generate player data for them.
-		if (event.getEntityLiving() instanceof FakePlayer)
+		//Warriors only react on the server, where villagers are indexed.
+		if (event.getEntityLiving() instanceof FakePlayer || event.getEntityLiving().world.isRemote)
 		{
 			return;
 		}
@@ -253,7 +335,7 @@ public class EventHooksForge
 		//Handle warrior triggers on player taking damage.		
 		if (event.getEntityLiving() instanceof EntityPlayer && event.getSource().getEntity() instanceof EntityLivingBase)
 		{
-			List<EntityVillagerMCA> entityList = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, event.getEntityLiving(), 15);
+			List<EntityVillagerMCA> entityList = VillagerSpatialIndex.get(event.getEntityLiving().world).getVillagersWithinDistance(event.getEntityLiving(), 15);
 
 			for (Entity entity : entityList)
 			{
@@ -273,7 +355,7 @@ public class EventHooksForge
 		//Handle warrior triggers on player dealing damage.
 		else if (event.getSource().getEntity() instanceof EntityPlayer && event.getEntityLiving() != null)
 		{
-			List<EntityVillagerMCA> entityList = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, event.getSource().getEntity(), 15);
+			List<EntityVillagerMCA> entityList = VillagerSpatialIndex.get(event.getSource().getEntity().world).getVillagersWithinDistance(event.getSource().getEntity(), 15);
 
 			for (Entity entity : entityList)
 			{
@@ -0,0 +1,388 @@
+package mca.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import mca.core.Constants;
+import mca.core.MCA;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldSavedData;
+import net.minecraftforge.common.util.Constants.NBT;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * Parents, spouses and children of every villager and player, keyed by UUID and saved with the world. Kept up to
+ * date as marriages start and end, parents are assigned and villagers die, so relatives can be found without the
+ * villagers involved being loaded. Written in the background by the SavedDataWriter when the overworld saves.
+ */
+public class FamilyGraph extends WorldSavedData
+{
+	private static final String ID = "MinecraftComesAlive-Family";
+
+	private static FamilyGraph instance;
+	private static World instanceWorld;
+
+	private final Map<UUID, Node> nodes = new HashMap<UUID, Node>();
+
+	public static FamilyGraph get()
+	{
+		World world = FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld();
+
+		if (instance == null || instanceWorld != world)
+		{
+			instance = SavedDataWriter.load(world, FamilyGraph.class, ID);
+			instanceWorld = world;
+
+			if (instance == null)
+			{
+				instance = new FamilyGraph();
+			}
+		}
+
+		return instance;
+	}
+
+	/** Queues the graph to be written if it has changed. */
+	public static void save()
+	{
+		if (instance != null)
+		{
+			SavedDataWriter.save(instanceWorld, instance);
+		}
+	}
+
+	/** Drops the cached graph once the server has stopped and made its final save. */
+	public static void clear()
+	{
+		instance = null;
+		instanceWorld = null;
+	}
+
+	public FamilyGraph()
+	{
+		this(ID);
+	}
+
+	public FamilyGraph(String id)
+	{
+		super(id);
+	}
+
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+	{
+		NBTTagList list = new NBTTagList();
+
+		//Children are rebuilt from the parent links when reading.
+		for (Map.Entry<UUID, Node> entry : nodes.entrySet())
+		{
+			Node node = entry.getValue();
+
+			if (node.mother == null && node.father == null && node.spouse == null)
+			{
+				continue;
+			}
+
+			NBTTagCompound nodeTag = new NBTTagCompound();
+			nodeTag.setUniqueId("id", entry.getKey());
+			writeUUID(nodeTag, "mother", node.mother);
+			writeUUID(nodeTag, "father", node.father);
+			writeUUID(nodeTag, "spouse", node.spouse);
+			list.appendTag(nodeTag);
+		}
+
+		nbt.setTag("nodes", list);
+		return nbt;
+	}
+
+	@Override
+	public void readFromNBT(NBTTagCompound nbt)
+	{
+		NBTTagList list = nbt.getTagList("nodes", NBT.TAG_COMPOUND);
+		nodes.clear();
+
+		for (int i = 0; i < list.tagCount(); i++)
+		{
+			NBTTagCompound nodeTag = list.getCompoundTagAt(i);
+			UUID uuid = nodeTag.getUniqueId("id");
+
+			if (isEmpty(uuid))
+			{
+				MCA.getLog().error("Skipping family graph entry without an ID. Family information may be incomplete.");
+				continue;
+			}
+
+			setParent(uuid, readUUID(nodeTag, "mother"), true);
+			setParent(uuid, readUUID(nodeTag, "father"), false);
+
+			UUID spouse = readUUID(nodeTag, "spouse");
+
+			if (spouse != null)
+			{
+				getOrCreateNode(uuid).spouse = spouse;
+			}
+		}
+	}
+
+	/** Records the villager or player's mother. An empty or null UUID clears it. */
+	public void setMother(UUID child, UUID mother)
+	{
+		if (setParent(child, mother, true))
+		{
+			markDirty();
+		}
+	}
+
+	/** Records the villager or player's father. An empty or null UUID clears it. */
+	public void setFather(UUID child, UUID father)
+	{
+		if (setParent(child, father, false))
+		{
+			markDirty();
+		}
+	}
+
+	/** Links the two as spouses, ending any marriage either of them was already in. */
+	public void setSpouses(UUID first, UUID second)
+	{
+		clearSpouse(first);
+		clearSpouse(second);
+		getOrCreateNode(first).spouse = second;
+		getOrCreateNode(second).spouse = first;
+		markDirty();
+	}
+
+	/** Ends the marriage of the villager or player, on both sides. */
+	public void clearSpouse(UUID uuid)
+	{
+		Node node = nodes.get(uuid);
+
+		if (node == null || node.spouse == null)
+		{
+			return;
+		}
+
+		Node spouseNode = nodes.get(node.spouse);
+
+		if (spouseNode != null && uuid.equals(spouseNode.spouse))
+		{
+			spouseNode.spouse = null;
+			removeIfUnused(node.spouse, spouseNode);
+		}
+
+		node.spouse = null;
+		removeIfUnused(uuid, node);
+		markDirty();
+	}
+
+	/**
+	 * Brings the graph in line with what a villager has saved, picking up families that were formed before the
+	 * graph existed or changed while it wasn't saved.
+	 */
+	public void update(UUID uuid, UUID mother, UUID father, UUID spouse)
+	{
+		boolean changed = setParent(uuid, mother, true);
+		changed |= setParent(uuid, father, false);
+
+		Node node = nodes.get(uuid);
+		UUID currentSpouse = node != null ? node.spouse : null;
+		spouse = isEmpty(spouse) ? null : spouse;
+
+		if (spouse == null ? currentSpouse != null : !spouse.equals(currentSpouse))
+		{
+			if (spouse == null)
+			{
+				clearSpouse(uuid);
+			}
+
+			else
+			{
+				setSpouses(uuid, spouse);
+			}
+		}
+
+		else if (changed)
+		{
+			markDirty();
+		}
+	}
+
+	/**
+	 * Removes a villager that has died. Its spouse is left unmarried and its parents lose it as a child, but its
+	 * children still remember it as their parent.
+	 */
+	public void onDeath(UUID uuid)
+	{
+		Node node = nodes.get(uuid);
+
+		if (node == null)
+		{
+			return;
+		}
+
+		clearSpouse(uuid);
+		setParent(uuid, null, true);
+		setParent(uuid, null, false);
+		markDirty();
+	}
+
+	/** @returns The UUID of the spouse of the villager or player, or null if they are not married. */
+	public UUID getSpouse(UUID uuid)
+	{
+		Node node = nodes.get(uuid);
+		return node != null ? node.spouse : null;
+	}
+
+	/** @returns The UUIDs of the villager or player's known parents, mother first. */
+	public List<UUID> getParents(UUID uuid)
+	{
+		List<UUID> parents = new ArrayList<UUID>(2);
+		Node node = nodes.get(uuid);
+
+		if (node != null)
+		{
+			if (node.mother != null)
+			{
+				parents.add(node.mother);
+			}
+
+			if (node.father != null)
+			{
+				parents.add(node.father);
+			}
+		}
+
+		return parents;
+	}
+
+	/** @returns The UUIDs of the villager or player's children. */
+	public Set<UUID> getChildren(UUID uuid)
+	{
+		Node node = nodes.get(uuid);
+		return node != null && node.children != null ? new HashSet<UUID>(node.children) : new HashSet<UUID>();
+	}
+
+	/** @returns The UUIDs of the player's children and spouse. */
+	public Set<UUID> getRelatives(UUID uuid)
+	{
+		Set<UUID> relatives = getChildren(uuid);
+		UUID spouse = getSpouse(uuid);
+
+		if (spouse != null)
+		{
+			relatives.add(spouse);
+		}
+
+		return relatives;
+	}
+
+	/** @returns True if the parent link changed. */
+	private boolean setParent(UUID child, UUID parent, boolean isMother)
+	{
+		parent = isEmpty(parent) ? null : parent;
+		Node node = nodes.get(child);
+		UUID current = node != null ? (isMother ? node.mother : node.father) : null;
+
+		if (parent == null ? current == null : parent.equals(current))
+		{
+			return false;
+		}
+
+		if (current != null)
+		{
+			Node currentNode = nodes.get(current);
+
+			//Both parents may be the same entity, such as a player who was both mother and father.
+			if (currentNode != null && currentNode.children != null && !current.equals(isMother ? node.father : node.mother))
+			{
+				currentNode.children.remove(child);
+				removeIfUnused(current, currentNode);
+			}
+		}
+
+		if (node == null)
+		{
+			node = getOrCreateNode(child);
+		}
+
+		if (isMother)
+		{
+			node.mother = parent;
+		}
+
+		else
+		{
+			node.father = parent;
+		}
+
+		if (parent != null)
+		{
+			Node parentNode = getOrCreateNode(parent);
+
+			if (parentNode.children == null)
+			{
+				parentNode.children = new HashSet<UUID>();
+			}
+
+			parentNode.children.add(child);
+		}
+
+		removeIfUnused(child, node);
+		return true;
+	}
+
+	private Node getOrCreateNode(UUID uuid)
+	{
+		Node node = nodes.get(uuid);
+
+		if (node == null)
+		{
+			node = new Node();
+			nodes.put(uuid, node);
+		}
+
+		return node;
+	}
+
+	private void removeIfUnused(UUID uuid, Node node)
+	{
+		if (node.mother == null && node.father == null && node.spouse == null && (node.children == null || node.children.isEmpty()))
+		{
+			nodes.remove(uuid);
+		}
+	}
+
+	private static boolean isEmpty(UUID uuid)
+	{
+		return uuid == null || uuid.equals(Constants.EMPTY_UUID);
+	}
+
+	private static void writeUUID(NBTTagCompound nbt, String key, UUID uuid)
+	{
+		if (uuid != null)
+		{
+			nbt.setUniqueId(key, uuid);
+		}
+	}
+
+	private static UUID readUUID(NBTTagCompound nbt, String key)
+	{
+		return nbt.hasUniqueId(key) ? nbt.getUniqueId(key) : null;
+	}
+
+	/** One villager or player's links. Children are only allocated for those who have any. */
+	private static final class Node
+	{
+		private UUID mother;
+		private UUID father;
+		private UUID spouse;
+		private Set<UUID> children;
+	}
+}
@@ -5,51 +5,75 @@ import java.util.UUID;
 
 import javax.annotation.Nullable;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
 import mca.core.Constants;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
 import mca.enums.EnumGender;
 import mca.enums.EnumMarriageState;
-import mca.packets.PacketPlayerDataC;
+import mca.network.PacketCodec;
 import mca.packets.PacketPlayerDataS;
 import mca.util.Either;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.world.WorldServer;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 
 public final class NBTPlayerData implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
+	//Player and spouse names are the only strings, and villager names are the longest of those.
+	private static final int MAX_NAME_LENGTH = 64;
+
+	//Bits of the flags byte written to a ByteBuf.
+	private static final int FLAG_OWNS_BABY = 1;
+	private static final int FLAG_IS_NOBILITY = 2;
+	private static final int FLAG_HAS_CHOSEN_DESTINY = 4;
+	private static final int FLAG_IS_SUPER_USER = 8;
+	private static final int FLAG_HAPPINESS_THRESHOLD_MET = 16;
+	private static final int FLAG_HAS_UUID = 32;
+	private static final int FLAG_HAS_SPOUSE_UUID = 64;
+
+	//Field IDs are bit positions in a mask of changed fields, and indices of the values that go with it.
+	private static final int FIELD_ID_LIMIT = 32;
+	private static final int ALL_FIELDS = getAllFieldBits();
+
 	public enum FieldID
 	{
-		UUID(1),
-		MCA_NAME(2),
-		GENDER(3),
-		GENDER_PREFERENCE(4),
-		SPOUSE_NAME(5),
-		SPOUSE_UUID(6),
-		SPOUSE_GENDER(7),
-		MARRIAGE_STATE(8),
-		OWNS_BABY(9),
-		IS_NOBILITY(10),
-		HAS_CHOSEN_DESTINY(11),
-		IS_SUPER_USER(12),
-		HAPPINESS_THRESHOLD_MET(13);
+		UUID(1, TypeID.UUID),
+		MCA_NAME(2, TypeID.STRING),
+		GENDER(3, TypeID.INT),
+		GENDER_PREFERENCE(4, TypeID.INT),
+		SPOUSE_NAME(5, TypeID.STRING),
+		SPOUSE_UUID(6, TypeID.UUID),
+		SPOUSE_GENDER(7, TypeID.INT),
+		MARRIAGE_STATE(8, TypeID.INT),
+		OWNS_BABY(9, TypeID.BOOLEAN),
+		IS_NOBILITY(10, TypeID.BOOLEAN),
+		HAS_CHOSEN_DESTINY(11, TypeID.BOOLEAN),
+		IS_SUPER_USER(12, TypeID.BOOLEAN),
+		HAPPINESS_THRESHOLD_MET(13, TypeID.BOOLEAN);
 		
 		private int id;
+		private TypeID typeId;
 		
-		FieldID(int id)
+		FieldID(int id, TypeID typeId)
 		{
 			this.id = id;
+			this.typeId = typeId;
 		}
 		
 		public int getId()
 		{
 			return id;
 		}
+
+		/** @returns The type of value the field holds. */
+		public TypeID getTypeId()
+		{
+			return typeId;
+		}
 		
 		public static FieldID fromId(int id)
 		{
@@ -122,6 +146,75 @@ public final class NBTPlayerData implements Serializable
 			
 			return instance;
 		}
+
+		/** Writes the field's ID and value. The type is implied by the field. */
+		public void writeToByteBuf(ByteBuf buf)
+		{
+			PacketCodec.writeVarInt(buf, fieldId.getId());
+			writeFieldValue(buf, fieldId, value);
+		}
+
+		public static FieldUpdateObj readFromByteBuf(ByteBuf buf)
+		{
+			final int id = PacketCodec.readVarInt(buf);
+			final FieldID fieldId = FieldID.fromId(id);
+
+			if (fieldId == null)
+			{
+				throw new DecoderException("Unknown player data field " + id + ".");
+			}
+
+			return get(fieldId, fieldId.getTypeId(), readFieldValue(buf, fieldId));
+		}
+	}
+
+	/** The fields of one player's data that changed during a tick, sent to their client together. */
+	public static final class FieldChanges
+	{
+		private final int fields;
+		private final Object[] values;
+
+		private FieldChanges(int fields, Object[] values)
+		{
+			this.fields = fields;
+			this.values = values;
+		}
+
+		/** Writes the changed fields as a mask of their IDs, followed by their values in order of ID. */
+		public void writeToByteBuf(ByteBuf buf)
+		{
+			PacketCodec.writeVarInt(buf, fields);
+
+			for (FieldID field : FieldID.values())
+			{
+				if ((fields & getFieldBit(field)) != 0)
+				{
+					writeFieldValue(buf, field, values[field.getId()]);
+				}
+			}
+		}
+
+		public static FieldChanges readFromByteBuf(ByteBuf buf)
+		{
+			final int fields = PacketCodec.readVarInt(buf);
+			final Object[] values = new Object[FIELD_ID_LIMIT];
+
+			//Values of unknown fields can't be skipped, as their types aren't known.
+			if ((fields & ~ALL_FIELDS) != 0)
+			{
+				throw new DecoderException("Unknown player data fields in " + Integer.toBinaryString(fields) + ".");
+			}
+
+			for (FieldID field : FieldID.values())
+			{
+				if ((fields & getFieldBit(field)) != 0)
+				{
+					values[field.getId()] = readFieldValue(buf, field);
+				}
+			}
+
+			return new FieldChanges(fields, values);
+		}
 	}
 	
 	private UUID uuid;
@@ -139,6 +232,10 @@ public final class NBTPlayerData implements Serializable
 	private boolean happinessThresholdMet;
 	
 	public boolean ignoreBroadcast;
+
+	//The UUID this data is kept under, and the fields changed since they were last sent to that player. Server side only.
+	private transient UUID owner;
+	private transient int changedFields;
 	
 	public NBTPlayerData()
 	{
@@ -176,6 +273,55 @@ public final class NBTPlayerData implements Serializable
 		happinessThresholdMet = nbt.getBoolean("happinessThresholdMet");
 	}
 	
+	/** Writes this data for sending to the client, such as on login. Names and UUIDs may not have been set yet. */
+	public void writeToByteBuf(ByteBuf buf)
+	{
+		int flags = (ownsBaby ? FLAG_OWNS_BABY : 0) | (isNobility ? FLAG_IS_NOBILITY : 0) | (hasChosenDestiny ? FLAG_HAS_CHOSEN_DESTINY : 0)
+				| (isSuperUser ? FLAG_IS_SUPER_USER : 0) | (happinessThresholdMet ? FLAG_HAPPINESS_THRESHOLD_MET : 0)
+				| (uuid != null ? FLAG_HAS_UUID : 0) | (spouseUUID != null ? FLAG_HAS_SPOUSE_UUID : 0);
+
+		buf.writeByte(flags);
+
+		if (uuid != null)
+		{
+			PacketCodec.writeUUID(buf, uuid);
+		}
+
+		if (spouseUUID != null)
+		{
+			PacketCodec.writeUUID(buf, spouseUUID);
+		}
+
+		PacketCodec.writeString(buf, mcaName);
+		PacketCodec.writeString(buf, spouseName);
+		PacketCodec.writeVarInt(buf, gender);
+		PacketCodec.writeVarInt(buf, genderPreference);
+		PacketCodec.writeVarInt(buf, spouseGender);
+		PacketCodec.writeVarInt(buf, marriageState);
+	}
+
+	/** Reads data written by writeToByteBuf. */
+	public static NBTPlayerData readFromByteBuf(ByteBuf buf)
+	{
+		NBTPlayerData data = new NBTPlayerData();
+		int flags = buf.readUnsignedByte();
+
+		data.uuid = (flags & FLAG_HAS_UUID) != 0 ? PacketCodec.readUUID(buf) : null;
+		data.spouseUUID = (flags & FLAG_HAS_SPOUSE_UUID) != 0 ? PacketCodec.readUUID(buf) : null;
+		data.mcaName = PacketCodec.readString(buf, MAX_NAME_LENGTH);
+		data.spouseName = PacketCodec.readString(buf, MAX_NAME_LENGTH);
+		data.gender = PacketCodec.readVarInt(buf);
+		data.genderPreference = PacketCodec.readVarInt(buf);
+		data.spouseGender = PacketCodec.readVarInt(buf);
+		data.marriageState = PacketCodec.readVarInt(buf);
+		data.ownsBaby = (flags & FLAG_OWNS_BABY) != 0;
+		data.isNobility = (flags & FLAG_IS_NOBILITY) != 0;
+		data.hasChosenDestiny = (flags & FLAG_HAS_CHOSEN_DESTINY) != 0;
+		data.isSuperUser = (flags & FLAG_IS_SUPER_USER) != 0;
+		data.happinessThresholdMet = (flags & FLAG_HAPPINESS_THRESHOLD_MET) != 0;
+		return data;
+	}
+
 	public UUID getUUID() 
 	{
 		return uuid;
@@ -361,6 +507,105 @@ public final class NBTPlayerData implements Serializable
 		broadcastValueChange(FieldUpdateObj.get(FieldID.HAPPINESS_THRESHOLD_MET, TypeID.BOOLEAN, value));
 	}
 	
+	/*package-private*/ void setOwner(UUID owner)
+	{
+		this.owner = owner;
+	}
+
+	/*package-private*/ UUID getOwner()
+	{
+		return owner;
+	}
+
+	/** @returns The fields changed since the last call and their current values, and forgets them. */
+	/*package-private*/ FieldChanges takeFieldChanges()
+	{
+		Object[] values = new Object[FIELD_ID_LIMIT];
+
+		for (FieldID field : FieldID.values())
+		{
+			if ((changedFields & getFieldBit(field)) != 0)
+			{
+				values[field.getId()] = getFieldValue(field);
+			}
+		}
+
+		FieldChanges changes = new FieldChanges(changedFields, values);
+		changedFields = 0;
+		return changes;
+	}
+
+	/** Sets every field received from the server, without sending them back. */
+	public void applyFieldChanges(FieldChanges changes)
+	{
+		for (FieldID field : FieldID.values())
+		{
+			if ((changes.fields & getFieldBit(field)) != 0)
+			{
+				setByFieldUpdateObj(FieldUpdateObj.get(field, field.getTypeId(), changes.values[field.getId()]));
+			}
+		}
+	}
+
+	private Object getFieldValue(FieldID field)
+	{
+		switch (field)
+		{
+		case UUID: return uuid;
+		case MCA_NAME: return mcaName;
+		case GENDER: return gender;
+		case GENDER_PREFERENCE: return genderPreference;
+		case SPOUSE_NAME: return spouseName;
+		case SPOUSE_UUID: return spouseUUID;
+		case SPOUSE_GENDER: return spouseGender;
+		case MARRIAGE_STATE: return marriageState;
+		case OWNS_BABY: return ownsBaby;
+		case IS_NOBILITY: return isNobility;
+		case HAS_CHOSEN_DESTINY: return hasChosenDestiny;
+		case IS_SUPER_USER: return isSuperUser;
+		default: return happinessThresholdMet;
+		}
+	}
+
+	private static int getFieldBit(FieldID field)
+	{
+		return 1 << field.getId();
+	}
+
+	private static int getAllFieldBits()
+	{
+		int bits = 0;
+
+		for (FieldID field : FieldID.values())
+		{
+			bits |= getFieldBit(field);
+		}
+
+		return bits;
+	}
+
+	private static void writeFieldValue(ByteBuf buf, FieldID field, Object value)
+	{
+		switch (field.getTypeId())
+		{
+		case STRING: PacketCodec.writeString(buf, (String) value); break;
+		case BOOLEAN: buf.writeBoolean((Boolean) value); break;
+		case INT: PacketCodec.writeVarInt(buf, (Integer) value); break;
+		case UUID: PacketCodec.writeUUID(buf, (UUID) value); break;
+		}
+	}
+
+	private static Object readFieldValue(ByteBuf buf, FieldID field)
+	{
+		switch (field.getTypeId())
+		{
+		case STRING: return PacketCodec.readString(buf, MAX_NAME_LENGTH);
+		case BOOLEAN: return buf.readBoolean();
+		case INT: return PacketCodec.readVarInt(buf);
+		default: return PacketCodec.readUUID(buf);
+		}
+	}
+
 	private void broadcastValueChange(FieldUpdateObj fieldUpdate)
 	{		
 		if (ignoreBroadcast)
@@ -377,43 +622,18 @@ public final class NBTPlayerData implements Serializable
 		
 		else //Server
 		{
-			//Always trigger a save on value change.
-			PlayerDataCollection.get().markDirty();
-			
-			//Lookup by reference to find UUID.
-			UUID ownerUUID = PlayerDataCollection.get().getUUIDByReference(this);
-			
-			if (ownerUUID != null) //Make sure it was found.
-			{
-				//Find the player reference in the world.
-				EntityPlayer player = null;
-				
-				for (WorldServer server : FMLCommonHandler.instance().getMinecraftServerInstance().worlds)
-				{
-					EntityPlayer foundPlayer = server.getPlayerEntityByUUID(ownerUUID); 
-					
-					if (foundPlayer != null)
-					{
-						player = foundPlayer;
-						break;
-					}
-				}
-				
-				if (player != null)
-				{
-					MCA.getPacketHandler().sendPacketToPlayer(new PacketPlayerDataC(fieldUpdate), (EntityPlayerMP) player);
-				}
-				
-				else
-				{
-					MCA.getLog().error("Error getting player instance by UUID");
-				}
-			}
-			
-			else
+			if (owner == null)
 			{
 				MCA.getLog().error("Error looking up player by UUID");
+				return;
 			}
+
+			//Always trigger a save on value change.
+			PlayerDataCollection.get().markDirty(owner);
+
+			//Sent to the player with any other changes at the end of the tick.
+			changedFields |= getFieldBit(fieldUpdate.fieldId);
+			PlayerDataSync.markChanged(this);
 		}
 	}
 	
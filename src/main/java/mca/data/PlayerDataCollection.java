@@ -1,7 +1,9 @@
 package mca.data;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import mca.core.MCA;
@@ -10,110 +12,238 @@ import net.minecraft.world.World;
 import net.minecraft.world.WorldSavedData;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 
-public class PlayerDataCollection extends WorldSavedData 
-{	
+/**
+ * Every player's MCA data, split by the first byte of their UUID across separate saved data files. Only shards
+ * holding a changed player are written on save, and within a shard only the changed players are serialized again.
+ * Shards are written in the background by the SavedDataWriter when the overworld saves.
+ * Data saved in the single file used by older versions is moved into the shards the first time it is read.
+ */
+public class PlayerDataCollection
+{
 	private static final String ID = "MinecraftComesAlive";
+	private static final int SHARD_COUNT = 256;
 
-	/** Map of player UUIDs and the list of quests they've encountered. */
-	private Map<UUID, NBTPlayerData> playerDataMap;
+	private static PlayerDataCollection instance;
 
-	public static PlayerDataCollection get() 
+	private final World world;
+	private final PlayerDataShard[] shards = new PlayerDataShard[SHARD_COUNT];
+
+	private PlayerDataCollection(World world)
+	{
+		this.world = world;
+	}
+
+	public static PlayerDataCollection get()
 	{
 		World world = FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld();
-		PlayerDataCollection data = (PlayerDataCollection) world.loadData(PlayerDataCollection.class, ID);
 
-		if (data == null)
+		if (instance == null || instance.world != world)
 		{
-			data = new PlayerDataCollection();
-			world.setData(ID, data);
+			instance = new PlayerDataCollection(world);
+			instance.migrateLegacyData();
 		}
 
-		return data;
+		return instance;
 	}
 
-	public PlayerDataCollection() 
+	/** Queues every shard with changed players to be written. */
+	public static void save()
 	{
-		this(ID);
+		if (instance != null)
+		{
+			for (PlayerDataShard shard : instance.shards)
+			{
+				if (shard != null)
+				{
+					SavedDataWriter.save(instance.world, shard);
+				}
+			}
+		}
 	}
 
-	public PlayerDataCollection(String id) 
+	/** Drops the cached collection once the server has stopped and made its final save. */
+	public static void clear()
 	{
-		super(id);
-		playerDataMap = new HashMap<UUID, NBTPlayerData>();
+		instance = null;
 	}
 
-	@Override
-	public NBTTagCompound writeToNBT(NBTTagCompound nbt) 
+	public NBTPlayerData getPlayerData(UUID uuid)
 	{
-		for (Map.Entry<UUID, NBTPlayerData> entry : playerDataMap.entrySet())
+		return getShard(uuid).playerDataMap.get(uuid);
+	}
+
+	public void putPlayerData(UUID uuid, NBTPlayerData data)
+	{
+		PlayerDataShard shard = getShard(uuid);
+		shard.playerDataMap.put(uuid, data);
+		data.setOwner(uuid);
+		shard.markDirty(uuid);
+	}
+
+	/** Marks the player's data as changed, so it is written on the next save. */
+	public void markDirty(UUID uuid)
+	{
+		if (getPlayerData(uuid) != null)
 		{
-			UUID uuid = entry.getKey();
-			NBTPlayerData playerData = entry.getValue();
-			NBTTagCompound playerDataTags = new NBTTagCompound();
-			
-			try 
+			getShard(uuid).markDirty(uuid);
+		}
+	}
+
+	private PlayerDataShard getShard(UUID uuid)
+	{
+		int index = (int) (uuid.getMostSignificantBits() >>> 56);
+		PlayerDataShard shard = shards[index];
+
+		if (shard == null)
+		{
+			String shardId = String.format("%s-Players-%02x", ID, index);
+			shard = SavedDataWriter.load(world, PlayerDataShard.class, shardId);
+
+			if (shard == null)
 			{
-				playerData.writeToNBT(playerDataTags);
-				nbt.setTag("PlayerData-" + uuid.toString(), playerDataTags);
+				shard = new PlayerDataShard(shardId);
 			}
 
-			catch (Exception e)
+			for (Map.Entry<UUID, NBTPlayerData> entry : shard.playerDataMap.entrySet())
 			{
-				MCA.getLog().error("Error writing player data to NBT for UUID " + uuid.toString() + ". Progress may be corrupted or lost.");
-				continue;
+				entry.getValue().setOwner(entry.getKey());
 			}
+
+			shards[index] = shard;
 		}
-		
-		return nbt;
+
+		return shard;
 	}
 
-	@Override
-	public void readFromNBT(NBTTagCompound nbt) 
+	private void migrateLegacyData()
 	{
-		for (Object tagKey : nbt.getKeySet()) //Loop through all keys.
+		LegacyPlayerDataCollection legacyData = SavedDataWriter.load(world, LegacyPlayerDataCollection.class, ID);
+
+		if (legacyData == null || legacyData.playerDataMap.isEmpty())
 		{
-			try
-			{
-				String tagName = (String)tagKey;
-				UUID uuid = UUID.fromString(tagName.replace("PlayerData-", ""));
-				NBTTagCompound playerDataTags = nbt.getCompoundTag(tagName);
-				NBTPlayerData data = new NBTPlayerData();
+			return;
+		}
 
-				data.readFromNBT(playerDataTags);
-				playerDataMap.put(uuid, data);
-			}
+		MCA.getLog().info("Moving MCA data of " + legacyData.playerDataMap.size() + " players to per-shard storage.");
 
-			catch (Exception e)
+		for (Map.Entry<UUID, NBTPlayerData> entry : legacyData.playerDataMap.entrySet())
+		{
+			//Anything already in a shard is newer than the old file.
+			if (getPlayerData(entry.getKey()) == null)
 			{
-				MCA.getLog().error("Error reading player data from NBT tag: " + (String)tagKey + ". Progress may be corrupted or lost.");
-				continue;
+				putPlayerData(entry.getKey(), entry.getValue());
 			}
 		}
 
-		markDirty();
+		//Write the shards now, and only move the old file aside once they're on disk.
+		save();
+		SavedDataWriter.retire(world, ID);
 	}
 
-	public NBTPlayerData getPlayerData(UUID uuid)
+	/** The players whose UUID starts with the same byte. Public so that the SavedDataWriter can create it. */
+	public static class PlayerDataShard extends WorldSavedData
 	{
-		return playerDataMap.get(uuid);
+		private final Map<UUID, NBTPlayerData> playerDataMap = new HashMap<UUID, NBTPlayerData>();
+		private final Map<UUID, NBTTagCompound> savedTags = new HashMap<UUID, NBTTagCompound>();
+		private final Set<UUID> dirtyEntries = new HashSet<UUID>();
+
+		public PlayerDataShard(String id)
+		{
+			super(id);
+		}
+
+		private void markDirty(UUID uuid)
+		{
+			dirtyEntries.add(uuid);
+			markDirty();
+		}
+
+		@Override
+		public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+		{
+			for (UUID uuid : dirtyEntries)
+			{
+				NBTPlayerData playerData = playerDataMap.get(uuid);
+				NBTTagCompound playerDataTags = new NBTTagCompound();
+
+				try
+				{
+					playerData.writeToNBT(playerDataTags);
+					savedTags.put(uuid, playerDataTags);
+				}
+
+				catch (Exception e)
+				{
+					MCA.getLog().error("Error writing player data to NBT for UUID " + uuid.toString() + ". Progress may be corrupted or lost.");
+					continue;
+				}
+			}
+
+			dirtyEntries.clear();
+
+			for (Map.Entry<UUID, NBTTagCompound> entry : savedTags.entrySet())
+			{
+				nbt.setTag("PlayerData-" + entry.getKey().toString(), entry.getValue());
+			}
+
+			return nbt;
+		}
+
+		@Override
+		public void readFromNBT(NBTTagCompound nbt)
+		{
+			readPlayerData(nbt, playerDataMap, savedTags);
+		}
 	}
 
-	public void putPlayerData(UUID uuid, NBTPlayerData data)
+	/** The single file every player's data was saved to by older versions. Only read, to move it into shards. */
+	public static class LegacyPlayerDataCollection extends WorldSavedData
 	{
-		playerDataMap.put(uuid, data);
-		markDirty();
+		private final Map<UUID, NBTPlayerData> playerDataMap = new HashMap<UUID, NBTPlayerData>();
+
+		public LegacyPlayerDataCollection(String id)
+		{
+			super(id);
+		}
+
+		@Override
+		public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+		{
+			return nbt;
+		}
+
+		@Override
+		public void readFromNBT(NBTTagCompound nbt)
+		{
+			readPlayerData(nbt, playerDataMap, null);
+		}
 	}
 
-	public UUID getUUIDByReference(NBTPlayerData data)
+	private static void readPlayerData(NBTTagCompound nbt, Map<UUID, NBTPlayerData> playerDataMap, Map<UUID, NBTTagCompound> savedTags)
 	{
-		for (Map.Entry<UUID, NBTPlayerData> entry : playerDataMap.entrySet())
+		for (Object tagKey : nbt.getKeySet()) //Loop through all keys.
 		{
-			if (entry.getValue() == data)
+			try
+			{
+				String tagName = (String)tagKey;
+				UUID uuid = UUID.fromString(tagName.replace("PlayerData-", ""));
+				NBTTagCompound playerDataTags = nbt.getCompoundTag(tagName);
+				NBTPlayerData data = new NBTPlayerData();
+
+				data.readFromNBT(playerDataTags);
+				playerDataMap.put(uuid, data);
+
+				if (savedTags != null)
+				{
+					savedTags.put(uuid, playerDataTags);
+				}
+			}
+
+			catch (Exception e)
 			{
-				return entry.getKey();
+				MCA.getLog().error("Error reading player data from NBT tag: " + (String)tagKey + ". Progress may be corrupted or lost.");
+				continue;
 			}
 		}
-		
-		return null;
 	}
 }
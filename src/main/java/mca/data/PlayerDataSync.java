@@ -0,0 +1,58 @@
+package mca.data;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import mca.core.MCA;
+import mca.packets.PacketPlayerDataC;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerList;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * Collects the player data changed during a server tick, and at the end of it sends each player one packet with
+ * every field of theirs that changed. Marriages and divorces alone change four fields at once.
+ */
+public final class PlayerDataSync
+{
+	private static final Set<NBTPlayerData> changedData = new LinkedHashSet<NBTPlayerData>();
+
+	private PlayerDataSync()
+	{
+	}
+
+	/*package-private*/ static void markChanged(NBTPlayerData data)
+	{
+		changedData.add(data);
+	}
+
+	/** Sends the changes made during this tick. Called at the end of every server tick. */
+	public static void flush()
+	{
+		if (changedData.isEmpty())
+		{
+			return;
+		}
+
+		PlayerList playerList = FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList();
+
+		for (NBTPlayerData data : changedData)
+		{
+			NBTPlayerData.FieldChanges changes = data.takeFieldChanges();
+			EntityPlayerMP player = playerList.getPlayerByUUID(data.getOwner());
+
+			//Players who are offline receive all of their data when they next log in.
+			if (player != null)
+			{
+				MCA.getPacketHandler().sendPacketToPlayer(new PacketPlayerDataC(changes), player);
+			}
+		}
+
+		changedData.clear();
+	}
+
+	public static void clear()
+	{
+		changedData.clear();
+	}
+}
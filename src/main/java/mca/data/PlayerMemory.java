@@ -8,20 +8,48 @@
 package mca.data;
 
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.UUID;
 
+import io.netty.buffer.ByteBuf;
 import mca.core.MCA;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumDialogueType;
 import mca.enums.EnumRelation;
-import mca.packets.PacketSyncPlayerMemory;
+import mca.network.PacketCodec;
+import mca.util.TimingWheel;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import radixcore.constant.Time;
 
 public class PlayerMemory implements Serializable
 {
+	//Positions in the packed array of saved values. Only ever append to this layout.
+	private static final int HEARTS = 0;
+	private static final int TIME_UNTIL_GREETING = 1;
+	private static final int DISTANCE_TRAVELLED_FROM = 2;
+	private static final int HIRE_TIME_LEFT = 3;
+	private static final int INTERACTION_FATIGUE = 4;
+	private static final int DIALOGUE_TYPE = 5;
+	private static final int FEEDBACK_DISPLAY_TIME = 6;
+	private static final int RELATION_ID = 7;
+	private static final int TAX_RESET_COUNTER = 8;
+	private static final int FLAGS = 9;
+	private static final int VALUE_COUNT = 10;
+	private static final int MAX_VALUE_COUNT = 64;
+	private static final int MAX_PLAYER_NAME_LENGTH = 16;
+
+	private static final int FLAG_HAS_GIFT = 1;
+	private static final int FLAG_HAS_QUEST = 2;
+	private static final int FLAG_IS_HIRED_BY = 4;
+	private static final int FLAG_LAST_INTERACTION_SUCCESS = 8;
+
+	//Masks of positions in the packed layout, marking which values need to be synced.
+	private static final int ALL_VALUES = (1 << VALUE_COUNT) - 1;
+	private static final int COUNTDOWN_VALUES = (1 << TIME_UNTIL_GREETING) | (1 << HIRE_TIME_LEFT) | (1 << FEEDBACK_DISPLAY_TIME) | (1 << TAX_RESET_COUNTER);
+
 	private transient final EntityVillagerMCA owner;
 
 	private String playerName;
@@ -40,11 +68,23 @@ public class PlayerMemory implements Serializable
 	private transient int timeUntilGreeting;
 	private transient int distanceTravelledFrom;
 
-	private int counter;
+	//Server-side countdowns are kept as deadlines on the shared timing wheel rather than decremented each tick.
+	//A deadline of zero means the countdown isn't running. The int fields above are refreshed from these before
+	//the memory is synced or saved.
+	private transient CountdownTimer timer;
+	private transient long hireDeadline;
+	private transient long taxResetDeadline;
+	private transient long fatigueResetDeadline;
+	private transient long feedbackDeadline;
+	private transient long greetingDeadline;
+
+	//Values changed since the last sync to the player, as a mask of their positions. Server side only.
+	private transient int changedValues;
 
 	public PlayerMemory(EntityVillagerMCA owner, EntityPlayer player)
 	{
 		this.owner = owner;
+		this.timer = owner.world.isRemote ? null : new CountdownTimer(this);
 		this.playerName = player.getName();
 		this.uuid = player.getUniqueID();
 		this.dialogueType = owner.attributes.getIsChild() ? EnumDialogueType.CHILD : EnumDialogueType.ADULT;
@@ -60,6 +100,9 @@ public class PlayerMemory implements Serializable
 			NBTPlayerData data = MCA.getPlayerData(player);
 			data.setOwnsBaby(false);
 		}
+
+		//The client has never seen this memory, so the first sync sends all of it.
+		changedValues = ALL_VALUES;
 	}
 
 	/**
@@ -69,30 +112,143 @@ public class PlayerMemory implements Serializable
 	{
 		this.owner = owner;
 		this.playerName = username;
+		this.timer = owner.world.isRemote ? null : new CountdownTimer(this);
 	}
 
-	public void writePlayerMemoryToNBT(NBTTagCompound nbt)
+	/**
+	 * Only for memories received from the server. Like those Java serialization used to create, they have no owner
+	 * and don't count down.
+	 */
+	private PlayerMemory()
 	{
-		String nbtPrefix = "playerMemoryValue" + playerName;
+		this.owner = null;
+	}
 
-		nbt.setString(nbtPrefix + "playerName", playerName);
-		nbt.setUniqueId(nbtPrefix + "uuid", uuid);
-		nbt.setInteger(nbtPrefix + "hearts", hearts);
-		nbt.setInteger(nbtPrefix + "timeUntilGreeting", timeUntilGreeting);
-		nbt.setInteger(nbtPrefix + "distanceTraveledFrom", distanceTravelledFrom);
-		nbt.setInteger(nbtPrefix + "hireTimeLeft", hireTimeLeft);
-		nbt.setBoolean(nbtPrefix + "hasGift", hasGift);
-		nbt.setInteger(nbtPrefix + "interactionFatigue", interactionFatigue);
-		nbt.setBoolean(nbtPrefix + "hasQuest", hasQuest);
-		nbt.setInteger(nbtPrefix + "dialogueType", dialogueType.getId());
-		nbt.setBoolean(nbtPrefix + "isHiredBy", isHiredBy);
-		nbt.setInteger(nbtPrefix + "feedbackDisplayTime", feedbackDisplayTime);
-		nbt.setBoolean(nbtPrefix + "lastInteractionSuccess", lastInteractionSuccess);
-		nbt.setInteger(nbtPrefix + "taxResetCounter", taxResetCounter);
-		nbt.setInteger(nbtPrefix + "relationId", relationId);
+	/** Writes this memory to its own compound, as one entry of the villager's list of memories. */
+	public void writePlayerMemoryToNBT(NBTTagCompound nbt)
+	{
+		nbt.setUniqueId("id", uuid);
+		nbt.setString("name", playerName);
+		nbt.setIntArray("values", getPackedValues());
 	}
 
+	/** Reads a memory written by writePlayerMemoryToNBT. */
 	public void readPlayerMemoryFromNBT(NBTTagCompound nbt)
+	{
+		//Values added to the end of the layout later read as zero from older saves.
+		playerName = nbt.getString("name");
+		uuid = nbt.getUniqueId("id");
+		setPackedValues(Arrays.copyOf(nbt.getIntArray("values"), VALUE_COUNT));
+	}
+
+	/** Writes this memory for sending to a client, in the same packed layout as it is saved in. */
+	public void writeToByteBuf(ByteBuf buf)
+	{
+		int[] values = getPackedValues();
+
+		PacketCodec.writeUUID(buf, uuid);
+		PacketCodec.writeString(buf, playerName);
+		PacketCodec.writeVarInt(buf, values.length);
+
+		for (int value : values)
+		{
+			PacketCodec.writeVarInt(buf, value);
+		}
+	}
+
+	/** Reads a memory written by writeToByteBuf. */
+	public static PlayerMemory readFromByteBuf(ByteBuf buf)
+	{
+		PlayerMemory memory = new PlayerMemory();
+		memory.uuid = PacketCodec.readUUID(buf);
+		memory.playerName = PacketCodec.readString(buf, MAX_PLAYER_NAME_LENGTH);
+
+		//Allow for a newer layout with values this side doesn't know about, and ignore them.
+		int count = PacketCodec.readLength(buf, MAX_VALUE_COUNT);
+		int[] values = new int[Math.max(count, VALUE_COUNT)];
+
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = PacketCodec.readVarInt(buf);
+		}
+
+		memory.setPackedValues(values);
+		return memory;
+	}
+
+	/** @returns Every saved value in the packed layout, with the countdowns brought up to date. */
+	public int[] getPackedValues()
+	{
+		refreshCountdowns();
+
+		int flags = (hasGift ? FLAG_HAS_GIFT : 0) | (hasQuest ? FLAG_HAS_QUEST : 0) | (isHiredBy ? FLAG_IS_HIRED_BY : 0)
+				| (lastInteractionSuccess ? FLAG_LAST_INTERACTION_SUCCESS : 0);
+
+		int[] values = new int[VALUE_COUNT];
+		values[HEARTS] = hearts;
+		values[TIME_UNTIL_GREETING] = timeUntilGreeting;
+		values[DISTANCE_TRAVELLED_FROM] = distanceTravelledFrom;
+		values[HIRE_TIME_LEFT] = hireTimeLeft;
+		values[INTERACTION_FATIGUE] = interactionFatigue;
+		values[DIALOGUE_TYPE] = dialogueType.getId();
+		values[FEEDBACK_DISPLAY_TIME] = feedbackDisplayTime;
+		values[RELATION_ID] = relationId;
+		values[TAX_RESET_COUNTER] = taxResetCounter;
+		values[FLAGS] = flags;
+		return values;
+	}
+
+	private void setPackedValues(int[] values)
+	{
+		int flags = values[FLAGS];
+
+		hearts = values[HEARTS];
+		timeUntilGreeting = values[TIME_UNTIL_GREETING];
+		distanceTravelledFrom = values[DISTANCE_TRAVELLED_FROM];
+		hireTimeLeft = values[HIRE_TIME_LEFT];
+		interactionFatigue = values[INTERACTION_FATIGUE];
+		dialogueType = EnumDialogueType.getById(values[DIALOGUE_TYPE]);
+		feedbackDisplayTime = values[FEEDBACK_DISPLAY_TIME];
+		relationId = values[RELATION_ID];
+		taxResetCounter = values[TAX_RESET_COUNTER];
+		hasGift = (flags & FLAG_HAS_GIFT) != 0;
+		hasQuest = (flags & FLAG_HAS_QUEST) != 0;
+		isHiredBy = (flags & FLAG_IS_HIRED_BY) != 0;
+		lastInteractionSuccess = (flags & FLAG_LAST_INTERACTION_SUCCESS) != 0;
+		restartCountdowns();
+	}
+
+	/** Replaces the values whose positions are set in the mask with those at the same positions of the packed layout. */
+	public void applyChanges(int changed, int[] values)
+	{
+		int[] current = getPackedValues();
+
+		for (int i = 0; i < VALUE_COUNT; i++)
+		{
+			if ((changed & (1 << i)) != 0)
+			{
+				current[i] = values[i];
+			}
+		}
+
+		setPackedValues(current);
+	}
+
+	/** @returns The positions of the values to sync, and forgets them. Countdowns are always included. */
+	/*package-private*/ int takeChangedValues()
+	{
+		int changed = changedValues | COUNTDOWN_VALUES;
+		changedValues = 0;
+		return changed;
+	}
+
+	/*package-private*/ EntityVillagerMCA getOwner()
+	{
+		return owner;
+	}
+
+	/** Reads a memory from the flat keys that older versions wrote into the villager's own compound. */
+	public void readLegacyPlayerMemoryFromNBT(NBTTagCompound nbt)
 	{
 		String nbtPrefix = "playerMemoryValue" + playerName;
 
@@ -111,52 +267,114 @@ public class PlayerMemory implements Serializable
 		lastInteractionSuccess = nbt.getBoolean(nbtPrefix + "lastInteractionSuccess");
 		relationId = nbt.getInteger(nbtPrefix + "relationId");
 		taxResetCounter = nbt.getInteger(nbtPrefix + "taxResetCounter");
+		restartCountdowns();
 	}
 
-	public void doTick()
+	/** Saved values are time remaining, so restart the countdowns from now. */
+	private void restartCountdowns()
 	{
-		if (counter <= 0)
+		if (timer != null)
+		{
+			final long now = getCurrentTick();
+			hireDeadline = hireTimeLeft > 0 ? now + (long) hireTimeLeft * Time.MINUTE : 0L;
+			taxResetDeadline = taxResetCounter > 0 ? now + (long) taxResetCounter * Time.MINUTE : 0L;
+			fatigueResetDeadline = interactionFatigue > 0 ? now + Time.MINUTE : 0L;
+			feedbackDeadline = feedbackDisplayTime > 0 ? now + feedbackDisplayTime : 0L;
+			greetingDeadline = timeUntilGreeting > 0 ? now + timeUntilGreeting : 0L;
+			scheduleNextCountdown();
+		}
+	}
+
+	/**
+	 * Handles every countdown that has run out, then schedules the timer for the next one. Called by the timing wheel.
+	 */
+	private void onCountdownExpired()
+	{
+		//The villager may have been unloaded or killed since this was scheduled.
+		if (owner.isDead || owner.world.getEntityByID(owner.getEntityId()) != owner)
+		{
+			return;
+		}
+
+		final long now = getCurrentTick();
+
+		if (hireDeadline != 0L && hireDeadline <= now)
+		{
+			setIsHiredBy(false, 0);
+			owner.getBehaviors().disableAllToggleActions();
+		}
+
+		if (taxResetDeadline != 0L && taxResetDeadline <= now)
+		{
+			setTaxResetCounter(0);
+		}
+
+		if (fatigueResetDeadline != 0L && fatigueResetDeadline <= now)
 		{
 			resetInteractionFatigue();
+		}
 
-			if (hireTimeLeft > 0)
-			{
-				hireTimeLeft--;
+		if (feedbackDeadline != 0L && feedbackDeadline <= now)
+		{
+			feedbackDeadline = 0L;
 
-				if (hireTimeLeft <= 0)
-				{
-					setIsHiredBy(false, 0);
-					owner.getBehaviors().disableAllToggleActions();
-				}
-			}
+			//Send an update to turn feedback display off.
+			onNonTransientValueChanged(1 << FEEDBACK_DISPLAY_TIME);
+		}
+
+		scheduleNextCountdown();
+	}
 
-			if (taxResetCounter > 0)
+	private void scheduleNextCountdown()
+	{
+		long nextDeadline = Long.MAX_VALUE;
+
+		for (long deadline : new long[]{ hireDeadline, taxResetDeadline, fatigueResetDeadline, feedbackDeadline })
+		{
+			if (deadline != 0L && deadline < nextDeadline)
 			{
-				taxResetCounter--;
-				
-				if (taxResetCounter <= 0)
-				{
-					setTaxResetCounter(0);
-				}
+				nextDeadline = deadline;
 			}
-			
-			counter = Time.MINUTE;
 		}
 
-		counter--;
+		if (nextDeadline == Long.MAX_VALUE)
+		{
+			MCA.getTimingWheel().cancel(timer);
+		}
 
-		if (feedbackDisplayTime > 0)
+		else if (!timer.isScheduled() || timer.getDeadline() != nextDeadline)
 		{
-			feedbackDisplayTime--;
+			MCA.getTimingWheel().schedule(timer, nextDeadline);
+		}
+	}
 
-			if (feedbackDisplayTime <= 0)
-			{
-				//Send an update to turn feedback display off.
-				onNonTransientValueChanged();
-			}
+	/** Updates the countdown values that are synced to the client and saved from their deadlines. */
+	private void refreshCountdowns()
+	{
+		if (timer != null)
+		{
+			hireTimeLeft = getMinutesUntil(hireDeadline);
+			taxResetCounter = getMinutesUntil(taxResetDeadline);
+			feedbackDisplayTime = getTicksUntil(feedbackDeadline);
+			timeUntilGreeting = getTicksUntil(greetingDeadline);
 		}
 	}
 
+	private long getCurrentTick()
+	{
+		return MCA.getTimingWheel().getCurrentTick();
+	}
+
+	private int getTicksUntil(long deadline)
+	{
+		return deadline == 0L ? 0 : (int) Math.max(0L, deadline - getCurrentTick());
+	}
+
+	private int getMinutesUntil(long deadline)
+	{
+		return (getTicksUntil(deadline) + Time.MINUTE - 1) / Time.MINUTE;
+	}
+
 	public int getHearts()
 	{
 		return hearts;
@@ -169,12 +387,18 @@ public class PlayerMemory implements Serializable
 
 	public int getTimeUntilGreeting()
 	{
-		return timeUntilGreeting;
+		return timer != null ? getTicksUntil(greetingDeadline) : timeUntilGreeting;
 	}
 
 	public void setTimeUntilGreeting(int value)
 	{
 		this.timeUntilGreeting = value;
+
+		if (timer != null)
+		{
+			//Nothing happens when the greeting cooldown ends, so it's only checked and never scheduled.
+			greetingDeadline = value > 0 ? getCurrentTick() + value : 0L;
+		}
 	}
 
 	public int getDistanceTraveledFrom()
@@ -190,34 +414,42 @@ public class PlayerMemory implements Serializable
 	public void setHearts(int value)
 	{
 		int delta = (hearts - value) * -1;
+		VillagerSpatialIndex.onHeartsChanged(owner, playerName, hearts, value);
 		this.hearts = value;
 		setLastInteractionSuccess(delta >= 0);
-		onNonTransientValueChanged();
+		onNonTransientValueChanged(1 << HEARTS);
 	}
 
 	public void setHasQuest(boolean value)
 	{
 		this.hasQuest = value;
-		onNonTransientValueChanged();
+		onNonTransientValueChanged(1 << FLAGS);
 	}
 
 	public void setHasGift(boolean value)
 	{
 		this.hasGift = value;
-		onNonTransientValueChanged();
+		onNonTransientValueChanged(1 << FLAGS);
 	}
 
 	public void setLastInteractionSuccess(boolean value)
 	{
 		this.lastInteractionSuccess = value;
 		this.feedbackDisplayTime = Time.SECOND * 2;
-		onNonTransientValueChanged();
+
+		if (timer != null)
+		{
+			feedbackDeadline = getCurrentTick() + feedbackDisplayTime;
+			scheduleNextCountdown();
+		}
+
+		onNonTransientValueChanged((1 << FLAGS) | (1 << FEEDBACK_DISPLAY_TIME));
 	}
 
 	public void setDialogueType(EnumDialogueType value) 
 	{
 		this.dialogueType = value;
-		onNonTransientValueChanged();
+		onNonTransientValueChanged(1 << DIALOGUE_TYPE);
 	}
 
 	public EnumDialogueType getDialogueType()
@@ -227,7 +459,7 @@ public class PlayerMemory implements Serializable
 
 	public boolean doDisplayFeedback()
 	{
-		return feedbackDisplayTime > 0;
+		return timer != null ? getTicksUntil(feedbackDeadline) > 0 : feedbackDisplayTime > 0;
 	}
 
 	public boolean getLastInteractionSuccess()
@@ -235,10 +467,14 @@ public class PlayerMemory implements Serializable
 		return lastInteractionSuccess;
 	}
 
-	private void onNonTransientValueChanged()
+	/** Marks the values at the given positions as changed. They are sent to the player at the end of the tick. */
+	private void onNonTransientValueChanged(int values)
 	{
-		final EntityPlayerMP player = (EntityPlayerMP) owner.world.getPlayerEntityByName(playerName);
-		MCA.getPacketHandler().sendPacketToPlayer(new PacketSyncPlayerMemory(this.owner.getEntityId(), this), player);
+		if (timer != null)
+		{
+			changedValues |= values;
+			PlayerMemorySync.markChanged(this);
+		}
 	}
 
 	public String getPlayerName() 
@@ -256,14 +492,29 @@ public class PlayerMemory implements Serializable
 		if (MCA.getConfig().enableDiminishingReturns)
 		{
 			interactionFatigue++;
-			onNonTransientValueChanged();
+
+			//Fatigue wears off a minute after it begins building up.
+			if (timer != null && fatigueResetDeadline == 0L)
+			{
+				fatigueResetDeadline = getCurrentTick() + Time.MINUTE;
+				scheduleNextCountdown();
+			}
+
+			onNonTransientValueChanged(1 << INTERACTION_FATIGUE);
 		}
 	}
 
 	public void resetInteractionFatigue()
 	{
 		interactionFatigue = 0;
-		onNonTransientValueChanged();
+
+		if (timer != null)
+		{
+			fatigueResetDeadline = 0L;
+			scheduleNextCountdown();
+		}
+
+		onNonTransientValueChanged(1 << INTERACTION_FATIGUE);
 	}
 
 	public UUID getUUID()
@@ -285,12 +536,20 @@ public class PlayerMemory implements Serializable
 	{
 		isHiredBy = value;
 		hireTimeLeft = length;
-		onNonTransientValueChanged();
+
+		if (timer != null)
+		{
+			hireDeadline = length > 0 ? getCurrentTick() + (long) length * Time.MINUTE : 0L;
+			scheduleNextCountdown();
+		}
+
+		onNonTransientValueChanged((1 << FLAGS) | (1 << HIRE_TIME_LEFT));
 	}
 
 	public void setRelation(EnumRelation relation)
 	{
 		relationId = relation.getId();
+		onNonTransientValueChanged(1 << RELATION_ID);
 	}
 	
 	public EnumRelation getRelation()
@@ -303,19 +562,53 @@ public class PlayerMemory implements Serializable
 		return relationId > 0;
 	}
 	
+	/** @returns Minutes until the hire runs out. */
 	public int getHireTimeLeft()
 	{
-		return hireTimeLeft;
+		return timer != null ? getMinutesUntil(hireDeadline) : hireTimeLeft;
 	}
 	
+	/** Sets the minutes until this player can collect taxes from the villager again. */
 	public void setTaxResetCounter(int value)
 	{
 		this.taxResetCounter = value;
-		onNonTransientValueChanged();
+
+		if (timer != null)
+		{
+			taxResetDeadline = value > 0 ? getCurrentTick() + (long) value * Time.MINUTE : 0L;
+			scheduleNextCountdown();
+		}
+
+		onNonTransientValueChanged(1 << TAX_RESET_COUNTER);
 	}
 	
 	public int getTaxResetCounter()
 	{
-		return taxResetCounter;
+		return timer != null ? getMinutesUntil(taxResetDeadline) : taxResetCounter;
+	}
+
+	/**
+	 * Fires the owning memory's countdowns. Only weakly references the memory so that unloaded villagers
+	 * aren't kept alive by a long countdown such as a hire.
+	 */
+	private static final class CountdownTimer extends TimingWheel.Timeout
+	{
+		private final WeakReference<PlayerMemory> memory;
+
+		private CountdownTimer(PlayerMemory memory)
+		{
+			this.memory = new WeakReference<PlayerMemory>(memory);
+		}
+
+		@Override
+		protected void onExpired()
+		{
+			final PlayerMemory playerMemory = memory.get();
+
+			if (playerMemory != null)
+			{
+				playerMemory.onCountdownExpired();
+			}
+		}
 	}
 }
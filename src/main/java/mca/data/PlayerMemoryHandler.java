@@ -4,11 +4,50 @@ import java.util.Map;
 
 import mca.entity.EntityVillagerMCA;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants.NBT;
 
 @Deprecated
 public final class PlayerMemoryHandler 
 {
+	private static final String MEMORIES_KEY = "PlayerMemories";
+
 	public static void readPlayerMemoryFromNBT(EntityVillagerMCA human, Map<String, PlayerMemory> playerMemories, NBTTagCompound nbt)
+	{
+		if (!nbt.hasKey(MEMORIES_KEY, NBT.TAG_LIST))
+		{
+			//Saved before memories were kept as a list. They're written back as a list on the next save.
+			readLegacyPlayerMemoryFromNBT(human, playerMemories, nbt);
+			return;
+		}
+
+		final NBTTagList memoryList = nbt.getTagList(MEMORIES_KEY, NBT.TAG_COMPOUND);
+
+		for (int i = 0; i < memoryList.tagCount(); i++)
+		{
+			final NBTTagCompound memoryTag = memoryList.getCompoundTagAt(i);
+			final String playerName = memoryTag.getString("name");
+			final PlayerMemory playerMemory = new PlayerMemory(human, playerName);
+			playerMemory.readPlayerMemoryFromNBT(memoryTag);
+			playerMemories.put(playerName, playerMemory);
+		}
+	}
+	
+	public static void writePlayerMemoryToNBT(Map<String, PlayerMemory> playerMemories, NBTTagCompound nbt)
+	{
+		final NBTTagList memoryList = new NBTTagList();
+		
+		for (PlayerMemory playerMemory : playerMemories.values())
+		{
+			final NBTTagCompound memoryTag = new NBTTagCompound();
+			playerMemory.writePlayerMemoryToNBT(memoryTag);
+			memoryList.appendTag(memoryTag);
+		}
+
+		nbt.setTag(MEMORIES_KEY, memoryList);
+	}
+
+	private static void readLegacyPlayerMemoryFromNBT(EntityVillagerMCA human, Map<String, PlayerMemory> playerMemories, NBTTagCompound nbt)
 	{
 		int counter = 0;
 		
@@ -24,24 +63,12 @@ public final class PlayerMemoryHandler
 			else
 			{
 				final PlayerMemory playerMemory = new PlayerMemory(human, playerName);
-				playerMemory.readPlayerMemoryFromNBT(nbt);
+				playerMemory.readLegacyPlayerMemoryFromNBT(nbt);
 				playerMemories.put(playerName, playerMemory);
 				counter++;
 			}
 		}
 	}
 	
-	public static void writePlayerMemoryToNBT(Map<String, PlayerMemory> playerMemories, NBTTagCompound nbt)
-	{
-		int counter = 0;
-		
-		for (Map.Entry<String, PlayerMemory> keyValuePair : playerMemories.entrySet())
-		{
-			nbt.setString("playerMemoryKey" + counter, keyValuePair.getKey());
-			keyValuePair.getValue().writePlayerMemoryToNBT(nbt);
-			counter++;
-		}
-	}
-	
 	private PlayerMemoryHandler() {}
 }
@@ -0,0 +1,88 @@
+package mca.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mca.core.MCA;
+import mca.entity.EntityVillagerMCA;
+import mca.packets.PacketSyncPlayerMemoryChanges;
+import mca.packets.PacketSyncPlayerMemoryChanges.Change;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerList;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * Collects the player memories changed during a server tick, and at the end of it sends each player one packet with
+ * only the changed values of every villager that remembers them. A single interaction may change a memory several
+ * times, and collecting taxes changes the memories of every villager around the player.
+ */
+public final class PlayerMemorySync
+{
+	private static final Set<PlayerMemory> changedMemories = new LinkedHashSet<PlayerMemory>();
+
+	private PlayerMemorySync()
+	{
+	}
+
+	/*package-private*/ static void markChanged(PlayerMemory memory)
+	{
+		changedMemories.add(memory);
+	}
+
+	/** Sends the changes made during this tick. Called at the end of every server tick. */
+	public static void flush()
+	{
+		if (changedMemories.isEmpty())
+		{
+			return;
+		}
+
+		PlayerList playerList = FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList();
+		Map<EntityPlayerMP, List<Change>> changesByPlayer = new HashMap<EntityPlayerMP, List<Change>>();
+
+		for (PlayerMemory memory : changedMemories)
+		{
+			int changed = memory.takeChangedValues();
+			EntityVillagerMCA owner = memory.getOwner();
+			EntityPlayerMP player = memory.getUUID() != null ? playerList.getPlayerByUUID(memory.getUUID()) : null;
+
+			//Entity IDs only mean something to a client in the same world as the villager.
+			if (player == null || owner.isDead || player.world != owner.world)
+			{
+				continue;
+			}
+
+			List<Change> changes = changesByPlayer.get(player);
+
+			if (changes == null)
+			{
+				changes = new ArrayList<Change>();
+				changesByPlayer.put(player, changes);
+			}
+
+			changes.add(new Change(owner.getEntityId(), changed, memory.getPackedValues()));
+		}
+
+		changedMemories.clear();
+
+		for (Map.Entry<EntityPlayerMP, List<Change>> entry : changesByPlayer.entrySet())
+		{
+			List<Change> changes = entry.getValue();
+
+			for (int i = 0; i < changes.size(); i += PacketSyncPlayerMemoryChanges.MAX_CHANGES)
+			{
+				List<Change> batch = changes.subList(i, Math.min(changes.size(), i + PacketSyncPlayerMemoryChanges.MAX_CHANGES));
+				MCA.getPacketHandler().sendPacketToPlayer(new PacketSyncPlayerMemoryChanges(batch), entry.getKey());
+			}
+		}
+	}
+
+	public static void clear()
+	{
+		changedMemories.clear();
+	}
+}
@@ -0,0 +1,312 @@
+package mca.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import mca.core.MCA;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldSavedData;
+
+/**
+ * Reads and writes MCA's own saved data files, in the same layout and location as the world's saved data storage.
+ * On save the server thread only copies the data into NBT, and a background thread compresses it and writes it to
+ * a temporary file that is then renamed over the old one, so a crash mid-write never leaves a truncated file.
+ * Writes are applied in the order they were queued. If the queue is full, saving waits for room rather than
+ * dropping or reordering writes.
+ */
+public final class SavedDataWriter
+{
+	private static final int QUEUE_CAPACITY = 64;
+	private static final long FLUSH_TIMEOUT_SECONDS = 30;
+
+	private static Thread thread;
+	private static BlockingQueue<Runnable> queue;
+	private static boolean isFlushing;
+
+	private SavedDataWriter()
+	{
+	}
+
+	/**
+	 * @returns The data saved under the ID in the world's data folder, or null if nothing has been saved yet. Like the
+	 * 			world's own saved data, a file that can't be read is logged and treated as missing. It is moved aside
+	 * 			first, so it isn't overwritten by the next save.
+	 */
+	public static <T extends WorldSavedData> T load(World world, Class<T> type, String id)
+	{
+		final File file = world.getSaveHandler().getMapFileFromName(id);
+
+		if (file == null || !file.exists())
+		{
+			return null;
+		}
+
+		final T data;
+
+		try
+		{
+			data = type.getConstructor(String.class).newInstance(id);
+		}
+
+		catch (Exception e)
+		{
+			throw new RuntimeException("Unable to create MCA data of type " + type.getName(), e);
+		}
+
+		FileInputStream stream = null;
+
+		try
+		{
+			stream = new FileInputStream(file);
+			data.readFromNBT(CompressedStreamTools.readCompressed(stream).getCompoundTag("data"));
+			return data;
+		}
+
+		catch (Exception e)
+		{
+			MCA.getLog().error("Error reading MCA data from " + file.getName() + ". It will be started over.", e);
+		}
+
+		finally
+		{
+			closeQuietly(stream);
+		}
+
+		final File corruptFile = new File(file.getPath() + ".corrupt-" + System.currentTimeMillis());
+
+		if (!file.renameTo(corruptFile))
+		{
+			MCA.getLog().error("Unable to move unreadable MCA data file " + file.getName() + " aside.");
+		}
+
+		else
+		{
+			MCA.getLog().error("Moved unreadable MCA data file to " + corruptFile.getName() + ".");
+		}
+
+		return null;
+	}
+
+	/**
+	 * Copies the data into NBT and queues it to be written, if it has changed since it was last saved. Once the
+	 * server is stopping, the data is written before returning.
+	 */
+	public static void save(World world, WorldSavedData data)
+	{
+		if (!data.isDirty())
+		{
+			return;
+		}
+
+		final File file = world.getSaveHandler().getMapFileFromName(data.mapName);
+
+		if (file == null)
+		{
+			return;
+		}
+
+		final NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("data", data.writeToNBT(new NBTTagCompound()));
+		data.setDirty(false);
+
+		submit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				write(file, nbt);
+			}
+		});
+	}
+
+	/** Moves a file out of the way once everything queued before it has been written. */
+	public static void retire(World world, String id)
+	{
+		final File file = world.getSaveHandler().getMapFileFromName(id);
+
+		if (file == null)
+		{
+			return;
+		}
+
+		submit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (file.exists() && !file.renameTo(new File(file.getPath() + ".old")))
+				{
+					MCA.getLog().error("Unable to move old MCA data file " + file.getName() + " aside.");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits for every queued write to finish and stops the writer. Anything saved afterwards, such as during the
+	 * final world save on shutdown, is written on the calling thread.
+	 */
+	public static void flush()
+	{
+		isFlushing = true;
+
+		if (thread == null)
+		{
+			return;
+		}
+
+		try
+		{
+			queue.put(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					Thread.currentThread().interrupt();
+				}
+			});
+
+			thread.join(TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SECONDS));
+
+			if (thread.isAlive())
+			{
+				MCA.getLog().error("Timed out waiting for MCA data to finish saving. Some progress may be lost.");
+			}
+		}
+
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		thread = null;
+		queue = null;
+	}
+
+	/** Lets writes go to the background thread again, for the next server to start. */
+	public static void reset()
+	{
+		isFlushing = false;
+	}
+
+	private static void submit(Runnable task)
+	{
+		if (isFlushing)
+		{
+			task.run();
+			return;
+		}
+
+		if (thread == null)
+		{
+			queue = new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY);
+			thread = new Thread(new Worker(queue), "MCA Data Writer");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		try
+		{
+			queue.put(task);
+		}
+
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			task.run();
+		}
+	}
+
+	private static void write(File file, NBTTagCompound nbt)
+	{
+		final File tempFile = new File(file.getPath() + ".tmp");
+		FileOutputStream stream = null;
+
+		try
+		{
+			stream = new FileOutputStream(tempFile);
+			CompressedStreamTools.writeCompressed(nbt, stream);
+			stream.close();
+			stream = null;
+
+			try
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		catch (IOException e)
+		{
+			MCA.getLog().error("Error writing MCA data to " + file.getName() + ". Progress may be lost.", e);
+		}
+
+		finally
+		{
+			closeQuietly(stream);
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable)
+	{
+		try
+		{
+			if (closeable != null)
+			{
+				closeable.close();
+			}
+		}
+
+		catch (IOException e)
+		{
+			//Nothing more can be done.
+		}
+	}
+
+	private static final class Worker implements Runnable
+	{
+		private final BlockingQueue<Runnable> queue;
+
+		private Worker(BlockingQueue<Runnable> queue)
+		{
+			this.queue = queue;
+		}
+
+		@Override
+		public void run()
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				try
+				{
+					queue.take().run();
+				}
+
+				catch (InterruptedException e)
+				{
+					return;
+				}
+
+				catch (RuntimeException e)
+				{
+					MCA.getLog().error("Unexpected error while saving MCA data.", e);
+				}
+			}
+		}
+	}
+}
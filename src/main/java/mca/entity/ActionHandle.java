@@ -0,0 +1,63 @@
+package mca.entity;
+
+import java.lang.reflect.Constructor;
+
+import mca.actions.AbstractAction;
+import mca.actions.AbstractToggleAction;
+
+/**
+ * Typed reference to an action registered with VillagerBehaviors. Holds the slot the action
+ * occupies in every villager's behavior array, so lookups through a handle are a single array load.
+ */
+public final class ActionHandle<T extends AbstractAction>
+{
+	private final Class<T> actionClass;
+	private final Constructor<T> constructor;
+	private final int slot;
+	private final boolean isToggle;
+
+	/*package-private*/ ActionHandle(Class<T> actionClass, int slot)
+	{
+		this.actionClass = actionClass;
+		this.slot = slot;
+		this.isToggle = AbstractToggleAction.class.isAssignableFrom(actionClass);
+
+		try
+		{
+			this.constructor = actionClass.getConstructor(EntityVillagerMCA.class);
+		}
+
+		catch (NoSuchMethodException e)
+		{
+			throw new IllegalArgumentException("Action " + actionClass.getName() + " must declare a public constructor accepting EntityVillagerMCA.", e);
+		}
+	}
+
+	public Class<T> getActionClass()
+	{
+		return actionClass;
+	}
+
+	public int getSlot()
+	{
+		return slot;
+	}
+
+	public boolean isToggle()
+	{
+		return isToggle;
+	}
+
+	/*package-private*/ T newInstance(EntityVillagerMCA actor)
+	{
+		try
+		{
+			return constructor.newInstance(actor);
+		}
+
+		catch (Exception e)
+		{
+			throw new RuntimeException("Unable to create action " + actionClass.getName() + " for villager.", e);
+		}
+	}
+}
@@ -7,6 +7,7 @@ import mca.core.forge.SoundsMCA;
 import mca.core.minecraft.ItemsMCA;
 import mca.enums.EnumReaperAttackState;
 import mca.packets.PacketSpawnLightning;
+import mca.util.BlockSearch;
 import mca.util.Utilities;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
@@ -455,7 +456,7 @@ public class EntityGrimReaper extends EntityMob
 		//Kill plants close to us.
 		if (!world.isRemote)
 		{
-			List<Point3D> grassBlocks = RadixLogic.getNearbyBlocks(this, Blocks.GRASS, 1);
+			List<Point3D> grassBlocks = BlockSearch.getBlocks(this, 1, BlockSearch.forBlock(Blocks.GRASS));
 
 			for (Point3D point : grassBlocks)
 			{
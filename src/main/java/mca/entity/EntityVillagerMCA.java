@@ -4,20 +4,19 @@ import static mca.core.Constants.EMPTY_UUID;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import com.sun.istack.internal.NotNull;
 
 import io.netty.buffer.ByteBuf;
 import mca.actions.AbstractAction;
-import mca.actions.ActionAttackResponse;
-import mca.actions.ActionCombat;
 import mca.actions.ActionSleep;
-import mca.actions.ActionUpdateMood;
 import mca.core.Constants;
 import mca.core.MCA;
 import mca.core.minecraft.ItemsMCA;
+import mca.data.FamilyGraph;
 import mca.data.NBTPlayerData;
-import mca.data.PlayerMemory;
+import mca.enums.EnumAIDetail;
 import mca.enums.EnumBabyState;
 import mca.enums.EnumGender;
 import mca.enums.EnumMarriageState;
@@ -36,7 +35,7 @@ import net.minecraft.entity.ai.EntityAIMoveIndoors;
 import net.minecraft.entity.ai.EntityAIOpenDoor;
 import net.minecraft.entity.ai.EntityAIRestrictOpenDoor;
 import net.minecraft.entity.ai.EntityAISwimming;
-import net.minecraft.entity.ai.EntityAITasks;
+import net.minecraft.entity.ai.EntityAITasks.EntityAITaskEntry;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Items;
@@ -59,11 +58,11 @@ import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.world.World;
-import net.minecraftforge.fml.common.ObfuscationReflectionHelper;
 import net.minecraftforge.fml.common.registry.IEntityAdditionalSpawnData;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 import radixcore.constant.Font.Color;
+import radixcore.constant.Time;
 import radixcore.math.Point3D;
 import radixcore.modules.RadixLogic;
 
@@ -86,6 +85,12 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 	public final VillagerAttributes attributes;
 	private final VillagerBehaviors behaviors;
 	private final Profiler profiler;
+	private EnumAIDetail aiDetail = EnumAIDetail.FULL;
+	private final List<EntityAITaskEntry> frozenTasks = new ArrayList<EntityAITaskEntry>();
+	private boolean isAIFrozen;
+	/*package-private*/ long indexedChunkKey = VillagerSpatialIndex.NOT_INDEXED;
+	/*package-private*/ boolean indexedAsGuard;
+	/*package-private*/ boolean indexedWithBaby;
 
 	public EntityVillagerMCA(World world) 
 	{
@@ -101,6 +106,8 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 
 	public void addAI()
 	{
+		this.frozenTasks.clear();
+		this.isAIFrozen = false;
 		this.tasks.taskEntries.clear();
 
         ((PathNavigateGround)this.getNavigator()).setCanSwim(true);
@@ -154,17 +161,22 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 	{
 		super.onUpdate();
 		profiler.startSection("MCA Villager Update");
-		behaviors.onUpdate();
-		
+
 		if (!world.isRemote)
 		{
-			attributes.incrementTicksAlive();
+			VillagerSpatialIndex.get(world).update(this);
 
-			//Tick player memories
-			for (PlayerMemory memory : attributes.getPlayerMemories().values())
+			if ((ticksExisted + getEntityId()) % Time.SECOND == 0)
 			{
-				memory.doTick();
+				updateAIDetail();
 			}
+		}
+
+		behaviors.onUpdate();
+		
+		if (!world.isRemote)
+		{
+			attributes.incrementTicksAlive();
 
 			//Tick babies in attributes.getInventory().
 			for (int i = 0; i < attributes.getInventory().getSizeInventory(); i++)
@@ -200,6 +212,41 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		profiler.endSection();
 	}
 	
+	private void updateAIDetail()
+	{
+		final int fullRange = MCA.getConfig().aiFullDetailRange;
+
+		if (fullRange < 0)
+		{
+			aiDetail = EnumAIDetail.FULL;
+			return;
+		}
+
+		double closestDistanceSq = Double.MAX_VALUE;
+
+		for (EntityPlayer player : world.playerEntities)
+		{
+			closestDistanceSq = Math.min(closestDistanceSq, getDistanceSqToEntity(player));
+		}
+
+		final int reducedRange = Math.max(fullRange, MCA.getConfig().aiReducedDetailRange);
+
+		if (closestDistanceSq <= fullRange * fullRange)
+		{
+			aiDetail = EnumAIDetail.FULL;
+		}
+
+		else if (closestDistanceSq <= reducedRange * reducedRange)
+		{
+			aiDetail = EnumAIDetail.REDUCED;
+		}
+
+		else
+		{
+			aiDetail = EnumAIDetail.ESSENTIAL;
+		}
+	}
+
 	@Override
 	public boolean processInteract(EntityPlayer player, EnumHand hand)
 	{
@@ -235,6 +282,17 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		return true;
 	}
 
+	@Override
+	public void setDead()
+	{
+		super.setDead();
+
+		if (!world.isRemote)
+		{
+			VillagerSpatialIndex.get(world).remove(this);
+		}
+	}
+
 	@Override
 	public void onDeath(DamageSource damageSource) 
 	{
@@ -244,12 +302,12 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		{
 			//Switch to the sleeping skin and disable all chores/toggle AIs so they won't move
 			behaviors.disableAllToggleActions();
-			getBehavior(ActionSleep.class).transitionSkinState(true);
+			getBehavior(VillagerBehaviors.SLEEP).transitionSkinState(true);
 			
 			//The death of a villager negatively modifies the mood of nearby villagers
-			for (EntityVillagerMCA human : RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, this, 20))
+			for (EntityVillagerMCA human : VillagerSpatialIndex.get(world).getVillagersWithinDistance(this, 20))
 			{
-				human.getBehavior(ActionUpdateMood.class).modifyMoodLevel(-2.0F);
+				human.getBehavior(VillagerBehaviors.UPDATE_MOOD).modifyMoodLevel(-2.0F);
 			}
 
 			//Drop all items in the inventory
@@ -263,6 +321,16 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 				}
 			}
 			
+			//Look up who to alert before the marriage below is ended.
+			FamilyGraph familyGraph = FamilyGraph.get();
+			List<UUID> family = familyGraph.getParents(getUniqueID());
+			UUID spouseUUID = familyGraph.getSpouse(getUniqueID());
+
+			if (spouseUUID != null)
+			{
+				family.add(spouseUUID);
+			}
+
 			//Reset the marriage stats of the player/villager this one was married to
 			if (attributes.isMarriedToAPlayer()) 	
 			{
@@ -284,24 +352,20 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 			}
 
 			//Alert parents/spouse of the death if they are online and handle dropping memorials
-			//Test against new iteration of player memory list each time to ensure the proper order
-			//of handling notifications and memorial spawning
 			boolean memorialDropped = false;
 			
-			for (PlayerMemory memory : attributes.getPlayerMemories().values())
+			for (UUID uuid : family)
 			{
-				//Alert parents and spouse of the death.
-				if (memory.getUUID().equals(attributes.getSpouseUUID()) || attributes.isPlayerAParent(memory.getUUID()))
+				EntityPlayer player = world.getPlayerEntityByUUID(uuid);
+				
+				if (player != null) //The player may not be online, or may be a villager
 				{
-					EntityPlayer player = world.getPlayerEntityByUUID(memory.getUUID());
-					
-					if (player != null) //The player may not be online
-					{
-						player.sendMessage(new TextComponentString(Color.RED + attributes.getTitle(player) + " has died."));
-					}
+					player.sendMessage(new TextComponentString(Color.RED + attributes.getTitle(player) + " has died."));
 				}
 			}
 			
+			familyGraph.onDeath(getUniqueID());
+			
 			//TODO dropping memorials
 		}
 	}
@@ -309,17 +373,11 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 	@Override
 	protected void updateAITasks()
 	{
-		ActionSleep sleepAI = getBehavior(ActionSleep.class);
+		ActionSleep sleepAI = getBehavior(VillagerBehaviors.SLEEP);
 		EnumMovementState moveState = attributes.getMovementState();
 		boolean isSleeping = sleepAI.getIsSleeping();
 
-		if (isSleeping)
-		{
-			// Minecraft 1.8 moved the execution of tasks out of updateAITasks and into EntityAITasks.updateTasks().
-			// Get the 'tickCount' value per tick and set it to 1 when we don't want tasks to execute. This prevents
-			// The AI tasks from ever triggering an update.
-			ObfuscationReflectionHelper.setPrivateValue(EntityAITasks.class, tasks, 1, 4);
-		}
+		setAIFrozen(isSleeping);
 
 		if (!isSleeping && (moveState == EnumMovementState.MOVE || moveState == EnumMovementState.FOLLOW))
 		{
@@ -338,13 +396,46 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		}
 	}
 	
+	/**
+	 * Freezes or unfreezes this villager's AI tasks. While frozen, the tasks are held aside so that
+	 * EntityAITasks has nothing to evaluate or run. Used while sleeping.
+	 */
+	private void setAIFrozen(boolean value)
+	{
+		if (value == isAIFrozen)
+		{
+			return;
+		}
+
+		if (value)
+		{
+			for (EntityAITaskEntry entry : new ArrayList<EntityAITaskEntry>(tasks.taskEntries))
+			{
+				frozenTasks.add(entry);
+				tasks.removeTask(entry.action);
+			}
+		}
+
+		else
+		{
+			for (EntityAITaskEntry entry : frozenTasks)
+			{
+				tasks.addTask(entry.priority, entry.action);
+			}
+
+			frozenTasks.clear();
+		}
+
+		isAIFrozen = value;
+	}
+
 	@Override
 	protected void damageEntity(DamageSource damageSource, float damageAmount)
 	{
 		super.damageEntity(damageSource, damageAmount);
 		
-		behaviors.getAction(ActionAttackResponse.class).startResponse(damageSource.getEntity());
-		behaviors.getAction(ActionSleep.class).onDamage();
+		behaviors.getAction(VillagerBehaviors.ATTACK_RESPONSE).startResponse(damageSource.getEntity());
+		behaviors.getAction(VillagerBehaviors.SLEEP).onDamage();
 	}
 
 	@Override
@@ -362,18 +453,23 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		behaviors.readFromNBT(nbt);
 		attributes.readFromNBT(nbt);
 		addAI();
+
+		if (world != null && !world.isRemote)
+		{
+			FamilyGraph.get().update(getUniqueID(), attributes.getMotherUUID(), attributes.getFatherUUID(), attributes.getSpouseUUID());
+		}
 	}
 
 	@Override
 	public void writeSpawnData(ByteBuf buffer) 
 	{
-		attributes.writeSpawnData(buffer);
+		//Everything else is synced by the data manager, and player memories by VillagerAttributes.sendPlayerMemory().
 	}
 
 	@Override
 	public void readSpawnData(ByteBuf buffer) 
 	{
-		attributes.readSpawnData(buffer);
+		attributes.setDoDisplay(true);
 	}
 
 	@Override
@@ -403,7 +499,7 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 	@Override
 	public boolean canBePushed()
 	{
-		final ActionSleep sleepAI = behaviors.getAction(ActionSleep.class);		
+		final ActionSleep sleepAI = behaviors.getAction(VillagerBehaviors.SLEEP);		
 		return !sleepAI.getIsSleeping();
 	}
 
@@ -496,6 +592,11 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 			spouse.attributes.setSpouseGender(this.attributes.getGender());
 			spouse.attributes.setMarriageState(EnumMarriageState.MARRIED_TO_VILLAGER);
 
+			if (!world.isRemote)
+			{
+				FamilyGraph.get().setSpouses(getUniqueID(), spouse.getUniqueID());
+			}
+
 			getBehaviors().onMarriageToVillager();
 		}
 
@@ -514,6 +615,11 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 			playerData.setSpouseUUID(this.getUniqueID());
 			playerData.setMarriageState(EnumMarriageState.MARRIED_TO_VILLAGER);
 
+			if (!world.isRemote)
+			{
+				FamilyGraph.get().setSpouses(getUniqueID(), player.getUniqueID());
+			}
+
 			getBehaviors().onMarriageToPlayer();
 		}
 		
@@ -531,6 +637,11 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		attributes.setSpouseGender(EnumGender.UNASSIGNED);
 		attributes.setMarriageState(EnumMarriageState.NOT_MARRIED);
 
+		if (!world.isRemote)
+		{
+			FamilyGraph.get().clearSpouse(getUniqueID());
+		}
+
 		getBehaviors().onMarriageEnded();
 	}
 	
@@ -584,6 +695,11 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 	{
 		return this.behaviors.getAction(clazz);
 	}
+
+	public <T extends AbstractAction> T getBehavior(ActionHandle<T> handle)
+	{
+		return this.behaviors.getAction(handle);
+	}
 	
 	public void openInventory(EntityPlayer player)
 	{
@@ -640,7 +756,7 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		//Warriors, spouses, and player children all use weapons from the combat AI.
 		else if (profession == EnumProfession.Warrior || attributes.isMarriedToAPlayer() || profession == EnumProfession.Child)
 		{
-			return getBehavior(ActionCombat.class).getHeldItem();
+			return getBehavior(VillagerBehaviors.COMBAT).getHeldItem();
 		}
 		
 		return ItemStack.EMPTY;
@@ -793,6 +909,12 @@ public class EntityVillagerMCA extends EntityCreature implements IEntityAddition
 		return profiler;
 	}
 
+	/** @returns The AI level of detail this villager is currently running at. Always FULL on the client. */
+	public EnumAIDetail getAIDetail()
+	{
+		return aiDetail;
+	}
+
 	public void setHitboxSize(float width, float height)
 	{
 		this.setSize(width, height);
@@ -3,8 +3,6 @@ package mca.entity;
 import static mca.core.Constants.EMPTY_UUID;
 import static mca.core.Constants.EMPTY_UUID_OPT;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -14,10 +12,10 @@ import javax.annotation.Nullable;
 import com.google.common.base.Optional;
 import com.sun.istack.internal.NotNull;
 
-import io.netty.buffer.ByteBuf;
 import mca.actions.ActionStoryProgression;
 import mca.core.Constants;
 import mca.core.MCA;
+import mca.data.FamilyGraph;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerMemory;
 import mca.data.PlayerMemoryHandler;
@@ -32,13 +30,14 @@ import mca.enums.EnumProfessionSkinGroup;
 import mca.enums.EnumProgressionStep;
 import mca.inventory.VillagerInventory;
 import mca.packets.PacketSetSize;
+import mca.packets.PacketSyncPlayerMemory;
 import mca.util.Either;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.datasync.DataParameter;
 import net.minecraft.network.datasync.DataSerializers;
 import net.minecraft.network.datasync.EntityDataManager;
-import radixcore.modules.RadixNettyIO;
 
 public class VillagerAttributes 
 {
@@ -73,6 +72,38 @@ public class VillagerAttributes
 	private static final DataParameter<Boolean> DO_OPEN_INVENTORY = EntityDataManager.<Boolean>createKey(EntityVillagerMCA.class, DataSerializers.BOOLEAN);
 	private static final DataParameter<Integer> MARRIAGE_STATE = EntityDataManager.<Integer>createKey(EntityVillagerMCA.class, DataSerializers.VARINT);
 
+	//How each data manager value is saved, keyed by the name of its field above for compatibility with existing saves.
+	private static final AttributeCodec[] CODECS = new AttributeCodec[]
+	{
+		stringCodec(NAME, "NAME"),
+		stringCodec(HEAD_TEXTURE, "HEAD_TEXTURE"),
+		stringCodec(CLOTHES_TEXTURE, "CLOTHES_TEXTURE"),
+		intCodec(PROFESSION, "PROFESSION"),
+		intCodec(PERSONALITY, "PERSONALITY"),
+		intCodec(GENDER, "GENDER"),
+		stringCodec(SPOUSE_NAME, "SPOUSE_NAME"),
+		uuidCodec(SPOUSE_UUID, "SPOUSE_UUID"),
+		intCodec(SPOUSE_GENDER, "SPOUSE_GENDER"),
+		stringCodec(MOTHER_NAME, "MOTHER_NAME"),
+		uuidCodec(MOTHER_UUID, "MOTHER_UUID"),
+		intCodec(MOTHER_GENDER, "MOTHER_GENDER"),
+		stringCodec(FATHER_NAME, "FATHER_NAME"),
+		uuidCodec(FATHER_UUID, "FATHER_UUID"),
+		intCodec(FATHER_GENDER, "FATHER_GENDER"),
+		intCodec(BABY_STATE, "BABY_STATE"),
+		intCodec(MOVEMENT_STATE, "MOVEMENT_STATE"),
+		booleanCodec(IS_CHILD, "IS_CHILD"),
+		intCodec(AGE, "AGE"),
+		floatCodec(SCALE_HEIGHT, "SCALE_HEIGHT"),
+		floatCodec(SCALE_WIDTH, "SCALE_WIDTH"),
+		booleanCodec(DO_DISPLAY, "DO_DISPLAY"),
+		booleanCodec(IS_SWINGING, "IS_SWINGING"),
+		intCodec(HELD_ITEM_SLOT, "HELD_ITEM_SLOT"),
+		booleanCodec(IS_INFECTED, "IS_INFECTED"),
+		booleanCodec(DO_OPEN_INVENTORY, "DO_OPEN_INVENTORY"),
+		intCodec(MARRIAGE_STATE, "MARRIAGE_STATE")
+	};
+
 	private int timesWarnedForLowHearts;
 	private int ticksAlive;
 	private Map<String, PlayerMemory> playerMemories;
@@ -249,6 +280,11 @@ public class VillagerAttributes
 
 		setMarriageState(EnumMarriageState.ENGAGED);
 
+		if (!villager.world.isRemote)
+		{
+			FamilyGraph.get().setSpouses(villager.getUniqueID(), player.getUniqueID());
+		}
+
 		playerData.setSpouseName(this.getName());
 		playerData.setSpouseGender(this.getGender());
 		playerData.setSpouseUUID(villager.getUniqueID());
@@ -260,20 +296,7 @@ public class VillagerAttributes
 
 	public EntityVillagerMCA getVillagerSpouseInstance()
 	{
-		for (Object obj : villager.world.loadedEntityList)
-		{
-			if (obj instanceof EntityVillagerMCA)
-			{
-				EntityVillagerMCA villager = (EntityVillagerMCA)obj;
-
-				if (villager.getUniqueID().equals(getSpouseUUID()))
-				{
-					return villager;
-				}
-			}
-		}
-
-		return null;
+		return VillagerSpatialIndex.getVillagerByUUID(villager.world, getSpouseUUID());
 	}
 
 	public EntityPlayer getPlayerSpouseInstance()
@@ -314,6 +337,7 @@ public class VillagerAttributes
 	public void setMotherUUID(UUID uuid)
 	{
 		dataManager.set(MOTHER_UUID, Optional.of(uuid));
+		onMotherChanged();
 	}
 	
 	public void setMotherGender(EnumGender gender)
@@ -347,6 +371,16 @@ public class VillagerAttributes
 			dataManager.set(MOTHER_UUID, Optional.of(player.getUniqueID()));
 			dataManager.set(MOTHER_GENDER, data.getGender().getId());
 		}
+
+		onMotherChanged();
+	}
+
+	private void onMotherChanged()
+	{
+		if (!villager.world.isRemote)
+		{
+			FamilyGraph.get().setMother(villager.getUniqueID(), getMotherUUID());
+		}
 	}
 
 	public String getFatherName()
@@ -372,6 +406,7 @@ public class VillagerAttributes
 	public void setFatherUUID(UUID uuid)
 	{
 		dataManager.set(FATHER_UUID, Optional.of(uuid));
+		onFatherChanged();
 	}
 	
 	public void setFatherGender(EnumGender gender)
@@ -405,6 +440,16 @@ public class VillagerAttributes
 			dataManager.set(FATHER_UUID, Optional.of(player.getUniqueID()));
 			dataManager.set(FATHER_GENDER, data.getGender().getId());
 		}
+
+		onFatherChanged();
+	}
+
+	private void onFatherChanged()
+	{
+		if (!villager.world.isRemote)
+		{
+			FamilyGraph.get().setFather(villager.getUniqueID(), getFatherUUID());
+		}
 	}
 
 	public EnumBabyState getBabyState()
@@ -811,7 +856,8 @@ public class VillagerAttributes
 
 	public void setPlayerMemory(EntityPlayer player, PlayerMemory memory)
 	{
-		playerMemories.put(player.getName(), memory);
+		PlayerMemory oldMemory = playerMemories.put(player.getName(), memory);
+		VillagerSpatialIndex.onHeartsChanged(villager, player.getName(), oldMemory != null ? oldMemory.getHearts() : 0, memory.getHearts());
 	}
 
 	public PlayerMemory getPlayerMemory(EntityPlayer player)
@@ -823,6 +869,7 @@ public class VillagerAttributes
 		{
 			returnMemory = new PlayerMemory(villager, player);
 			playerMemories.put(playerName, returnMemory);
+			VillagerSpatialIndex.onHeartsChanged(villager, playerName, 0, returnMemory.getHearts());
 		}
 
 		return returnMemory;
@@ -862,59 +909,9 @@ public class VillagerAttributes
 
 	public void writeToNBT(NBTTagCompound nbt)
 	{
-		//Auto save data manager values to NBT by reflection
-		for (Field f : this.getClass().getDeclaredFields())
+		for (AttributeCodec codec : CODECS)
 		{
-			try
-			{
-				if (f.getType() == DataParameter.class)
-				{
-					Type genericType = f.getGenericType();
-					String typeName = genericType.getTypeName();
-					DataParameter param = (DataParameter) f.get(this);
-					String paramName = f.getName();
-
-					if (typeName.contains("Boolean"))
-					{
-						DataParameter<Boolean> bParam = (DataParameter<Boolean>)param;
-						nbt.setBoolean(paramName, dataManager.get(bParam).booleanValue());
-					}
-
-					else if (typeName.contains("Integer"))
-					{
-						DataParameter<Integer> iParam = (DataParameter<Integer>)param;
-						nbt.setInteger(paramName, dataManager.get(iParam).intValue());
-					}
-
-					else if (typeName.contains("String"))
-					{
-						DataParameter<String> sParam = (DataParameter<String>)param;
-						nbt.setString(paramName, dataManager.get(sParam));
-					}
-
-					else if (typeName.contains("Float"))
-					{
-						DataParameter<Float> fParam = (DataParameter<Float>)param;
-						nbt.setFloat(paramName, dataManager.get(fParam).floatValue());
-					}
-
-					else if (typeName.contains("Optional<java.util.UUID>"))
-					{
-						DataParameter<Optional<UUID>> uuParam = (DataParameter<Optional<UUID>>)param;
-						nbt.setUniqueId(paramName, dataManager.get(uuParam).get());
-					}
-
-					else
-					{
-						throw new RuntimeException("Field type not handled while saving to NBT: " + f.getName());
-					}
-				}
-			}
-
-			catch (Exception e)
-			{
-				e.printStackTrace();
-			}
+			codec.write(dataManager, nbt);
 		}
 
 		nbt.setInteger("ticksAlive", ticksAlive);
@@ -925,58 +922,12 @@ public class VillagerAttributes
 
 	public void readFromNBT(NBTTagCompound nbt)
 	{
-		//Auto read data manager values
-		for (Field f : this.getClass().getDeclaredFields())
+		//Memorial data isn't backed by a villager, so there's no data manager to read into.
+		if (dataManager != null)
 		{
-			try
-			{
-				if (f.getType() == DataParameter.class)
-				{
-					Type genericType = f.getGenericType();
-					String typeName = genericType.getTypeName();
-					DataParameter param = (DataParameter) f.get(this);
-					String paramName = f.getName();
-
-					if (typeName.contains("Boolean"))
-					{
-						DataParameter<Boolean> bParam = (DataParameter<Boolean>)param;
-						dataManager.set(bParam, nbt.getBoolean(paramName));
-					}
-
-					else if (typeName.contains("Integer"))
-					{
-						DataParameter<Integer> iParam = (DataParameter<Integer>)param;
-						dataManager.set(iParam, nbt.getInteger(paramName));
-					}
-
-					else if (typeName.contains("String"))
-					{
-						DataParameter<String> sParam = (DataParameter<String>)param;
-						dataManager.set(sParam, nbt.getString(paramName));
-					}
-
-					else if (typeName.contains("Float"))
-					{
-						DataParameter<Float> fParam = (DataParameter<Float>)param;
-						dataManager.set(fParam, nbt.getFloat(paramName));
-					}
-
-					else if (typeName.contains("Optional<java.util.UUID>"))
-					{
-						DataParameter<Optional<UUID>> uuParam = (DataParameter<Optional<UUID>>)param;
-						dataManager.set(uuParam, Optional.of(nbt.getUniqueId(paramName)));
-					}
-
-					else
-					{
-						throw new RuntimeException("Field type not handled while saving to NBT: " + f.getName());
-					}
-				}
-			}
-
-			catch (Exception e)
+			for (AttributeCodec codec : CODECS)
 			{
-				e.printStackTrace();
+				codec.read(dataManager, nbt);
 			}
 		}
 
@@ -995,16 +946,18 @@ public class VillagerAttributes
 		ticksAlive++;
 	}
 
-	public void writeSpawnData(ByteBuf buffer) 
+	/**
+	 * Sends the player this villager's memory of them, if it has one. Spawn data is the same for every player that
+	 * can see the villager, so each player's memory is sent on its own once they start tracking the villager.
+	 */
+	public void sendPlayerMemory(EntityPlayerMP player)
 	{
-		RadixNettyIO.writeObject(buffer, playerMemories);
-	}
+		PlayerMemory memory = getPlayerMemoryWithoutCreating(player);
 
-	public void readSpawnData(ByteBuf buffer) 
-	{
-		Map<String, PlayerMemory> recvMemories = (Map<String, PlayerMemory>) RadixNettyIO.readObject(buffer);
-		playerMemories = recvMemories;
-		setDoDisplay(true);
+		if (memory != null)
+		{
+			MCA.getPacketHandler().sendPacketToPlayer(new PacketSyncPlayerMemory(villager.getEntityId(), memory), player);
+		}
 	}
 
 	public void setSize(float width, float height) 
@@ -1021,4 +974,102 @@ public class VillagerAttributes
 	{
 		return villager.getPersistentID();
 	}
+
+	private static AttributeCodec booleanCodec(final DataParameter<Boolean> param, final String key)
+	{
+		return new AttributeCodec()
+		{
+			@Override
+			void write(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				nbt.setBoolean(key, dataManager.get(param).booleanValue());
+			}
+
+			@Override
+			void read(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				dataManager.set(param, nbt.getBoolean(key));
+			}
+		};
+	}
+
+	private static AttributeCodec intCodec(final DataParameter<Integer> param, final String key)
+	{
+		return new AttributeCodec()
+		{
+			@Override
+			void write(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				nbt.setInteger(key, dataManager.get(param).intValue());
+			}
+
+			@Override
+			void read(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				dataManager.set(param, nbt.getInteger(key));
+			}
+		};
+	}
+
+	private static AttributeCodec stringCodec(final DataParameter<String> param, final String key)
+	{
+		return new AttributeCodec()
+		{
+			@Override
+			void write(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				nbt.setString(key, dataManager.get(param));
+			}
+
+			@Override
+			void read(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				dataManager.set(param, nbt.getString(key));
+			}
+		};
+	}
+
+	private static AttributeCodec floatCodec(final DataParameter<Float> param, final String key)
+	{
+		return new AttributeCodec()
+		{
+			@Override
+			void write(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				nbt.setFloat(key, dataManager.get(param).floatValue());
+			}
+
+			@Override
+			void read(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				dataManager.set(param, nbt.getFloat(key));
+			}
+		};
+	}
+
+	private static AttributeCodec uuidCodec(final DataParameter<Optional<UUID>> param, final String key)
+	{
+		return new AttributeCodec()
+		{
+			@Override
+			void write(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				nbt.setUniqueId(key, dataManager.get(param).or(EMPTY_UUID));
+			}
+
+			@Override
+			void read(EntityDataManager dataManager, NBTTagCompound nbt)
+			{
+				dataManager.set(param, Optional.of(nbt.getUniqueId(key)));
+			}
+		};
+	}
+
+	/** Saves and loads one data manager value under a fixed NBT key. */
+	private abstract static class AttributeCodec
+	{
+		abstract void write(EntityDataManager dataManager, NBTTagCompound nbt);
+
+		abstract void read(EntityDataManager dataManager, NBTTagCompound nbt);
+	}
 }
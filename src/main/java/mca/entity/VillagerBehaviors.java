@@ -1,7 +1,10 @@
 package mca.entity;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import mca.actions.AbstractAction;
 import mca.actions.AbstractToggleAction;
@@ -27,60 +30,189 @@ import mca.actions.ActionStoryProgression;
 import mca.actions.ActionUpdateMood;
 import mca.actions.ActionWander;
 import mca.actions.ActionWoodcut;
+import mca.core.MCA;
+import mca.enums.EnumAIDetail;
 import mca.enums.EnumGender;
 import mca.enums.EnumProgressionStep;
 import mca.enums.EnumSleepingState;
+import mca.util.ActionProfiler;
 import net.minecraft.nbt.NBTTagCompound;
 
 /**
  * Manages the execution of AI objects attached to an actor.
+ * 
+ * Actions are registered once, globally, and each registration is assigned a slot. Every actor holds
+ * its actions in an array indexed by that slot, so fetching an action by handle is a single array load.
+ * Add-ons may register their own actions with registerAction() before any villager is created.
  */
 public class VillagerBehaviors 
 {
+	private static final List<ActionHandle<? extends AbstractAction>> REGISTRY = new ArrayList<ActionHandle<? extends AbstractAction>>();
+	private static final Map<Class<? extends AbstractAction>, ActionHandle<? extends AbstractAction>> HANDLES_BY_CLASS = new HashMap<Class<? extends AbstractAction>, ActionHandle<? extends AbstractAction>>();
+	//Set by the first villager created, which doesn't hold the registration lock. The maps above are only read after that.
+	private static volatile boolean registryFrozen;
+
+	public static final ActionHandle<ActionIdle> IDLE = registerAction(ActionIdle.class);
+	public static final ActionHandle<ActionRegenerate> REGENERATE = registerAction(ActionRegenerate.class);
+	public static final ActionHandle<ActionSleep> SLEEP = registerAction(ActionSleep.class);
+	public static final ActionHandle<ActionFollow> FOLLOW = registerAction(ActionFollow.class);
+	public static final ActionHandle<ActionGreet> GREET = registerAction(ActionGreet.class);
+	public static final ActionHandle<ActionStoryProgression> STORY_PROGRESSION = registerAction(ActionStoryProgression.class);
+	public static final ActionHandle<ActionProcreate> PROCREATE = registerAction(ActionProcreate.class);
+	public static final ActionHandle<ActionAttackResponse> ATTACK_RESPONSE = registerAction(ActionAttackResponse.class);
+	public static final ActionHandle<ActionPatrol> PATROL = registerAction(ActionPatrol.class);
+	public static final ActionHandle<ActionGrow> GROW = registerAction(ActionGrow.class);
+	public static final ActionHandle<ActionUpdateMood> UPDATE_MOOD = registerAction(ActionUpdateMood.class);
+	public static final ActionHandle<ActionBlink> BLINK = registerAction(ActionBlink.class);
+	public static final ActionHandle<ActionBuild> BUILD = registerAction(ActionBuild.class);
+	public static final ActionHandle<ActionMine> MINE = registerAction(ActionMine.class);
+	public static final ActionHandle<ActionWoodcut> WOODCUT = registerAction(ActionWoodcut.class);
+	public static final ActionHandle<ActionHunt> HUNT = registerAction(ActionHunt.class);
+	public static final ActionHandle<ActionCook> COOK = registerAction(ActionCook.class);
+	public static final ActionHandle<ActionFarm> FARM = registerAction(ActionFarm.class);
+	public static final ActionHandle<ActionFish> FISH = registerAction(ActionFish.class);
+	public static final ActionHandle<ActionDefend> DEFEND = registerAction(ActionDefend.class);
+	public static final ActionHandle<ActionWander> WANDER = registerAction(ActionWander.class);
+	public static final ActionHandle<ActionCombat> COMBAT = registerAction(ActionCombat.class);
+
 	private EntityVillagerMCA actor;
-	private List<AbstractAction> actions;
+	private final AbstractAction[] actions;
+	private final AbstractToggleAction[] toggleActions;
+	private final int[] updateIntervals;
+	private final int[] updatePhases;
+	private final boolean[] deferredUpdates;
+	private int updateTicks;
 
 	public VillagerBehaviors(EntityVillagerMCA actor)
 	{
 		this.actor = actor;
-		this.actions = new ArrayList<AbstractAction>();
-		
-		addAction(new ActionIdle(actor));
-		addAction(new ActionRegenerate(actor));
-		addAction(new ActionSleep(actor));
-		addAction(new ActionFollow(actor));
-		addAction(new ActionGreet(actor));
-		addAction(new ActionStoryProgression(actor));
-		addAction(new ActionProcreate(actor));
-		addAction(new ActionAttackResponse(actor));
-		addAction(new ActionPatrol(actor));
-		addAction(new ActionGrow(actor));
-		addAction(new ActionUpdateMood(actor));
-		addAction(new ActionBlink(actor));
-		addAction(new ActionBuild(actor));
-		addAction(new ActionMine(actor));
-		addAction(new ActionWoodcut(actor));
-		addAction(new ActionHunt(actor));
-		addAction(new ActionCook(actor));
-		addAction(new ActionFarm(actor));
-		addAction(new ActionFish(actor));
-		addAction(new ActionDefend(actor));
-		addAction(new ActionWander(actor));
-		addAction(new ActionCombat(actor));
+		registryFrozen = true;
+
+		this.actions = new AbstractAction[REGISTRY.size()];
+		List<AbstractToggleAction> toggles = new ArrayList<AbstractToggleAction>();
+
+		for (ActionHandle<? extends AbstractAction> handle : REGISTRY)
+		{
+			AbstractAction action = handle.newInstance(actor);
+			actions[handle.getSlot()] = action;
+
+			if (handle.isToggle())
+			{
+				toggles.add((AbstractToggleAction) action);
+			}
+		}
+
+		this.toggleActions = toggles.toArray(new AbstractToggleAction[toggles.size()]);
+		this.updateIntervals = new int[actions.length];
+		this.updatePhases = new int[actions.length];
+		this.deferredUpdates = new boolean[actions.length];
+
+		for (int i = 0; i < actions.length; i++)
+		{
+			updateIntervals[i] = Math.max(1, actions[i].getUpdateInterval());
+			updatePhases[i] = getPhase(actor.getEntityId(), i, updateIntervals[i]);
+		}
 	}
 
+	/**
+	 * Spreads actions with the same interval across ticks, both between villagers and between the
+	 * actions of a single villager, so that hundreds of villagers don't all do their periodic work at once.
+	 */
+	private static int getPhase(int entityId, int slot, int interval)
+	{
+		if (interval == 1)
+		{
+			return 0;
+		}
+
+		int hash = (entityId + slot * 0x61C88647) * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % interval;
+	}
+
+	/**
+	 * Registers an action type that will be created for every villager. The action class must declare a
+	 * public constructor accepting an EntityVillagerMCA. Must be called before any villager is constructed.
+	 * 
+	 * @param 	actionClass	The class of the action to register.
+	 * @return	A handle which can be used for constant-time lookup of the action on any villager.
+	 */
+	public static synchronized <T extends AbstractAction> ActionHandle<T> registerAction(Class<T> actionClass)
+	{
+		if (registryFrozen)
+		{
+			throw new IllegalStateException("Cannot register action " + actionClass.getName() + " after villagers have been created.");
+		}
+
+		if (HANDLES_BY_CLASS.containsKey(actionClass))
+		{
+			throw new IllegalArgumentException("Action " + actionClass.getName() + " is already registered.");
+		}
+
+		ActionHandle<T> handle = new ActionHandle<T>(actionClass, REGISTRY.size());
+		REGISTRY.add(handle);
+		HANDLES_BY_CLASS.put(actionClass, handle);
+		return handle;
+	}
+
+	/**
+	 * @return	The handle registered for the provided class, or null if the class was never registered.
+	 */
+	public static <T extends AbstractAction> ActionHandle<T> getHandle(Class<T> actionClass)
+	{
+		return (ActionHandle<T>) HANDLES_BY_CLASS.get(actionClass);
+	}
+
+	/**
+	 * Replaces this actor's instance of a registered action.
+	 */
 	public void addAction(AbstractAction AI)
 	{
-		actions.add(AI);
+		ActionHandle<? extends AbstractAction> handle = HANDLES_BY_CLASS.get(AI.getClass());
+
+		if (handle == null)
+		{
+			throw new IllegalArgumentException("Action " + AI.getClass().getName() + " has not been registered.");
+		}
+
+		actions[handle.getSlot()] = AI;
+		updateIntervals[handle.getSlot()] = Math.max(1, AI.getUpdateInterval());
+		updatePhases[handle.getSlot()] = getPhase(actor.getEntityId(), handle.getSlot(), updateIntervals[handle.getSlot()]);
+
+		if (handle.isToggle())
+		{
+			for (int i = 0; i < toggleActions.length; i++)
+			{
+				if (toggleActions[i].getClass() == AI.getClass())
+				{
+					toggleActions[i] = (AbstractToggleAction) AI;
+				}
+			}
+		}
 	}
 
 	public void onUpdate()
 	{
 		actor.getProfiler().startSection("MCA Villager Behaviors");
-		for (final AbstractAction action : actions)
+		final long startTime = System.nanoTime();
+		final boolean isProfiling = !actor.world.isRemote && ActionProfiler.isRunning();
+		long profiledNanos = 0L;
+		updateTicks++;
+
+		final EnumAIDetail detail = actor.getAIDetail();
+
+		for (int i = 0; i < actions.length; i++)
 		{
+			final AbstractAction action = actions[i];
 			boolean doRun = action instanceof AbstractToggleAction ? ((AbstractToggleAction)action).getIsActive() : true;
 
+			//Villagers far from any player only run what's needed to keep them aging and progressing. Chores remain
+			//active and pick back up when a player returns.
+			if (detail == EnumAIDetail.ESSENTIAL && !action.isEssential() && !actor.world.isRemote)
+			{
+				doRun = false;
+			}
+
 			if (doRun)
 			{
 				action.onUpdateCommon();
@@ -90,15 +222,105 @@ public class VillagerBehaviors
 					action.onUpdateClient();
 				}
 
-				else
+				else if (!deferredUpdates[i] && isUpdateDue(i, detail))
 				{
-					action.onUpdateServer();
+					if (action.isDeferrable() && !VillagerTickBudget.hasTimeRemaining())
+					{
+						deferredUpdates[i] = true;
+						VillagerTickBudget.defer(this, i);
+					}
+
+					else if (isProfiling)
+					{
+						profiledNanos += runProfiledUpdate(i);
+					}
+
+					else
+					{
+						action.onUpdateServer();
+					}
 				}
 			}
 		}
+
+		if (!actor.world.isRemote)
+		{
+			VillagerTickBudget.consume(System.nanoTime() - startTime);
+		}
+
+		if (isProfiling && profiledNanos > 0L)
+		{
+			ActionProfiler.recordVillager(actor, profiledNanos);
+		}
+
 		actor.getProfiler().endSection();
 	}
 
+	/**
+	 * Runs a server update that was postponed by the tick budget, provided the villager is still in the world
+	 * and the action would still be running.
+	 */
+	/*package-private*/ void runDeferredUpdate(int slot)
+	{
+		deferredUpdates[slot] = false;
+
+		final AbstractAction action = actions[slot];
+		boolean doRun = action instanceof AbstractToggleAction ? ((AbstractToggleAction)action).getIsActive() : true;
+
+		if (actor.getAIDetail() == EnumAIDetail.ESSENTIAL && !action.isEssential())
+		{
+			doRun = false;
+		}
+
+		if (doRun && !actor.isDead && actor.world.getEntityByID(actor.getEntityId()) == actor)
+		{
+			if (ActionProfiler.isRunning())
+			{
+				ActionProfiler.recordVillager(actor, runProfiledUpdate(slot));
+			}
+
+			else
+			{
+				action.onUpdateServer();
+			}
+		}
+	}
+
+	private long runProfiledUpdate(int slot)
+	{
+		final long startTime = System.nanoTime();
+		actions[slot].onUpdateServer();
+		final long elapsed = System.nanoTime() - startTime;
+
+		ActionProfiler.recordAction(actor.world.provider.getDimension(), slot, elapsed);
+		return elapsed;
+	}
+
+	private boolean isUpdateDue(int slot, EnumAIDetail detail)
+	{
+		int interval = updateIntervals[slot];
+		int phase = updatePhases[slot];
+
+		if (detail == EnumAIDetail.REDUCED && !actions[slot].isEssential())
+		{
+			final int reducedInterval = MCA.getConfig().aiReducedDetailInterval;
+
+			if (interval < reducedInterval)
+			{
+				interval = reducedInterval;
+				phase = getPhase(actor.getEntityId(), slot, interval);
+			}
+		}
+
+		return (updateTicks + phase) % interval == 0;
+	}
+
+	/** @returns Every registered action, in slot order. */
+	public static List<ActionHandle<? extends AbstractAction>> getRegisteredActions()
+	{
+		return Collections.unmodifiableList(REGISTRY);
+	}
+
 	public void writeToNBT(NBTTagCompound nbt)
 	{
 		for (final AbstractAction action : actions)
@@ -115,31 +337,24 @@ public class VillagerBehaviors
 		}
 	}
 
-	public <T extends AbstractAction> T getAction(Class<T> clazz)
+	public <T extends AbstractAction> T getAction(ActionHandle<T> handle)
 	{
-		for (final AbstractAction action : actions)
-		{
-			if (action.getClass() == clazz)
-			{
-				return (T) action;
-			}
-		}
+		return (T) actions[handle.getSlot()];
+	}
 
-		return null;
+	public <T extends AbstractAction> T getAction(Class<T> clazz)
+	{
+		ActionHandle<T> handle = getHandle(clazz);
+		return handle != null ? (T) actions[handle.getSlot()] : null;
 	}
 	
 	public boolean isToggleActionActive()
 	{
-		for (final AbstractAction action : actions)
+		for (final AbstractToggleAction tAction : toggleActions)
 		{
-			if (action instanceof AbstractToggleAction)
+			if (tAction.getIsActive())
 			{
-				AbstractToggleAction tAction = (AbstractToggleAction) action;
-				
-				if (tAction.getIsActive())
-				{
-					return true;
-				}
+				return true;
 			}
 		}
 		
@@ -148,16 +363,11 @@ public class VillagerBehaviors
 	
 	public String getActiveActionName()
 	{
-		for (final AbstractAction action : actions)
+		for (final AbstractToggleAction tAction : toggleActions)
 		{
-			if (action instanceof AbstractToggleAction)
+			if (tAction.getIsActive())
 			{
-				AbstractToggleAction tAction = (AbstractToggleAction) action;
-				
-				if (tAction.getIsActive())
-				{
-					return tAction.getName();
-				}
+				return tAction.getName();
 			}
 		}
 		
@@ -166,32 +376,28 @@ public class VillagerBehaviors
 	
 	public void disableAllToggleActions()
 	{
-		for (final AbstractAction action : actions)
+		for (final AbstractToggleAction tAction : toggleActions)
 		{
-			if (action instanceof AbstractToggleAction)
-			{
-				AbstractToggleAction tAction = (AbstractToggleAction) action;
-				tAction.setIsActive(false);
-			}
+			tAction.setIsActive(false);
 		}
 	}
 
 	public final void onMarriageToVillager() 
 	{
 		EntityVillagerMCA spouse = actor.attributes.getVillagerSpouseInstance();
-		getAction(ActionStoryProgression.class).setProgressionStep(EnumProgressionStep.TRY_FOR_BABY);
-		spouse.getBehavior(ActionStoryProgression.class).setProgressionStep(EnumProgressionStep.TRY_FOR_BABY);
+		getAction(STORY_PROGRESSION).setProgressionStep(EnumProgressionStep.TRY_FOR_BABY);
+		spouse.getBehavior(STORY_PROGRESSION).setProgressionStep(EnumProgressionStep.TRY_FOR_BABY);
 		
 		//Set the other human's story progression appropriately.
-		ActionStoryProgression story = actor.getBehavior(ActionStoryProgression.class);
+		ActionStoryProgression story = actor.getBehavior(STORY_PROGRESSION);
 		story.setProgressionStep(EnumProgressionStep.TRY_FOR_BABY);
 		
 		//Same-sex couples, only one can be dominant in story progression
 		if (actor.attributes.getGender() == spouse.attributes.getGender())
 		{
-			if (spouse.getBehavior(ActionStoryProgression.class).getIsDominant())
+			if (spouse.getBehavior(STORY_PROGRESSION).getIsDominant())
 			{
-				actor.getBehavior(ActionStoryProgression.class).setDominant(false);
+				actor.getBehavior(STORY_PROGRESSION).setDominant(false);
 			}
 		}
 
@@ -200,31 +406,31 @@ public class VillagerBehaviors
 		{
 			if (actor.attributes.getGender() == EnumGender.MALE)
 			{
-				actor.getBehavior(ActionStoryProgression.class).setDominant(true);
-				spouse.getBehavior(ActionStoryProgression.class).setDominant(false);
+				actor.getBehavior(STORY_PROGRESSION).setDominant(true);
+				spouse.getBehavior(STORY_PROGRESSION).setDominant(false);
 			}
 			
 			else
 			{
-				actor.getBehavior(ActionStoryProgression.class).setDominant(false);
-				spouse.getBehavior(ActionStoryProgression.class).setDominant(true);
+				actor.getBehavior(STORY_PROGRESSION).setDominant(false);
+				spouse.getBehavior(STORY_PROGRESSION).setDominant(true);
 			}
 		}
 	}
 
 	public final void onMarriageToPlayer()
 	{
-		getAction(ActionStoryProgression.class).setProgressionStep(EnumProgressionStep.FINISHED);
+		getAction(STORY_PROGRESSION).setProgressionStep(EnumProgressionStep.FINISHED);
 	}
 	
 	public final void onSay()
 	{
-		getAction(ActionIdle.class).reset();
-		getAction(ActionSleep.class).setSleepingState(EnumSleepingState.INTERRUPTED);
+		getAction(IDLE).reset();
+		getAction(SLEEP).setSleepingState(EnumSleepingState.INTERRUPTED);
 	}
 
 	public void onMarriageEnded() 
 	{
-		getAction(ActionStoryProgression.class).reset();
+		getAction(STORY_PROGRESSION).reset();
 	}
 }
@@ -0,0 +1,516 @@
+package mca.entity;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import mca.data.PlayerMemory;
+import mca.enums.EnumBabyState;
+import mca.enums.EnumProfessionSkinGroup;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+
+/**
+ * Server-side index of the MCA villagers in a world, bucketed by the chunk column they stand in and keyed by UUID.
+ * Villagers are added when they join the world, moved between buckets as they cross chunk borders, and removed
+ * when they die or their chunk unloads. Radius queries only visit the buckets that overlap the search area, and
+ * UUID lookups are a single map access, instead of walking the world's entity lists.
+ * 
+ * Each bucket also keeps running totals of its villagers, guards, villagers carrying a baby and the clamped hearts
+ * of every player they remember, so village-wide counts only visit the villagers on the edge of the area.
+ */
+public final class VillagerSpatialIndex
+{
+	/*package-private*/ static final long NOT_INDEXED = Long.MIN_VALUE;
+
+	private static final Map<World, VillagerSpatialIndex> INDEXES = new HashMap<World, VillagerSpatialIndex>();
+
+	private final Map<Long, Bucket> buckets = new HashMap<Long, Bucket>();
+	private final Map<UUID, EntityVillagerMCA> villagersByUUID = new HashMap<UUID, EntityVillagerMCA>();
+	private int size;
+
+	private VillagerSpatialIndex()
+	{
+	}
+
+	/**
+	 * @returns The index for the provided world, creating it if needed. Client worlds are never indexed and get an
+	 * 			empty index that isn't kept, so they can't leak and the client thread never touches the shared map.
+	 */
+	public static VillagerSpatialIndex get(World world)
+	{
+		if (world.isRemote)
+		{
+			return new VillagerSpatialIndex();
+		}
+
+		VillagerSpatialIndex index = INDEXES.get(world);
+
+		if (index == null)
+		{
+			index = new VillagerSpatialIndex();
+			INDEXES.put(world, index);
+		}
+
+		return index;
+	}
+
+	/**
+	 * @returns The loaded villager with the given UUID, or null. Client worlds are not indexed, so lookups on the
+	 * 			client fall back to scanning the world's entities.
+	 */
+	public static EntityVillagerMCA getVillagerByUUID(World world, UUID uuid)
+	{
+		if (!world.isRemote)
+		{
+			return get(world).getVillager(uuid);
+		}
+
+		for (Entity entity : world.loadedEntityList)
+		{
+			if (entity instanceof EntityVillagerMCA && entity.getUniqueID().equals(uuid))
+			{
+				return (EntityVillagerMCA) entity;
+			}
+		}
+
+		return null;
+	}
+
+	/** Drops the index of a world that is unloading. */
+	public static void remove(World world)
+	{
+		INDEXES.remove(world);
+	}
+
+	/** Updates the hearts totals of an indexed villager when its memory of a player changes. */
+	public static void onHeartsChanged(EntityVillagerMCA villager, String playerName, int oldHearts, int newHearts)
+	{
+		final VillagerSpatialIndex index = villager.indexedChunkKey != NOT_INDEXED ? INDEXES.get(villager.world) : null;
+		final Bucket bucket = index != null ? index.buckets.get(villager.indexedChunkKey) : null;
+
+		if (bucket != null)
+		{
+			bucket.addHearts(playerName, clampHearts(newHearts) - clampHearts(oldHearts));
+		}
+	}
+
+	/**
+	 * Adds the villager, or moves it to the right bucket if it has changed chunks. Also picks up changes to its
+	 * profession or baby since the last update.
+	 */
+	public void update(EntityVillagerMCA villager)
+	{
+		final long key = ChunkPos.asLong(MathHelper.floor(villager.posX) >> 4, MathHelper.floor(villager.posZ) >> 4);
+
+		if (key == villager.indexedChunkKey)
+		{
+			final boolean isGuard = isGuard(villager);
+			final boolean hasBaby = hasBaby(villager);
+
+			if (isGuard != villager.indexedAsGuard || hasBaby != villager.indexedWithBaby)
+			{
+				final Bucket bucket = buckets.get(key);
+				bucket.guards += (isGuard ? 1 : 0) - (villager.indexedAsGuard ? 1 : 0);
+				bucket.villagersWithBabies += (hasBaby ? 1 : 0) - (villager.indexedWithBaby ? 1 : 0);
+				villager.indexedAsGuard = isGuard;
+				villager.indexedWithBaby = hasBaby;
+			}
+
+			return;
+		}
+
+		if (villager.indexedChunkKey == NOT_INDEXED)
+		{
+			villagersByUUID.put(villager.getUniqueID(), villager);
+		}
+
+		else
+		{
+			removeFromBucket(villager);
+		}
+
+		Bucket bucket = buckets.get(key);
+
+		if (bucket == null)
+		{
+			bucket = new Bucket();
+			buckets.put(key, bucket);
+		}
+
+		villager.indexedChunkKey = key;
+		villager.indexedAsGuard = isGuard(villager);
+		villager.indexedWithBaby = hasBaby(villager);
+		bucket.add(villager);
+		size++;
+	}
+
+	public void remove(EntityVillagerMCA villager)
+	{
+		if (villager.indexedChunkKey == NOT_INDEXED)
+		{
+			return;
+		}
+
+		//Another entity may have taken over the UUID, such as a villager returning from another dimension.
+		if (villagersByUUID.get(villager.getUniqueID()) == villager)
+		{
+			villagersByUUID.remove(villager.getUniqueID());
+		}
+
+		removeFromBucket(villager);
+		villager.indexedChunkKey = NOT_INDEXED;
+	}
+
+	private void removeFromBucket(EntityVillagerMCA villager)
+	{
+		final Bucket bucket = buckets.get(villager.indexedChunkKey);
+
+		if (bucket != null && bucket.remove(villager))
+		{
+			size--;
+
+			if (bucket.villagers.isEmpty())
+			{
+				buckets.remove(villager.indexedChunkKey);
+			}
+		}
+	}
+
+	/** @returns The number of villagers in the index. */
+	public int size()
+	{
+		return size;
+	}
+
+	/** @returns The villager with the given UUID, or null if it is not loaded. */
+	public EntityVillagerMCA getVillager(UUID uuid)
+	{
+		final EntityVillagerMCA villager = villagersByUUID.get(uuid);
+		return villager != null && !villager.isDead ? villager : null;
+	}
+
+	/** @returns Every villager in the index. */
+	public List<EntityVillagerMCA> getAllVillagers()
+	{
+		final List<EntityVillagerMCA> villagers = new ArrayList<EntityVillagerMCA>(size);
+
+		for (Bucket bucket : buckets.values())
+		{
+			villagers.addAll(bucket.villagers);
+		}
+
+		return villagers;
+	}
+
+	/** @returns All villagers within the given distance of the entity, including the entity itself if it is a villager. */
+	public List<EntityVillagerMCA> getVillagersWithinDistance(Entity entity, double distance)
+	{
+		return getVillagersWithinDistance(entity.posX, entity.posY, entity.posZ, distance);
+	}
+
+	/** @returns All villagers within the given distance of the point. */
+	public List<EntityVillagerMCA> getVillagersWithinDistance(double x, double y, double z, double distance)
+	{
+		final List<EntityVillagerMCA> villagers = new ArrayList<EntityVillagerMCA>();
+		final double distanceSq = distance * distance;
+
+		for (Bucket bucket : getBuckets(x, z, distance))
+		{
+			for (EntityVillagerMCA villager : bucket.villagers)
+			{
+				if (!villager.isDead && villager.getDistanceSq(x, y, z) <= distanceSq)
+				{
+					villagers.add(villager);
+				}
+			}
+		}
+
+		return villagers;
+	}
+
+	/** @returns The number of villagers within the given distance of the point. Does not build a list. */
+	public int countVillagersWithinDistance(double x, double y, double z, double distance)
+	{
+		final double distanceSq = distance * distance;
+		int count = 0;
+
+		for (Bucket bucket : getBuckets(x, z, distance))
+		{
+			for (EntityVillagerMCA villager : bucket.villagers)
+			{
+				if (!villager.isDead && villager.getDistanceSq(x, y, z) <= distanceSq)
+				{
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/** @returns The closest villager to the entity within the given distance, not counting the entity itself. Null if there is none. */
+	public EntityVillagerMCA getClosestVillager(Entity entity, double distance)
+	{
+		EntityVillagerMCA closest = null;
+		double closestDistanceSq = distance * distance;
+
+		for (Bucket bucket : getBuckets(entity.posX, entity.posZ, distance))
+		{
+			for (EntityVillagerMCA villager : bucket.villagers)
+			{
+				if (villager != entity && !villager.isDead)
+				{
+					final double distanceSq = villager.getDistanceSqToEntity(entity);
+
+					if (distanceSq <= closestDistanceSq)
+					{
+						closest = villager;
+						closestDistanceSq = distanceSq;
+					}
+				}
+			}
+		}
+
+		return closest;
+	}
+
+	/**
+	 * @returns Up to k villagers nearest the point within the given distance, closest first.
+	 */
+	public List<EntityVillagerMCA> getNearestVillagers(final double x, final double y, final double z, double distance, int k)
+	{
+		final List<EntityVillagerMCA> villagers = getVillagersWithinDistance(x, y, z, distance);
+
+		Collections.sort(villagers, new Comparator<EntityVillagerMCA>()
+		{
+			@Override
+			public int compare(EntityVillagerMCA o1, EntityVillagerMCA o2)
+			{
+				return Double.compare(o1.getDistanceSq(x, y, z), o2.getDistanceSq(x, y, z));
+			}
+		});
+
+		return villagers.size() > k ? new ArrayList<EntityVillagerMCA>(villagers.subList(0, k)) : villagers;
+	}
+
+	/**
+	 * @returns The totals for the villagers within the given horizontal distance of the point. Hearts are summed for
+	 * 			the named player only, and may be null to skip them. Buckets lying wholly inside the area are read
+	 * 			from their running totals, so only the villagers in buckets crossing its edge are visited.
+	 */
+	public Census getCensus(double x, double z, double distance, String playerName)
+	{
+		final Census census = new Census();
+		final double distanceSq = distance * distance;
+
+		for (Map.Entry<Long, Bucket> entry : getBucketEntries(x, z, distance))
+		{
+			final Bucket bucket = entry.getValue();
+			final long key = entry.getKey();
+			final double minX = (double) ((int) key << 4);
+			final double minZ = (double) ((int) (key >> 32) << 4);
+			final double farX = Math.max(Math.abs(x - minX), Math.abs(x - (minX + 16)));
+			final double farZ = Math.max(Math.abs(z - minZ), Math.abs(z - (minZ + 16)));
+
+			if (farX * farX + farZ * farZ <= distanceSq)
+			{
+				census.population += bucket.villagers.size();
+				census.guards += bucket.guards;
+				census.villagersWithBabies += bucket.villagersWithBabies;
+
+				if (playerName != null)
+				{
+					final Integer hearts = bucket.hearts.get(playerName);
+					census.hearts += hearts != null ? hearts.intValue() : 0;
+				}
+
+				continue;
+			}
+
+			for (EntityVillagerMCA villager : bucket.villagers)
+			{
+				final double dX = villager.posX - x;
+				final double dZ = villager.posZ - z;
+
+				if (dX * dX + dZ * dZ <= distanceSq)
+				{
+					census.population++;
+					census.guards += villager.indexedAsGuard ? 1 : 0;
+					census.villagersWithBabies += villager.indexedWithBaby ? 1 : 0;
+
+					if (playerName != null)
+					{
+						final PlayerMemory memory = villager.attributes.getPlayerMemories().get(playerName);
+						census.hearts += memory != null ? clampHearts(memory.getHearts()) : 0;
+					}
+				}
+			}
+		}
+
+		return census;
+	}
+
+	private static boolean isGuard(EntityVillagerMCA villager)
+	{
+		return villager.attributes.getProfessionSkinGroup() == EnumProfessionSkinGroup.Guard;
+	}
+
+	private static boolean hasBaby(EntityVillagerMCA villager)
+	{
+		return villager.attributes.getBabyState() != EnumBabyState.NONE;
+	}
+
+	private static int clampHearts(int hearts)
+	{
+		return MathHelper.clamp(hearts, -100, 100);
+	}
+
+	/** @returns The non-empty buckets overlapping the square of the given radius around the point. */
+	private List<Bucket> getBuckets(double x, double z, double distance)
+	{
+		final List<Bucket> overlapping = new ArrayList<Bucket>();
+
+		for (Map.Entry<Long, Bucket> entry : getBucketEntries(x, z, distance))
+		{
+			overlapping.add(entry.getValue());
+		}
+
+		return overlapping;
+	}
+
+	/** @returns The non-empty buckets overlapping the square of the given radius around the point, with their keys. */
+	private List<Map.Entry<Long, Bucket>> getBucketEntries(double x, double z, double distance)
+	{
+		final List<Map.Entry<Long, Bucket>> overlapping = new ArrayList<Map.Entry<Long, Bucket>>();
+
+		if (size == 0)
+		{
+			return overlapping;
+		}
+
+		final int minChunkX = MathHelper.floor(x - distance) >> 4;
+		final int maxChunkX = MathHelper.floor(x + distance) >> 4;
+		final int minChunkZ = MathHelper.floor(z - distance) >> 4;
+		final int maxChunkZ = MathHelper.floor(z + distance) >> 4;
+
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+		{
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+			{
+				final long key = ChunkPos.asLong(chunkX, chunkZ);
+				final Bucket bucket = buckets.get(key);
+
+				if (bucket != null)
+				{
+					overlapping.add(new AbstractMap.SimpleImmutableEntry<Long, Bucket>(key, bucket));
+				}
+			}
+		}
+
+		return overlapping;
+	}
+
+	/** Totals for the villagers in an area, as returned by getCensus. */
+	public static final class Census
+	{
+		private int population;
+		private int guards;
+		private int villagersWithBabies;
+		private int hearts;
+
+		private Census()
+		{
+		}
+
+		/** @returns The number of villagers in the area, guards included. */
+		public int getPopulation()
+		{
+			return population;
+		}
+
+		public int getGuards()
+		{
+			return guards;
+		}
+
+		/** @returns The number of villagers in the area carrying a baby. */
+		public int getVillagersWithBabies()
+		{
+			return villagersWithBabies;
+		}
+
+		/** @returns The sum of the player's hearts with each villager in the area, each clamped to [-100, 100]. */
+		public int getHearts()
+		{
+			return hearts;
+		}
+	}
+
+	/** The villagers standing in one chunk column, and their running totals. */
+	private static final class Bucket
+	{
+		private final List<EntityVillagerMCA> villagers = new ArrayList<EntityVillagerMCA>(4);
+		private final Map<String, Integer> hearts = new HashMap<String, Integer>();
+		private int guards;
+		private int villagersWithBabies;
+
+		private void add(EntityVillagerMCA villager)
+		{
+			villagers.add(villager);
+			guards += villager.indexedAsGuard ? 1 : 0;
+			villagersWithBabies += villager.indexedWithBaby ? 1 : 0;
+
+			for (PlayerMemory memory : villager.attributes.getPlayerMemories().values())
+			{
+				addHearts(memory.getPlayerName(), clampHearts(memory.getHearts()));
+			}
+		}
+
+		private boolean remove(EntityVillagerMCA villager)
+		{
+			if (!villagers.remove(villager))
+			{
+				return false;
+			}
+
+			guards -= villager.indexedAsGuard ? 1 : 0;
+			villagersWithBabies -= villager.indexedWithBaby ? 1 : 0;
+
+			for (PlayerMemory memory : villager.attributes.getPlayerMemories().values())
+			{
+				addHearts(memory.getPlayerName(), -clampHearts(memory.getHearts()));
+			}
+
+			return true;
+		}
+
+		private void addHearts(String playerName, int delta)
+		{
+			if (delta == 0)
+			{
+				return;
+			}
+
+			final Integer current = hearts.get(playerName);
+			final int total = (current != null ? current.intValue() : 0) + delta;
+
+			if (total == 0)
+			{
+				hearts.remove(playerName);
+			}
+
+			else
+			{
+				hearts.put(playerName, total);
+			}
+		}
+	}
+}
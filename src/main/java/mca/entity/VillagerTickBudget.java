@@ -0,0 +1,79 @@
+package mca.entity;
+
+import java.util.ArrayDeque;
+
+import mca.core.MCA;
+
+/**
+ * Caps the time spent on villager behaviors each server tick. Deferrable action updates that come due
+ * after the budget is spent are queued and run first thing on the following tick, so a chunk full of
+ * villagers waking up at once spreads its work out instead of stalling the server.
+ *
+ * Actions that are not deferrable (combat, attack response) always run immediately.
+ */
+public final class VillagerTickBudget
+{
+	private static final ArrayDeque<DeferredUpdate> deferredUpdates = new ArrayDeque<DeferredUpdate>();
+	private static long nanosSpent;
+
+	private VillagerTickBudget()
+	{
+	}
+
+	/**
+	 * Resets the budget for a new server tick and works through updates deferred from previous ticks.
+	 */
+	public static void beginTick()
+	{
+		nanosSpent = 0L;
+
+		while (!deferredUpdates.isEmpty() && hasTimeRemaining())
+		{
+			final DeferredUpdate update = deferredUpdates.poll();
+			final long startTime = System.nanoTime();
+
+			update.behaviors.runDeferredUpdate(update.slot);
+			nanosSpent += System.nanoTime() - startTime;
+		}
+	}
+
+	/** Drops all queued updates, e.g. when the server stops. */
+	public static void clear()
+	{
+		deferredUpdates.clear();
+		nanosSpent = 0L;
+	}
+
+	public static int getDeferredCount()
+	{
+		return deferredUpdates.size();
+	}
+
+	/*package-private*/ static boolean hasTimeRemaining()
+	{
+		final int budgetMillis = MCA.getConfig().villagerTickBudget;
+		return budgetMillis <= 0 || nanosSpent < budgetMillis * 1000000L;
+	}
+
+	/*package-private*/ static void consume(long nanos)
+	{
+		nanosSpent += nanos;
+	}
+
+	/*package-private*/ static void defer(VillagerBehaviors behaviors, int slot)
+	{
+		deferredUpdates.add(new DeferredUpdate(behaviors, slot));
+	}
+
+	private static final class DeferredUpdate
+	{
+		private final VillagerBehaviors behaviors;
+		private final int slot;
+
+		private DeferredUpdate(VillagerBehaviors behaviors, int slot)
+		{
+			this.behaviors = behaviors;
+			this.slot = slot;
+		}
+	}
+}
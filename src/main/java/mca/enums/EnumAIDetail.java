@@ -0,0 +1,46 @@
+package mca.enums;
+
+/**
+ * How much of a villager's behavior stack is run each tick, based on how close the nearest player is.
+ */
+public enum EnumAIDetail 
+{
+	/** All actions run at their normal interval. */
+	FULL(0, "Full"),
+	/** Per-tick actions are throttled to the configured reduced interval. */
+	REDUCED(1, "Reduced"),
+	/** Only essential actions (regeneration, aging, story progression) run. Chores are suspended. */
+	ESSENTIAL(2, "Essential");
+	
+	private int id;
+	private String friendlyName;
+	
+	EnumAIDetail(int id, String friendlyName)
+	{
+		this.id = id;
+		this.friendlyName = friendlyName;
+	}
+	
+	public int getId()
+	{
+		return id;
+	}
+	
+	public String getFriendlyName()
+	{
+		return friendlyName;
+	}
+	
+	public static EnumAIDetail fromId(int id)
+	{
+		for (EnumAIDetail detail : EnumAIDetail.values())
+		{
+			if (detail.id == id)
+			{
+				return detail;
+			}
+		}
+		
+		return null;
+	}
+}
@@ -0,0 +1,41 @@
+package mca.enums;
+
+import mca.blocks.BlockVillagerBed;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockBed;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+
+/**
+ * Block types that villagers search for while doing chores or going to sleep, tracked by the PointOfInterestIndex.
+ */
+public enum EnumPointOfInterest
+{
+	FURNACE(Blocks.FURNACE),
+	VILLAGER_BED(null)
+	{
+		@Override
+		public boolean matches(IBlockState state)
+		{
+			//Only the foot of the bed is useful when looking for somewhere to sleep.
+			return state.getBlock() instanceof BlockVillagerBed && state.getValue(BlockBed.PART) == BlockBed.EnumPartType.FOOT;
+		}
+	},
+	OAK_DOOR(Blocks.OAK_DOOR),
+	WATER(Blocks.WATER),
+	OAK_FENCE(Blocks.OAK_FENCE),
+	OAK_FENCE_GATE(Blocks.OAK_FENCE_GATE),
+	GRASS(Blocks.GRASS);
+
+	private final Block block;
+
+	private EnumPointOfInterest(Block block)
+	{
+		this.block = block;
+	}
+
+	public boolean matches(IBlockState state)
+	{
+		return state.getBlock() == block;
+	}
+}
@@ -0,0 +1,185 @@
+package mca.network;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.EncoderException;
+
+/**
+ * Reads and writes the values MCA's packets are made of, in place of Java serialization. Everything read is checked
+ * against limits before anything is allocated for it, as packets sent by clients can't be trusted.
+ */
+public final class PacketCodec
+{
+	/** The longest string, in characters, that is read unless a packet asks for less. */
+	public static final int MAX_STRING_LENGTH = 32767;
+
+	//Tags of the values writeValue() supports.
+	private static final byte TYPE_INT = 0;
+	private static final byte TYPE_BOOLEAN = 1;
+	private static final byte TYPE_STRING = 2;
+
+	private PacketCodec()
+	{
+	}
+
+	/** Writes an int in one to five bytes, seven bits at a time. Small non-negative values take a single byte. */
+	public static void writeVarInt(ByteBuf buf, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			buf.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		buf.writeByte(value);
+	}
+
+	public static int readVarInt(ByteBuf buf)
+	{
+		int value = 0;
+
+		for (int shift = 0; shift < 35; shift += 7)
+		{
+			final byte b = buf.readByte();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+
+		throw new DecoderException("VarInt is longer than 5 bytes.");
+	}
+
+	/** @returns A collection size written with writeVarInt(), if it is between zero and the maximum. */
+	public static int readLength(ByteBuf buf, int maxLength)
+	{
+		final int length = readVarInt(buf);
+
+		if (length < 0 || length > maxLength)
+		{
+			throw new DecoderException("Length " + length + " is outside of 0 to " + maxLength + ".");
+		}
+
+		return length;
+	}
+
+	/** Writes a string as UTF-8, preceded by its length in bytes plus one. A length of zero means the string is null. */
+	public static void writeString(ByteBuf buf, String value)
+	{
+		if (value == null)
+		{
+			writeVarInt(buf, 0);
+			return;
+		}
+
+		if (value.length() > MAX_STRING_LENGTH)
+		{
+			throw new EncoderException("String is longer than " + MAX_STRING_LENGTH + " characters.");
+		}
+
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(buf, bytes.length + 1);
+		buf.writeBytes(bytes);
+	}
+
+	public static String readString(ByteBuf buf)
+	{
+		return readString(buf, MAX_STRING_LENGTH);
+	}
+
+	public static String readString(ByteBuf buf, int maxLength)
+	{
+		//A UTF-8 character is at most four bytes.
+		final int length = readLength(buf, maxLength * 4 + 1) - 1;
+
+		if (length == -1)
+		{
+			return null;
+		}
+
+		if (length > buf.readableBytes())
+		{
+			throw new DecoderException("String is longer than the rest of the packet.");
+		}
+
+		final String value = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+		buf.skipBytes(length);
+
+		if (value.length() > maxLength)
+		{
+			throw new DecoderException("String is longer than " + maxLength + " characters.");
+		}
+
+		return value;
+	}
+
+	/** Writes a UUID as two longs. The UUID must not be null. */
+	public static void writeUUID(ByteBuf buf, UUID value)
+	{
+		buf.writeLong(value.getMostSignificantBits());
+		buf.writeLong(value.getLeastSignificantBits());
+	}
+
+	public static UUID readUUID(ByteBuf buf)
+	{
+		final long mostSignificantBits = buf.readLong();
+		return new UUID(mostSignificantBits, buf.readLong());
+	}
+
+	/** Writes an enum constant by its ordinal, so the order of the enum's constants must match on both sides. */
+	public static void writeEnum(ByteBuf buf, Enum<?> value)
+	{
+		writeVarInt(buf, value.ordinal());
+	}
+
+	public static <E extends Enum<E>> E readEnum(ByteBuf buf, Class<E> type)
+	{
+		final E[] values = type.getEnumConstants();
+		return values[readLength(buf, values.length - 1)];
+	}
+
+	/** Writes an Integer, Boolean or String preceded by its type, for packets that carry a mix of values. */
+	public static void writeValue(ByteBuf buf, Object value)
+	{
+		if (value instanceof Integer)
+		{
+			buf.writeByte(TYPE_INT);
+			writeVarInt(buf, (Integer) value);
+		}
+
+		else if (value instanceof Boolean)
+		{
+			buf.writeByte(TYPE_BOOLEAN);
+			buf.writeBoolean((Boolean) value);
+		}
+
+		else if (value instanceof String)
+		{
+			buf.writeByte(TYPE_STRING);
+			writeString(buf, (String) value);
+		}
+
+		else
+		{
+			throw new EncoderException("Unable to write value of type " + (value == null ? "null" : value.getClass().getName()) + ".");
+		}
+	}
+
+	public static Object readValue(ByteBuf buf)
+	{
+		final byte type = buf.readByte();
+
+		switch (type)
+		{
+		case TYPE_INT: return readVarInt(buf);
+		case TYPE_BOOLEAN: return buf.readBoolean();
+		case TYPE_STRING: return readString(buf);
+		default: throw new DecoderException("Unknown value type " + type + ".");
+		}
+	}
+}
@@ -23,6 +23,7 @@ import mca.packets.PacketSetTutorialMessage;
 import mca.packets.PacketSpawnLightning;
 import mca.packets.PacketSyncConfig;
 import mca.packets.PacketSyncPlayerMemory;
+import mca.packets.PacketSyncPlayerMemoryChanges;
 import mca.packets.PacketToggleAI;
 import net.minecraftforge.fml.relauncher.Side;
 import radixcore.modules.net.AbstractPacketHandler;
@@ -61,5 +62,6 @@ public class PacketHandlerMCA extends AbstractPacketHandler
 		this.registerPacket(PacketPlayerDataC.class, Side.CLIENT);
 		this.registerPacket(PacketPlayerDataLogin.class, Side.CLIENT);
 		this.registerPacket(PacketOpenVillagerPrompt.class, Side.CLIENT);
+		this.registerPacket(PacketSyncPlayerMemoryChanges.class, Side.CLIENT);
 	}
 }
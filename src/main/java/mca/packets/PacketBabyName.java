@@ -7,18 +7,22 @@ import mca.core.minecraft.AchievementsMCA;
 import mca.core.minecraft.ItemsMCA;
 import mca.data.NBTPlayerData;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.items.ItemBaby;
+import mca.network.PacketCodec;
 import mca.util.TutorialManager;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import radixcore.modules.RadixLogic;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketBabyName extends AbstractPacket<PacketBabyName>
 {
+	//Longer than the naming screen allows, but short enough to keep out anything else.
+	private static final int MAX_NAME_LENGTH = 64;
+
 	private String babyName;
 	private int slot;
 	
@@ -35,15 +39,15 @@ public class PacketBabyName extends AbstractPacket<PacketBabyName>
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		babyName = (String) RadixNettyIO.readObject(byteBuf);
-		slot = byteBuf.readInt();
+		babyName = PacketCodec.readString(byteBuf, MAX_NAME_LENGTH);
+		slot = PacketCodec.readVarInt(byteBuf);
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, babyName);
-		byteBuf.writeInt(slot);
+		PacketCodec.writeString(byteBuf, babyName);
+		PacketCodec.writeVarInt(byteBuf, slot);
 	}
 
 	@Override
@@ -52,7 +56,7 @@ public class PacketBabyName extends AbstractPacket<PacketBabyName>
 		EntityPlayer senderPlayer = this.getPlayer(context);
 		ItemStack stack = packet.slot == -1 ? null : senderPlayer.inventory.getStackInSlot(packet.slot); //To avoid index out of bounds.
 		NBTPlayerData data = MCA.getPlayerData(senderPlayer);
-		EntityVillagerMCA playerSpouse = (EntityVillagerMCA)MCA.getEntityByUUID(senderPlayer.world, data.getSpouseUUID());
+		EntityVillagerMCA playerSpouse = VillagerSpatialIndex.getVillagerByUUID(senderPlayer.world, data.getSpouseUUID());
 		
 		//Player has the baby.
 		if (stack != null && stack.getItem() instanceof ItemBaby)
@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import io.netty.buffer.ByteBuf;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import radixcore.modules.net.AbstractPacket;
@@ -51,37 +52,18 @@ public class PacketCallVillager extends AbstractPacket<PacketCallVillager>
 		
 		if (packet.callAllRelated)
 		{
-			for (final Object obj : sender.world.loadedEntityList)
+			for (EntityVillagerMCA human : VillagerSpatialIndex.get(sender.world).getAllVillagers())
 			{
-				if (obj instanceof EntityVillagerMCA)
+				if (human.attributes.isPlayerAParent(sender) || human.attributes.getPlayerSpouseInstance() == sender)
 				{
-					EntityVillagerMCA human = (EntityVillagerMCA)obj;
-					
-					if (human.attributes.isPlayerAParent(sender) || human.attributes.getPlayerSpouseInstance() == sender)
-					{
-						human.setPositionAndUpdate(sender.posX, sender.posY, sender.posZ);
-					}
+					human.setPositionAndUpdate(sender.posX, sender.posY, sender.posZ);
 				}
 			}
 		}
 		
 		else
 		{
-			EntityVillagerMCA human = null;
-			
-			for (Object obj : sender.world.loadedEntityList)
-			{
-				if (obj instanceof EntityVillagerMCA)
-				{
-					EntityVillagerMCA theHuman = (EntityVillagerMCA)obj;
-					
-					if (theHuman.getUniqueID().equals(packet.callUUID))
-					{
-						human = theHuman;
-						break;
-					}
-				}
-			}
+			EntityVillagerMCA human = VillagerSpatialIndex.getVillagerByUUID(sender.world, packet.callUUID);
 			
 			if (human != null)
 			{
@@ -13,6 +13,7 @@ import mca.core.minecraft.ItemsMCA;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerMemory;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumBabyState;
 import mca.enums.EnumMarriageState;
 import mca.enums.EnumProgressionStep;
@@ -33,8 +34,6 @@ import net.minecraft.util.EnumParticleTypes;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.math.Point3D;
-import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
 import radixcore.modules.net.AbstractPacket;
 
@@ -122,7 +121,7 @@ public class PacketGift extends AbstractPacket<PacketGift>
 
 	private boolean handleMatchmakersRing(EntityPlayer player, EntityVillagerMCA human, ItemStack stack)
 	{
-		EntityVillagerMCA partner = RadixLogic.getClosestEntity(Point3D.fromEntityPosition(human), human.world, 5, EntityVillagerMCA.class, human);
+		EntityVillagerMCA partner = VillagerSpatialIndex.get(human.world).getClosestVillager(human, 5);
 
 		if (human.attributes.getIsChild())
 		{
@@ -1,7 +1,5 @@
 package mca.packets;
 
-import java.util.List;
-
 import io.netty.buffer.ByteBuf;
 import mca.actions.ActionProcreate;
 import mca.actions.ActionSleep;
@@ -14,16 +12,17 @@ import mca.core.minecraft.ItemsMCA;
 import mca.data.NBTPlayerData;
 import mca.data.PlayerMemory;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumDialogueType;
 import mca.enums.EnumInteraction;
 import mca.enums.EnumMovementState;
 import mca.enums.EnumPersonality;
 import mca.items.ItemBaby;
+import mca.network.PacketCodec;
 import mca.util.TutorialManager;
 import mca.util.TutorialMessage;
 import mca.util.Utilities;
 import net.minecraft.block.Block;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.passive.EntityHorse;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -40,11 +39,13 @@ import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import radixcore.constant.Font.Color;
 import radixcore.modules.RadixLogic;
 import radixcore.modules.RadixMath;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketInteract extends AbstractPacket<PacketInteract>
 {
+	//Interactions only ever send a couple of values along.
+	private static final int MAX_ADDITIONAL_DATA = 8;
+
 	private int buttonId;
 	private int entityId;
 	private int numAdditionalData;
@@ -71,29 +72,29 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		this.buttonId = byteBuf.readInt();
-		this.entityId = byteBuf.readInt();
-		this.numAdditionalData = byteBuf.readInt();
+		this.buttonId = PacketCodec.readVarInt(byteBuf);
+		this.entityId = PacketCodec.readVarInt(byteBuf);
+		this.numAdditionalData = PacketCodec.readLength(byteBuf, MAX_ADDITIONAL_DATA);
 		this.additionalData = new Object[numAdditionalData];
 
 		for (int i = 0; i < this.numAdditionalData; i++)
 		{
-			additionalData[i] = RadixNettyIO.readObject(byteBuf);
+			additionalData[i] = PacketCodec.readValue(byteBuf);
 		}
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		byteBuf.writeInt(buttonId);
-		byteBuf.writeInt(entityId);
-		byteBuf.writeInt(numAdditionalData);
+		PacketCodec.writeVarInt(byteBuf, buttonId);
+		PacketCodec.writeVarInt(byteBuf, entityId);
+		PacketCodec.writeVarInt(byteBuf, numAdditionalData);
 
 		if (numAdditionalData > 0)
 		{
 			for (Object obj : additionalData)
 			{
-				RadixNettyIO.writeObject(byteBuf, obj);
+				PacketCodec.writeValue(byteBuf, obj);
 			}
 		}
 	}
@@ -328,7 +329,7 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 				{
 					villager.say("interaction.divorce.priest.success", player);
 
-					EntityVillagerMCA spouse = (EntityVillagerMCA) MCA.getEntityByUUID(villager.world, data.getSpouseUUID());
+					EntityVillagerMCA spouse = VillagerSpatialIndex.getVillagerByUUID(villager.world, data.getSpouseUUID());
 
 					if (spouse != null)
 					{
@@ -473,8 +474,7 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 			
 			else if (interaction == EnumInteraction.TAXES)
 			{
-				List<EntityVillagerMCA> villagerList = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, villager, 50);
-				int percentAverage = getVillageHappinessPercentage(villager, player, villagerList);
+				int percentAverage = getVillageHappinessPercentage(villager, player);
 				
 				if (percentAverage != -1)
 				{
@@ -502,11 +502,10 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 					}
 						
 					//Randomly decrease hearts of all villagers around.
-					for (Entity entity : villagerList)
+					for (EntityVillagerMCA human : VillagerSpatialIndex.get(villager.world).getVillagersWithinDistance(villager, 50))
 					{
 						if (RadixLogic.getBooleanWithProbability(50))
 						{
-							EntityVillagerMCA human = (EntityVillagerMCA)entity;
 							PlayerMemory memory = human.attributes.getPlayerMemory(player);
 							memory.setHearts(memory.getHearts() - RadixMath.getNumberInRange(3, 8));
 						}
@@ -530,12 +529,8 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 			{
 				NBTPlayerData data = MCA.getPlayerData(player);
 				
-				//Horrible fix for an issue with RadixCore. TODO Investigate.
-				List<EntityVillagerMCA> villagerList = RadixLogic.getEntitiesWithinDistance(EntityVillagerMCA.class, villager, 50);
-				int percentAverage = getVillageHappinessPercentage(villager, player, villagerList);
-				
-				int happinessPercent = getVillageHappinessPercentage(villager, player, villagerList);
-				int requiredVillagers = 10 - villagerList.size();
+				int happinessPercent = getVillageHappinessPercentage(villager, player);
+				int requiredVillagers = 10 - VillagerSpatialIndex.get(villager.world).getCensus(villager.posX, villager.posZ, 50, null).getPopulation();
 				boolean flag = false; 
 				
 				if (happinessPercent == -1)
@@ -574,40 +569,29 @@ public class PacketInteract extends AbstractPacket<PacketInteract>
 	{
 		int childrenCount = 0;
 		
-		for (Object obj : FMLCommonHandler.instance().getMinecraftServerInstance().worlds[0].loadedEntityList)
+		for (EntityVillagerMCA human : VillagerSpatialIndex.get(FMLCommonHandler.instance().getMinecraftServerInstance().worlds[0]).getAllVillagers())
 		{
-			if (obj instanceof EntityVillagerMCA)
+			if (human.attributes.isPlayerAParent(player))
 			{
-				EntityVillagerMCA human = (EntityVillagerMCA)obj;
-
-				if (human.attributes.isPlayerAParent(player))
-				{
-					childrenCount++;
-				}
+				childrenCount++;
 			}
 		}
 
 		return childrenCount >= MCA.getConfig().childLimit && MCA.getConfig().childLimit != -1;
 	}
 	
-	private int getVillageHappinessPercentage(EntityVillagerMCA villager, EntityPlayer player, List<EntityVillagerMCA> villagerList)
+	private int getVillageHappinessPercentage(EntityVillagerMCA villager, EntityPlayer player)
 	{
-		int villagersInArea = villagerList.size();
+		VillagerSpatialIndex.Census census = VillagerSpatialIndex.get(villager.world).getCensus(villager.posX, villager.posZ, 50, player.getName());
+		int villagersInArea = census.getPopulation();
 				
 		if (villagersInArea >= 10)
 		{
-			//Calculate total hearts and averages.
-			int totalHearts = 0;
+			//Average hearts across the area. Villagers who don't remember the player count as zero.
+			int totalHearts = census.getHearts();
 			int percentAverage = 0;
 			double averageHearts = 0;
 			
-			for (Entity entity : villagerList)
-			{
-				EntityVillagerMCA human = (EntityVillagerMCA)entity;
-				PlayerMemory memory = human.attributes.getPlayerMemory(player);
-				totalHearts += MathHelper.clamp(memory.getHearts(), -100, 100);
-			}
-			
 			averageHearts = (float)totalHearts / (float)(villagersInArea * 100);
 			percentAverage = (int) (averageHearts * 100);
 			return percentAverage;
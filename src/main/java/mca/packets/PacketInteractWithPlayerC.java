@@ -8,13 +8,14 @@ import mca.core.Constants;
 import mca.core.MCA;
 import mca.data.NBTPlayerData;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
 import mca.enums.EnumMarriageState;
+import mca.network.PacketCodec;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketInteractWithPlayerC extends AbstractPacket<PacketInteractWithPlayerC>
@@ -40,17 +41,11 @@ public class PacketInteractWithPlayerC extends AbstractPacket<PacketInteractWith
 		targetIsEngaged = targetData.getMarriageState() == EnumMarriageState.ENGAGED;
 		isMarriedToInitiator = targetData.getSpouseUUID() == initData.getUUID();
 		
-		for (Object obj : initiator.world.loadedEntityList)
+		EntityVillagerMCA spouse = VillagerSpatialIndex.getVillagerByUUID(initiator.world, targetData.getSpouseUUID());
+		
+		if (spouse != null && spouse.attributes.getSpouseUUID().equals(targetData.getUUID()))
 		{
-			if (obj instanceof EntityVillagerMCA)
-			{
-				EntityVillagerMCA human = (EntityVillagerMCA)obj;
-				
-				if (human.attributes.getSpouseUUID() == targetData.getUUID())
-				{
-					targetSpouseName = human.attributes.getName();
-				}
-			}
+			targetSpouseName = spouse.attributes.getName();
 		}
 		
 		if (targetSpouseName == null || targetSpouseName.isEmpty())
@@ -62,21 +57,21 @@ public class PacketInteractWithPlayerC extends AbstractPacket<PacketInteractWith
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		targetEntityId = byteBuf.readInt();
+		targetEntityId = PacketCodec.readVarInt(byteBuf);
 		targetIsMarried = byteBuf.readBoolean();
 		targetIsEngaged = byteBuf.readBoolean();
 		isMarriedToInitiator = byteBuf.readBoolean();
-		targetSpouseName = (String) RadixNettyIO.readObject(byteBuf);
+		targetSpouseName = PacketCodec.readString(byteBuf);
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		byteBuf.writeInt(targetEntityId);
+		PacketCodec.writeVarInt(byteBuf, targetEntityId);
 		byteBuf.writeBoolean(targetIsMarried);
 		byteBuf.writeBoolean(targetIsEngaged);
 		byteBuf.writeBoolean(isMarriedToInitiator);
-		RadixNettyIO.writeObject(byteBuf, targetSpouseName);
+		PacketCodec.writeString(byteBuf, targetSpouseName);
 	}
 
 	@SideOnly(Side.CLIENT)
@@ -4,7 +4,6 @@ import io.netty.buffer.ByteBuf;
 import mca.core.MCA;
 import mca.data.NBTPlayerData;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketPlayerDataLogin extends AbstractPacket<PacketPlayerDataLogin>
@@ -23,13 +22,13 @@ public class PacketPlayerDataLogin extends AbstractPacket<PacketPlayerDataLogin>
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		playerData = (NBTPlayerData) RadixNettyIO.readObject(byteBuf);
+		playerData = NBTPlayerData.readFromByteBuf(byteBuf);
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, playerData);
+		playerData.writeToByteBuf(byteBuf);
 	}
 
 	@Override
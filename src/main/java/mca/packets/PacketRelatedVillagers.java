@@ -1,25 +1,34 @@
 package mca.packets;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import io.netty.buffer.ByteBuf;
 import mca.client.gui.GuiWhistle;
+import mca.data.PlayerMemory;
 import mca.entity.VillagerAttributes;
+import mca.network.PacketCodec;
 import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayer;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketRelatedVillagers extends AbstractPacket<PacketRelatedVillagers>
 {	
-	public List<VillagerAttributes> dataList;
+	//Bounds what a server can make the client allocate.
+	private static final int MAX_VILLAGERS = 1024;
+	private static final int MAX_NAME_LENGTH = 64;
+	private static final int MAX_TEXTURE_LENGTH = 256;
+
+	public List<RelatedVillager> dataList;
 	
 	public PacketRelatedVillagers()
 	{
 		//Required
 	}
 
-	public PacketRelatedVillagers(List<VillagerAttributes> dataList)
+	public PacketRelatedVillagers(List<RelatedVillager> dataList)
 	{
 		this.dataList = dataList;
 	}
@@ -27,13 +36,24 @@ public class PacketRelatedVillagers extends AbstractPacket<PacketRelatedVillager
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		this.dataList = (List<VillagerAttributes>) RadixNettyIO.readObject(byteBuf);
+		final int size = PacketCodec.readLength(byteBuf, MAX_VILLAGERS);
+		dataList = new ArrayList<RelatedVillager>(size);
+
+		for (int i = 0; i < size; i++)
+		{
+			dataList.add(RelatedVillager.readFromByteBuf(byteBuf));
+		}
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, dataList);
+		PacketCodec.writeVarInt(byteBuf, dataList.size());
+
+		for (RelatedVillager villager : dataList)
+		{
+			villager.writeToByteBuf(byteBuf);
+		}
 	}
 
 	@Override
@@ -45,4 +65,74 @@ public class PacketRelatedVillagers extends AbstractPacket<PacketRelatedVillager
 			gui.setVillagerDataList(packet.dataList);
 		}
 	}
+
+	/** What the whistle needs to show and call one of the player's relatives. */
+	public static final class RelatedVillager
+	{
+		public UUID uuid;
+		public String name;
+		public int genderId;
+		public int professionId;
+		public String headTexture;
+		public String clothesTexture;
+		public boolean isChild;
+		public int age;
+		public float scaleWidth;
+		public float scaleHeight;
+		public int relationId;
+
+		private RelatedVillager()
+		{
+		}
+
+		/** Copies what the whistle shows of the villager, as seen by the given player. */
+		public RelatedVillager(VillagerAttributes attributes, EntityPlayer player)
+		{
+			final PlayerMemory memory = attributes.getPlayerMemoryWithoutCreating(player);
+
+			uuid = attributes.getVillagerUUID();
+			name = attributes.getName();
+			genderId = attributes.getGender().getId();
+			professionId = attributes.getProfessionEnum().getId();
+			headTexture = attributes.getHeadTexture();
+			clothesTexture = attributes.getClothesTexture();
+			isChild = attributes.getIsChild();
+			age = attributes.getAge();
+			scaleWidth = attributes.getScaleWidth();
+			scaleHeight = attributes.getScaleHeight();
+			relationId = memory != null ? memory.getRelation().getId() : 0;
+		}
+
+		public void writeToByteBuf(ByteBuf buf)
+		{
+			PacketCodec.writeUUID(buf, uuid);
+			PacketCodec.writeString(buf, name);
+			PacketCodec.writeVarInt(buf, genderId);
+			PacketCodec.writeVarInt(buf, professionId);
+			PacketCodec.writeString(buf, headTexture);
+			PacketCodec.writeString(buf, clothesTexture);
+			buf.writeBoolean(isChild);
+			PacketCodec.writeVarInt(buf, age);
+			buf.writeFloat(scaleWidth);
+			buf.writeFloat(scaleHeight);
+			PacketCodec.writeVarInt(buf, relationId);
+		}
+
+		public static RelatedVillager readFromByteBuf(ByteBuf buf)
+		{
+			final RelatedVillager villager = new RelatedVillager();
+			villager.uuid = PacketCodec.readUUID(buf);
+			villager.name = PacketCodec.readString(buf, MAX_NAME_LENGTH);
+			villager.genderId = PacketCodec.readVarInt(buf);
+			villager.professionId = PacketCodec.readVarInt(buf);
+			villager.headTexture = PacketCodec.readString(buf, MAX_TEXTURE_LENGTH);
+			villager.clothesTexture = PacketCodec.readString(buf, MAX_TEXTURE_LENGTH);
+			villager.isChild = buf.readBoolean();
+			villager.age = PacketCodec.readVarInt(buf);
+			villager.scaleWidth = buf.readFloat();
+			villager.scaleHeight = buf.readFloat();
+			villager.relationId = PacketCodec.readVarInt(buf);
+			return villager;
+		}
+	}
 }
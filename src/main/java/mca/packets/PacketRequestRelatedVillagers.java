@@ -2,11 +2,14 @@ package mca.packets;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import io.netty.buffer.ByteBuf;
 import mca.core.MCA;
+import mca.data.FamilyGraph;
 import mca.entity.EntityVillagerMCA;
-import mca.entity.VillagerAttributes;
+import mca.entity.VillagerSpatialIndex;
+import mca.packets.PacketRelatedVillagers.RelatedVillager;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
@@ -33,18 +36,17 @@ public class PacketRequestRelatedVillagers extends AbstractPacket<PacketRequestR
 	public void processOnGameThread(PacketRequestRelatedVillagers packet, MessageContext context) 
 	{
 		EntityPlayer sender = this.getPlayer(context);
-		List<VillagerAttributes> dataList = new ArrayList<VillagerAttributes>();
+		List<RelatedVillager> dataList = new ArrayList<RelatedVillager>();
+		VillagerSpatialIndex index = VillagerSpatialIndex.get(sender.world);
 		
-		for (final Object obj : sender.world.loadedEntityList)
+		//Only loaded relatives can be sent, as the client needs their appearance.
+		for (UUID uuid : FamilyGraph.get().getRelatives(sender.getUniqueID()))
 		{
-			if (obj instanceof EntityVillagerMCA)
+			EntityVillagerMCA human = index.getVillager(uuid);
+
+			if (human != null)
 			{
-				EntityVillagerMCA human = (EntityVillagerMCA)obj;
-				
-				if (human.attributes.isPlayerAParent(sender) || human.attributes.getPlayerSpouseInstance() == sender)
-				{
-					dataList.add(human.attributes);
-				}
+				dataList.add(new RelatedVillager(human.attributes, sender));
 			}
 		}
 		
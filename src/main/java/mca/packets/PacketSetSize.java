@@ -4,11 +4,12 @@ import java.util.UUID;
 
 import io.netty.buffer.ByteBuf;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerSpatialIndex;
+import mca.network.PacketCodec;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketSetSize extends AbstractPacket<PacketSetSize>
@@ -33,8 +34,8 @@ public class PacketSetSize extends AbstractPacket<PacketSetSize>
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		this.entityUUID = (UUID) RadixNettyIO.readObject(byteBuf);
-		this.entityId = byteBuf.readInt();
+		this.entityUUID = PacketCodec.readUUID(byteBuf);
+		this.entityId = PacketCodec.readVarInt(byteBuf);
 		this.width = byteBuf.readFloat();
 		this.height = byteBuf.readFloat();
 	}
@@ -42,8 +43,8 @@ public class PacketSetSize extends AbstractPacket<PacketSetSize>
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, this.entityUUID);
-		byteBuf.writeInt(entityId);
+		PacketCodec.writeUUID(byteBuf, this.entityUUID);
+		PacketCodec.writeVarInt(byteBuf, entityId);
 		byteBuf.writeFloat(this.width);
 		byteBuf.writeFloat(this.height);
 	}
@@ -53,28 +54,10 @@ public class PacketSetSize extends AbstractPacket<PacketSetSize>
 	{
 		EntityPlayer player = getPlayer(context);
 		World world = player.world;
-		EntityVillagerMCA human = null;
 
-		for (Object obj : world.loadedEntityList)
-		{
-			Entity entity = (Entity)obj;
-			
-			try
-			{
-				//Two-factor check for different MC versions. UUIDs do not appear to work properly in 1.7.10, and
-				//I believe actual entity IDs are deprecated later.
-				if (entity.getUniqueID().toString().equals(packet.entityUUID) || entity.getEntityId() == packet.entityId)
-				{
-					human = (EntityVillagerMCA) entity;
-					break;
-				}
-			}
-
-			catch (Exception e) //ClassCast or NullPointer is possible here. Ignore.
-			{
-				continue;
-			}
-		}
+		//Entity IDs are hashed by the world, so try them first. The UUID is the fallback.
+		Entity entity = world.getEntityByID(packet.entityId);
+		EntityVillagerMCA human = entity instanceof EntityVillagerMCA ? (EntityVillagerMCA) entity : VillagerSpatialIndex.getVillagerByUUID(world, packet.entityUUID);
 
 		if (human != null)
 		{
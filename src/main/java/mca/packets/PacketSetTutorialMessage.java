@@ -1,10 +1,10 @@
 package mca.packets;
 
 import io.netty.buffer.ByteBuf;
+import mca.network.PacketCodec;
 import mca.util.TutorialManager;
 import mca.util.TutorialMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketSetTutorialMessage extends AbstractPacket<PacketSetTutorialMessage>
@@ -23,13 +23,14 @@ public class PacketSetTutorialMessage extends AbstractPacket<PacketSetTutorialMe
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		tutorialMessage = (TutorialMessage) RadixNettyIO.readObject(byteBuf);
+		tutorialMessage = new TutorialMessage(PacketCodec.readString(byteBuf, 256), PacketCodec.readString(byteBuf, 256));
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, tutorialMessage);
+		PacketCodec.writeString(byteBuf, tutorialMessage.line1);
+		PacketCodec.writeString(byteBuf, tutorialMessage.line2);
 	}
 
 	@Override
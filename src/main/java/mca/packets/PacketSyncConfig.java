@@ -4,7 +4,6 @@ import io.netty.buffer.ByteBuf;
 import mca.core.Config;
 import mca.core.MCA;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketSyncConfig extends AbstractPacket<PacketSyncConfig>
@@ -23,13 +22,13 @@ public class PacketSyncConfig extends AbstractPacket<PacketSyncConfig>
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		configObject = (Config) RadixNettyIO.readObject(byteBuf);
+		configObject = Config.readFromByteBuf(byteBuf);
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{
-		RadixNettyIO.writeObject(byteBuf, configObject);
+		configObject.writeToByteBuf(byteBuf);
 	}
 
 	@Override
@@ -3,9 +3,9 @@ package mca.packets;
 import io.netty.buffer.ByteBuf;
 import mca.data.PlayerMemory;
 import mca.entity.EntityVillagerMCA;
+import mca.network.PacketCodec;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
-import radixcore.modules.RadixNettyIO;
 import radixcore.modules.net.AbstractPacket;
 
 public class PacketSyncPlayerMemory extends AbstractPacket<PacketSyncPlayerMemory>
@@ -26,15 +26,15 @@ public class PacketSyncPlayerMemory extends AbstractPacket<PacketSyncPlayerMemor
 	@Override
 	public void fromBytes(ByteBuf byteBuf)
 	{
-		this.entityId = byteBuf.readInt();
-		this.memory = (PlayerMemory) RadixNettyIO.readObject(byteBuf);
+		this.entityId = PacketCodec.readVarInt(byteBuf);
+		this.memory = PlayerMemory.readFromByteBuf(byteBuf);
 	}
 
 	@Override
 	public void toBytes(ByteBuf byteBuf)
 	{		
-		byteBuf.writeInt(entityId);
-		RadixNettyIO.writeObject(byteBuf, this.memory);
+		PacketCodec.writeVarInt(byteBuf, entityId);
+		this.memory.writeToByteBuf(byteBuf);
 	}
 
 	@Override
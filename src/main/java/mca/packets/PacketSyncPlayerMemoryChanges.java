@@ -0,0 +1,111 @@
+package mca.packets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import mca.entity.EntityVillagerMCA;
+import mca.network.PacketCodec;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import radixcore.modules.net.AbstractPacket;
+
+/**
+ * The changes made to a player's memories during one tick, for every villager whose memory of them changed.
+ */
+public class PacketSyncPlayerMemoryChanges extends AbstractPacket<PacketSyncPlayerMemoryChanges>
+{
+	/** The most changes sent in one packet. Larger batches are split. */
+	public static final int MAX_CHANGES = 1024;
+
+	//Positions in the packed layout fit in an int mask.
+	private static final int MAX_VALUES = 32;
+
+	private List<Change> changes;
+
+	public PacketSyncPlayerMemoryChanges()
+	{
+	}
+
+	public PacketSyncPlayerMemoryChanges(List<Change> changes)
+	{
+		this.changes = changes;
+	}
+
+	@Override
+	public void fromBytes(ByteBuf byteBuf)
+	{
+		final int size = PacketCodec.readLength(byteBuf, MAX_CHANGES);
+		changes = new ArrayList<Change>(size);
+
+		for (int i = 0; i < size; i++)
+		{
+			final int entityId = PacketCodec.readVarInt(byteBuf);
+			final int changed = PacketCodec.readVarInt(byteBuf);
+			final int[] values = new int[MAX_VALUES];
+
+			for (int position = 0; position < MAX_VALUES; position++)
+			{
+				if ((changed & (1 << position)) != 0)
+				{
+					values[position] = PacketCodec.readVarInt(byteBuf);
+				}
+			}
+
+			changes.add(new Change(entityId, changed, values));
+		}
+	}
+
+	@Override
+	public void toBytes(ByteBuf byteBuf)
+	{
+		PacketCodec.writeVarInt(byteBuf, changes.size());
+
+		for (Change change : changes)
+		{
+			PacketCodec.writeVarInt(byteBuf, change.entityId);
+			PacketCodec.writeVarInt(byteBuf, change.changed);
+
+			//Only the changed values are written, in order of their position.
+			for (int position = 0; position < change.values.length; position++)
+			{
+				if ((change.changed & (1 << position)) != 0)
+				{
+					PacketCodec.writeVarInt(byteBuf, change.values[position]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void processOnGameThread(PacketSyncPlayerMemoryChanges packet, MessageContext context) 
+	{
+		EntityPlayer player = getPlayer(context);
+
+		for (Change change : packet.changes)
+		{
+			Entity entity = player.world.getEntityByID(change.entityId);
+
+			if (entity instanceof EntityVillagerMCA)
+			{
+				((EntityVillagerMCA) entity).attributes.getPlayerMemory(player).applyChanges(change.changed, change.values);
+			}
+		}
+	}
+
+	/** One villager's changed memory values, as a mask of their positions in the packed layout and the layout itself. */
+	public static final class Change
+	{
+		private final int entityId;
+		private final int changed;
+		private final int[] values;
+
+		public Change(int entityId, int changed, int[] values)
+		{
+			this.entityId = entityId;
+			this.changed = changed;
+			this.values = values;
+		}
+	}
+}
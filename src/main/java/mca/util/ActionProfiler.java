@@ -0,0 +1,325 @@
+package mca.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import mca.actions.AbstractAction;
+import mca.core.MCA;
+import mca.entity.ActionHandle;
+import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerBehaviors;
+
+/**
+ * Accumulates server-side timings of every villager action while a profiling session is running.
+ * Timings are kept per action and per dimension, along with the total time spent on each villager.
+ * Controlled with /mca profile start|stop|dump.
+ */
+public final class ActionProfiler
+{
+	/** Timings are bucketed with this many sub-buckets per power of two, giving percentiles within ~12%. */
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private static final Map<Integer, ActionStats[]> statsByDimension = new TreeMap<Integer, ActionStats[]>();
+	private static final Map<UUID, VillagerStats> statsByVillager = new HashMap<UUID, VillagerStats>();
+	private static boolean isRunning;
+	private static long startTimeMillis;
+	private static long elapsedTimeMillis;
+
+	private ActionProfiler()
+	{
+	}
+
+	public static boolean isRunning()
+	{
+		return isRunning;
+	}
+
+	/** Discards any previous results and begins a new session. */
+	public static void start()
+	{
+		statsByDimension.clear();
+		statsByVillager.clear();
+		startTimeMillis = System.currentTimeMillis();
+		elapsedTimeMillis = 0L;
+		isRunning = true;
+	}
+
+	public static void stop()
+	{
+		if (isRunning)
+		{
+			elapsedTimeMillis = System.currentTimeMillis() - startTimeMillis;
+			isRunning = false;
+		}
+	}
+
+	/** Records a single server update of the action in the given slot. */
+	public static void recordAction(int dimension, int slot, long nanos)
+	{
+		ActionStats[] stats = statsByDimension.get(dimension);
+
+		if (stats == null)
+		{
+			stats = new ActionStats[VillagerBehaviors.getRegisteredActions().size()];
+			statsByDimension.put(dimension, stats);
+		}
+
+		if (stats[slot] == null)
+		{
+			stats[slot] = new ActionStats();
+		}
+
+		stats[slot].record(nanos);
+	}
+
+	/** Records the total time spent on one villager's actions during one tick. */
+	public static void recordVillager(EntityVillagerMCA villager, long nanos)
+	{
+		VillagerStats stats = statsByVillager.get(villager.getUniqueID());
+
+		if (stats == null)
+		{
+			stats = new VillagerStats(villager.getUniqueID());
+			statsByVillager.put(villager.getUniqueID(), stats);
+		}
+
+		stats.name = villager.getName();
+		stats.dimension = villager.world.provider.getDimension();
+		stats.ticks++;
+		stats.totalNanos += nanos;
+	}
+
+	/** @returns Human-readable summary lines of the current or last session. */
+	public static List<String> getSummary(int topVillagers)
+	{
+		final List<String> lines = new ArrayList<String>();
+		lines.add("Profiled " + getElapsedTimeMillis() / 1000 + "s" + (isRunning ? " (running)" : ""));
+
+		for (Map.Entry<Integer, ActionStats[]> entry : statsByDimension.entrySet())
+		{
+			lines.add("Dimension " + entry.getKey() + ":");
+
+			for (int slot : getSlotsByTotalTime(entry.getValue()))
+			{
+				final ActionStats stats = entry.getValue()[slot];
+				lines.add("  " + getActionName(slot) + ": " + stats.calls + " calls, " + formatNanos(stats.totalNanos) + " total, "
+						+ formatNanos(stats.getMeanNanos()) + " mean, " + formatNanos(stats.getPercentileNanos(0.99D)) + " p99");
+			}
+		}
+
+		final List<VillagerStats> villagers = getVillagersByTotalTime();
+
+		if (!villagers.isEmpty())
+		{
+			lines.add("Most expensive villagers:");
+
+			for (int i = 0; i < villagers.size() && i < topVillagers; i++)
+			{
+				final VillagerStats stats = villagers.get(i);
+				lines.add("  " + stats.name + " (dimension " + stats.dimension + "): " + formatNanos(stats.totalNanos) + " over " + stats.ticks + " ticks");
+			}
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Writes the full results of the current or last session as CSV to the MCA config folder.
+	 *
+	 * @returns The file written.
+	 */
+	public static File writeCSV() throws IOException
+	{
+		final File directory = new File(MCA.getConfig().getInstance().getConfigFile().getParentFile(), "MCA/profiles");
+		directory.mkdirs();
+
+		final File file = new File(directory, "profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+		final PrintWriter writer = new PrintWriter(new FileWriter(file));
+
+		try
+		{
+			writer.println("dimension,action,calls,total_ns,mean_ns,p99_ns,max_ns");
+
+			for (Map.Entry<Integer, ActionStats[]> entry : statsByDimension.entrySet())
+			{
+				for (int slot : getSlotsByTotalTime(entry.getValue()))
+				{
+					final ActionStats stats = entry.getValue()[slot];
+					writer.println(entry.getKey() + "," + getActionName(slot) + "," + stats.calls + "," + stats.totalNanos + ","
+							+ stats.getMeanNanos() + "," + stats.getPercentileNanos(0.99D) + "," + stats.maxNanos);
+				}
+			}
+
+			writer.println();
+			writer.println("villager_uuid,name,dimension,ticks,total_ns");
+
+			for (VillagerStats stats : getVillagersByTotalTime())
+			{
+				writer.println(stats.uuid + "," + stats.name.replace(",", "") + "," + stats.dimension + "," + stats.ticks + "," + stats.totalNanos);
+			}
+		}
+
+		finally
+		{
+			writer.close();
+		}
+
+		return file;
+	}
+
+	private static long getElapsedTimeMillis()
+	{
+		return isRunning ? System.currentTimeMillis() - startTimeMillis : elapsedTimeMillis;
+	}
+
+	private static String getActionName(int slot)
+	{
+		final ActionHandle<? extends AbstractAction> handle = VillagerBehaviors.getRegisteredActions().get(slot);
+		return handle.getActionClass().getSimpleName();
+	}
+
+	private static List<Integer> getSlotsByTotalTime(final ActionStats[] stats)
+	{
+		final List<Integer> slots = new ArrayList<Integer>();
+
+		for (int i = 0; i < stats.length; i++)
+		{
+			if (stats[i] != null)
+			{
+				slots.add(i);
+			}
+		}
+
+		Collections.sort(slots, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				return Long.compare(stats[o2].totalNanos, stats[o1].totalNanos);
+			}
+		});
+
+		return slots;
+	}
+
+	private static List<VillagerStats> getVillagersByTotalTime()
+	{
+		final List<VillagerStats> villagers = new ArrayList<VillagerStats>(statsByVillager.values());
+
+		Collections.sort(villagers, new Comparator<VillagerStats>()
+		{
+			@Override
+			public int compare(VillagerStats o1, VillagerStats o2)
+			{
+				return Long.compare(o2.totalNanos, o1.totalNanos);
+			}
+		});
+
+		return villagers;
+	}
+
+	private static String formatNanos(long nanos)
+	{
+		if (nanos >= 1000000L)
+		{
+			return String.format("%.2fms", nanos / 1000000.0D);
+		}
+
+		else
+		{
+			return String.format("%.1fus", nanos / 1000.0D);
+		}
+	}
+
+	private static int getBucket(long nanos)
+	{
+		if (nanos < SUB_BUCKETS)
+		{
+			return (int) Math.max(nanos, 0L);
+		}
+
+		final int bits = 63 - Long.numberOfLeadingZeros(nanos);
+		final int subBucket = (int) (nanos >>> (bits - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (bits - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long getBucketUpperBound(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+
+		final int bits = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		final int subBucket = bucket % SUB_BUCKETS;
+		final long lowerBound = (long) (SUB_BUCKETS + subBucket) << (bits - SUB_BUCKET_BITS);
+		return lowerBound + (1L << (bits - SUB_BUCKET_BITS)) - 1;
+	}
+
+	private static final class ActionStats
+	{
+		private final int[] histogram = new int[BUCKET_COUNT];
+		private long calls;
+		private long totalNanos;
+		private long maxNanos;
+
+		private void record(long nanos)
+		{
+			calls++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+			histogram[getBucket(nanos)]++;
+		}
+
+		private long getMeanNanos()
+		{
+			return calls == 0 ? 0 : totalNanos / calls;
+		}
+
+		private long getPercentileNanos(double percentile)
+		{
+			final long target = (long) Math.ceil(calls * percentile);
+			long seen = 0;
+
+			for (int i = 0; i < histogram.length; i++)
+			{
+				seen += histogram[i];
+
+				if (seen >= target && seen > 0)
+				{
+					return Math.min(getBucketUpperBound(i), maxNanos);
+				}
+			}
+
+			return maxNanos;
+		}
+	}
+
+	private static final class VillagerStats
+	{
+		private final UUID uuid;
+		private String name;
+		private int dimension;
+		private long ticks;
+		private long totalNanos;
+
+		private VillagerStats(UUID uuid)
+		{
+			this.uuid = uuid;
+		}
+	}
+}
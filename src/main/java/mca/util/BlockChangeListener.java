@@ -0,0 +1,92 @@
+package mca.util;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorldEventListener;
+import net.minecraft.world.World;
+
+/**
+ * Listens to a server world for block changes, to keep MCA's caches of its blocks and chore plans current. Unlike
+ * NeighborNotifyEvent, this also hears changes made without notifying neighbors, such as liquids settling and
+ * features placed into neighboring chunks while they populate.
+ */
+public final class BlockChangeListener implements IWorldEventListener
+{
+	/** Starts listening to the world. Called as each server world loads. */
+	public static void register(World world)
+	{
+		world.addEventListener(new BlockChangeListener());
+	}
+
+	private BlockChangeListener()
+	{
+	}
+
+	@Override
+	public void notifyBlockUpdate(World world, BlockPos pos, IBlockState oldState, IBlockState newState, int flags)
+	{
+		PointOfInterestIndex.onBlockChanged(world, pos, newState);
+		ChorePlanner.onBlockChanged(world, pos);
+	}
+
+	@Override
+	public void notifyLightSet(BlockPos pos)
+	{
+	}
+
+	@Override
+	public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2)
+	{
+	}
+
+	@Override
+	public void playSoundToAllNearExcept(@Nullable EntityPlayer player, SoundEvent sound, SoundCategory category, double x, double y, double z, float volume, float pitch)
+	{
+	}
+
+	@Override
+	public void playRecord(SoundEvent sound, BlockPos pos)
+	{
+	}
+
+	@Override
+	public void spawnParticle(int particleID, boolean ignoreRange, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters)
+	{
+	}
+
+	@Override
+	public void spawnParticle(int id, boolean ignoreRange, boolean minimiseParticleLevel, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters)
+	{
+	}
+
+	@Override
+	public void onEntityAdded(Entity entity)
+	{
+	}
+
+	@Override
+	public void onEntityRemoved(Entity entity)
+	{
+	}
+
+	@Override
+	public void broadcastSound(int soundID, BlockPos pos, int data)
+	{
+	}
+
+	@Override
+	public void playEvent(EntityPlayer player, int type, BlockPos pos, int data)
+	{
+	}
+
+	@Override
+	public void sendBlockBreakProgress(int breakerId, BlockPos pos, int progress)
+	{
+	}
+}
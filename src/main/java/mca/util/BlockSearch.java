@@ -0,0 +1,307 @@
+package mca.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Predicate;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.BlockStatePaletteHashMap;
+import net.minecraft.world.chunk.BlockStatePaletteLinear;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IBlockStatePalette;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import radixcore.math.Point3D;
+
+/**
+ * Block searches around a point that avoid reading every block state in the search cube. Chunk sections whose
+ * palette holds no state the predicate accepts are skipped without being read, and nearest-block searches walk
+ * outward one cubic shell at a time, stopping once no further shell can hold anything closer than the best hit.
+ * Chunks that are not loaded are treated as empty rather than loaded.
+ */
+public final class BlockSearch
+{
+	private static final int SECTIONS = 16;
+
+	//Resolved by type rather than name so that they work in both development and obfuscated environments.
+	//Any of these can be null, in which case sections using that palette are always scanned.
+	private static final Field CONTAINER_PALETTE = findField(BlockStateContainer.class, IBlockStatePalette.class);
+	private static final Field LINEAR_PALETTE_STATES = findField(BlockStatePaletteLinear.class, IBlockState[].class);
+	private static final Field HASH_MAP_PALETTE_STATES = findField(BlockStatePaletteHashMap.class, Iterable.class);
+
+	private BlockSearch()
+	{
+	}
+
+	/** @returns A predicate accepting any state of the block. */
+	public static Predicate<IBlockState> forBlock(final Block block)
+	{
+		return new Predicate<IBlockState>()
+		{
+			@Override
+			public boolean apply(IBlockState state)
+			{
+				return state.getBlock() == block;
+			}
+		};
+	}
+
+	/** @returns A predicate accepting only the state of the block with the given metadata. */
+	public static Predicate<IBlockState> forBlockWithMeta(final Block block, final int meta)
+	{
+		return new Predicate<IBlockState>()
+		{
+			@Override
+			public boolean apply(IBlockState state)
+			{
+				return state.getBlock() == block && block.getMetaFromState(state) == meta;
+			}
+		};
+	}
+
+	/** @returns The block closest to the entity in the cube of the given radius around it that matches the predicate. Null if there is none. */
+	public static Point3D getNearestBlock(Entity entity, int radius, Predicate<IBlockState> predicate)
+	{
+		return getNearestBlock(entity.world, MathHelper.floor(entity.posX), MathHelper.floor(entity.posY), MathHelper.floor(entity.posZ), radius, predicate);
+	}
+
+	/** @returns The block closest to the point in the cube of the given radius around it that matches the predicate. Null if there is none. */
+	public static Point3D getNearestBlock(World world, int x, int y, int z, int radius, Predicate<IBlockState> predicate)
+	{
+		return getNearestBlock(new SectionCache(world, x, y, z, radius, predicate), x, y, z, radius, predicate);
+	}
+
+	/*package-private*/ static Point3D getNearestBlock(BlockStateSource source, int x, int y, int z, int radius, Predicate<IBlockState> predicate)
+	{
+		Point3D nearest = null;
+		int nearestDistanceSq = Integer.MAX_VALUE;
+
+		//Everything in shell d is at least d away, so stop once that can't beat the best hit.
+		for (int d = 0; d <= radius && d * d <= nearestDistanceSq; d++)
+		{
+			for (int dX = -d; dX <= d; dX++)
+			{
+				for (int dY = -d; dY <= d; dY++)
+				{
+					final boolean onFace = Math.abs(dX) == d || Math.abs(dY) == d;
+					final int stepZ = onFace ? 1 : Math.max(d * 2, 1);
+
+					for (int dZ = -d; dZ <= d; dZ += stepZ)
+					{
+						final int distanceSq = dX * dX + dY * dY + dZ * dZ;
+
+						if (distanceSq < nearestDistanceSq)
+						{
+							final IBlockState state = source.getBlockState(x + dX, y + dY, z + dZ);
+
+							if (state != null && predicate.apply(state))
+							{
+								nearest = new Point3D(x + dX, y + dY, z + dZ);
+								nearestDistanceSq = distanceSq;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return nearest;
+	}
+
+	/** @returns Every block in the cube of the given radius around the entity that matches the predicate. */
+	public static List<Point3D> getBlocks(Entity entity, int radius, Predicate<IBlockState> predicate)
+	{
+		return getBlocks(entity.world, MathHelper.floor(entity.posX), MathHelper.floor(entity.posY), MathHelper.floor(entity.posZ), radius, predicate);
+	}
+
+	/** @returns Every block in the cube of the given radius around the point that matches the predicate. */
+	public static List<Point3D> getBlocks(World world, int x, int y, int z, int radius, Predicate<IBlockState> predicate)
+	{
+		final SectionCache sections = new SectionCache(world, x, y, z, radius, predicate);
+		final List<Point3D> blocks = new ArrayList<Point3D>();
+
+		for (int pointX = x - radius; pointX <= x + radius; pointX++)
+		{
+			for (int pointZ = z - radius; pointZ <= z + radius; pointZ++)
+			{
+				for (int pointY = y - radius; pointY <= y + radius; pointY++)
+				{
+					final IBlockState state = sections.getBlockState(pointX, pointY, pointZ);
+
+					if (state != null && predicate.apply(state))
+					{
+						blocks.add(new Point3D(pointX, pointY, pointZ));
+					}
+				}
+			}
+		}
+
+		return blocks;
+	}
+
+	/** @returns The palette of the section, or null if it can't be read. */
+	/*package-private*/ static IBlockStatePalette getPalette(ExtendedBlockStorage storage)
+	{
+		try
+		{
+			return CONTAINER_PALETTE != null ? (IBlockStatePalette) CONTAINER_PALETTE.get(storage.getData()) : null;
+		}
+
+		catch (IllegalAccessException e)
+		{
+			return null;
+		}
+	}
+
+	/** @returns False only if the palette of the section is known to hold no state accepted by the predicate. */
+	/*package-private*/ static boolean mayContain(ExtendedBlockStorage storage, Predicate<IBlockState> predicate)
+	{
+		try
+		{
+			final IBlockStatePalette palette = getPalette(storage);
+			Iterable<?> states = null;
+
+			if (palette instanceof BlockStatePaletteLinear && LINEAR_PALETTE_STATES != null)
+			{
+				final List<IBlockState> linearStates = new ArrayList<IBlockState>();
+
+				for (IBlockState state : (IBlockState[]) LINEAR_PALETTE_STATES.get(palette))
+				{
+					if (state != null)
+					{
+						linearStates.add(state);
+					}
+				}
+
+				states = linearStates;
+			}
+
+			else if (palette instanceof BlockStatePaletteHashMap && HASH_MAP_PALETTE_STATES != null)
+			{
+				states = (Iterable<?>) HASH_MAP_PALETTE_STATES.get(palette);
+			}
+
+			if (states == null) //The global palette, which can hold anything.
+			{
+				return true;
+			}
+
+			for (Object state : states)
+			{
+				if (state instanceof IBlockState && predicate.apply((IBlockState) state))
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		catch (IllegalAccessException e)
+		{
+			return true;
+		}
+	}
+
+	/*package-private*/ static Field findField(Class<?> owner, Class<?> type)
+	{
+		try
+		{
+			for (Field field : owner.getDeclaredFields())
+			{
+				if (!Modifier.isStatic(field.getModifiers()) && type.isAssignableFrom(field.getType()))
+				{
+					field.setAccessible(true);
+					return field;
+				}
+			}
+		}
+
+		catch (SecurityException e)
+		{
+			//Fall through and scan every section.
+		}
+
+		return null;
+	}
+
+	/** Where a search reads block states from. Returns null for positions that can't hold a match. */
+	/*package-private*/ interface BlockStateSource
+	{
+		IBlockState getBlockState(int x, int y, int z);
+	}
+
+	/**
+	 * The chunk sections overlapping one search cube, each looked up and checked against the predicate the first
+	 * time a position inside it is read.
+	 */
+	private static final class SectionCache implements BlockStateSource
+	{
+		private static final byte UNCHECKED = 0;
+		private static final byte SKIP = 1;
+		private static final byte SCAN = 2;
+
+		private final World world;
+		private final Predicate<IBlockState> predicate;
+		private final int minSectionX;
+		private final int minSectionY;
+		private final int minSectionZ;
+		private final int sizeX;
+		private final int sizeY;
+		private final int sizeZ;
+		private final byte[] status;
+		private final ExtendedBlockStorage[] storage;
+
+		private SectionCache(World world, int x, int y, int z, int radius, Predicate<IBlockState> predicate)
+		{
+			this.world = world;
+			this.predicate = predicate;
+			this.minSectionX = (x - radius) >> 4;
+			this.minSectionY = Math.max(y - radius, 0) >> 4;
+			this.minSectionZ = (z - radius) >> 4;
+			this.sizeX = ((x + radius) >> 4) - minSectionX + 1;
+			this.sizeY = Math.max((Math.min(y + radius, SECTIONS * 16 - 1) >> 4) - minSectionY + 1, 0);
+			this.sizeZ = ((z + radius) >> 4) - minSectionZ + 1;
+			this.status = new byte[sizeX * sizeY * sizeZ];
+			this.storage = new ExtendedBlockStorage[status.length];
+		}
+
+		/** @returns The state at the position, or null if its section is skipped, unloaded or out of the world. */
+		@Override
+		public IBlockState getBlockState(int x, int y, int z)
+		{
+			if (y < 0 || y >= SECTIONS * 16)
+			{
+				return null;
+			}
+
+			final int index = ((x >> 4) - minSectionX) * sizeY * sizeZ + ((y >> 4) - minSectionY) * sizeZ + ((z >> 4) - minSectionZ);
+
+			if (status[index] == UNCHECKED)
+			{
+				final Chunk chunk = world.getChunkProvider().getLoadedChunk(x >> 4, z >> 4);
+				final ExtendedBlockStorage section = chunk != null ? chunk.getBlockStorageArray()[y >> 4] : null;
+
+				if (section != Chunk.NULL_BLOCK_STORAGE && !section.isEmpty() && mayContain(section, predicate))
+				{
+					storage[index] = section;
+					status[index] = SCAN;
+				}
+
+				else
+				{
+					status[index] = SKIP;
+				}
+			}
+
+			return status[index] == SCAN ? storage[index].get(x & 15, y & 15, z & 15) : null;
+		}
+	}
+}
@@ -0,0 +1,470 @@
+package mca.util;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+import mca.core.MCA;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.BitArray;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IBlockStatePalette;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import radixcore.math.Point3D;
+
+/**
+ * Finds chore targets away from the server thread. Making a plan copies the chunk sections around the villager
+ * that could hold a target in their packed form, which is little more than an array copy, and the search itself
+ * runs on a worker thread against that copy. Finished plans are handed back at the start of the next server tick.
+ * If a block changes in any copied section in the meantime, or a result no longer matches its predicate when it
+ * is handed back, the result is thrown away and the plan is made again.
+ */
+public final class ChorePlanner
+{
+	private static final int SECTIONS = 16;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final Field CONTAINER_STORAGE = BlockSearch.findField(BlockStateContainer.class, BitArray.class);
+
+	private static final Map<Long, List<Plan>> plansBySection = new HashMap<Long, List<Plan>>();
+	private static final Queue<Plan> finishedPlans = new ConcurrentLinkedQueue<Plan>();
+	private static ExecutorService executor;
+
+	private ChorePlanner()
+	{
+	}
+
+	/** Starts a search for the block closest to the entity that matches the predicate. */
+	public static Plan planNearestBlock(Entity entity, int radius, Predicate<IBlockState> predicate)
+	{
+		return planNearestBlocks(entity, radius, Collections.singletonList(predicate));
+	}
+
+	/** Starts a search for the block closest to the entity matching each of the predicates. */
+	public static Plan planNearestBlocks(Entity entity, int radius, List<Predicate<IBlockState>> predicates)
+	{
+		final Plan plan = new Plan(entity.world, MathHelper.floor(entity.posX), MathHelper.floor(entity.posY), MathHelper.floor(entity.posZ), radius, predicates);
+		submit(plan);
+		return plan;
+	}
+
+	/** Hands finished plans back to their actions, or makes them again if they went stale. Called at the start of each server tick. */
+	public static void processFinishedPlans()
+	{
+		Plan plan;
+
+		while ((plan = finishedPlans.poll()) != null)
+		{
+			unwatch(plan);
+
+			if (plan.isCancelled)
+			{
+				continue;
+			}
+
+			else if (plan.isStale || !resultsStillMatch(plan))
+			{
+				plan.attempts++;
+				submit(plan);
+			}
+
+			else
+			{
+				plan.results = plan.pendingResults;
+				plan.isDone = true;
+			}
+		}
+	}
+
+	/** @returns True if every block found still matches its predicate, catching changes that weren't heard. */
+	private static boolean resultsStillMatch(Plan plan)
+	{
+		for (int i = 0; i < plan.pendingResults.length; i++)
+		{
+			final Point3D result = plan.pendingResults[i];
+
+			if (result != null && !plan.predicates.get(i).apply(plan.world.getBlockState(new BlockPos(result.iX(), result.iY(), result.iZ()))))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Marks plans that copied the section holding the block as stale. */
+	public static void onBlockChanged(World world, BlockPos pos)
+	{
+		if (plansBySection.isEmpty() || pos.getY() < 0 || pos.getY() >= SECTIONS * 16)
+		{
+			return;
+		}
+
+		final List<Plan> plans = plansBySection.get(getSectionKey(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+
+		if (plans != null)
+		{
+			for (Plan plan : plans)
+			{
+				if (plan.world == world)
+				{
+					plan.isStale = true;
+				}
+			}
+		}
+	}
+
+	/** Abandons every plan in progress and stops the worker threads. */
+	public static void clear()
+	{
+		plansBySection.clear();
+		finishedPlans.clear();
+
+		if (executor != null)
+		{
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	private static void submit(final Plan plan)
+	{
+		final ExecutorService executor = getExecutor();
+		final SectionSnapshot[] snapshot = executor != null && plan.attempts < MAX_ATTEMPTS ? takeSnapshot(plan) : null;
+
+		if (snapshot == null)
+		{
+			//Planning off-thread is disabled, not possible here, or keeps going stale. Search the live world instead.
+			plan.results = new Point3D[plan.predicates.size()];
+
+			for (int i = 0; i < plan.results.length; i++)
+			{
+				plan.results[i] = BlockSearch.getNearestBlock(plan.world, plan.x, plan.y, plan.z, plan.radius, plan.predicates.get(i));
+			}
+
+			plan.isDone = true;
+			return;
+		}
+
+		plan.isStale = false;
+		watch(plan);
+
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					final Point3D[] results = new Point3D[plan.predicates.size()];
+					final SnapshotSource source = new SnapshotSource(plan, snapshot);
+
+					for (int i = 0; i < results.length; i++)
+					{
+						results[i] = BlockSearch.getNearestBlock(source, plan.x, plan.y, plan.z, plan.radius, plan.predicates.get(i));
+					}
+
+					plan.pendingResults = results;
+				}
+
+				catch (RuntimeException e)
+				{
+					//Treat it as stale so that it is retried, and eventually searched on the server thread.
+					plan.isStale = true;
+				}
+
+				finally
+				{
+					finishedPlans.add(plan);
+				}
+			}
+		});
+	}
+
+	/** @returns Copies of the sections around the plan's origin that could hold a target, or null if a section can't be copied. */
+	private static SectionSnapshot[] takeSnapshot(Plan plan)
+	{
+		final SectionSnapshot[] snapshot = new SectionSnapshot[plan.sizeX * plan.sizeY * plan.sizeZ];
+		final Predicate<IBlockState> anyPredicate = Predicates.or(plan.predicates);
+		plan.sectionKeys.clear();
+
+		for (int x = 0; x < plan.sizeX; x++)
+		{
+			for (int z = 0; z < plan.sizeZ; z++)
+			{
+				final Chunk chunk = plan.world.getChunkProvider().getLoadedChunk(plan.minSectionX + x, plan.minSectionZ + z);
+
+				for (int y = 0; y < plan.sizeY; y++)
+				{
+					//Watch every section in range, since one without targets could gain one.
+					plan.sectionKeys.add(getSectionKey(plan.minSectionX + x, plan.minSectionY + y, plan.minSectionZ + z));
+
+					final ExtendedBlockStorage storage = chunk != null ? chunk.getBlockStorageArray()[plan.minSectionY + y] : null;
+
+					if (storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty() || !BlockSearch.mayContain(storage, anyPredicate))
+					{
+						continue;
+					}
+
+					final SectionSnapshot section = SectionSnapshot.copy(storage);
+
+					if (section == null)
+					{
+						return null;
+					}
+
+					snapshot[(x * plan.sizeY + y) * plan.sizeZ + z] = section;
+				}
+			}
+		}
+
+		return snapshot;
+	}
+
+	private static void watch(Plan plan)
+	{
+		for (Long key : plan.sectionKeys)
+		{
+			List<Plan> plans = plansBySection.get(key);
+
+			if (plans == null)
+			{
+				plans = new ArrayList<Plan>(2);
+				plansBySection.put(key, plans);
+			}
+
+			plans.add(plan);
+		}
+	}
+
+	private static void unwatch(Plan plan)
+	{
+		for (Long key : plan.sectionKeys)
+		{
+			final List<Plan> plans = plansBySection.get(key);
+
+			if (plans != null && plans.remove(plan) && plans.isEmpty())
+			{
+				plansBySection.remove(key);
+			}
+		}
+	}
+
+	private static ExecutorService getExecutor()
+	{
+		if (executor == null && MCA.getConfig().chorePlannerThreads > 0 && CONTAINER_STORAGE != null)
+		{
+			executor = Executors.newFixedThreadPool(MCA.getConfig().chorePlannerThreads, new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					final Thread thread = new Thread(runnable, "MCA Chore Planner");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return executor;
+	}
+
+	private static long getSectionKey(int sectionX, int sectionY, int sectionZ)
+	{
+		return ChunkPos.asLong(sectionX, sectionZ) << 4 | sectionY & 15;
+	}
+
+	/**
+	 * A search for the nearest block matching each of a list of predicates. Actions keep the plan and check
+	 * isDone() on later ticks, carrying on as they would have without a target until it is.
+	 */
+	public static final class Plan
+	{
+		private final World world;
+		private final int x;
+		private final int y;
+		private final int z;
+		private final int radius;
+		private final List<Predicate<IBlockState>> predicates;
+		private final int minSectionX;
+		private final int minSectionY;
+		private final int minSectionZ;
+		private final int sizeX;
+		private final int sizeY;
+		private final int sizeZ;
+		private final List<Long> sectionKeys = new ArrayList<Long>();
+		private volatile boolean isStale;
+		private boolean isCancelled;
+		private boolean isDone;
+		private int attempts;
+		private Point3D[] pendingResults;
+		private Point3D[] results;
+
+		private Plan(World world, int x, int y, int z, int radius, List<Predicate<IBlockState>> predicates)
+		{
+			this.world = world;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.radius = radius;
+			this.predicates = new ArrayList<Predicate<IBlockState>>(predicates);
+			this.minSectionX = (x - radius) >> 4;
+			this.minSectionY = Math.max(y - radius, 0) >> 4;
+			this.minSectionZ = (z - radius) >> 4;
+			this.sizeX = ((x + radius) >> 4) - minSectionX + 1;
+			this.sizeY = Math.max((Math.min(y + radius, SECTIONS * 16 - 1) >> 4) - minSectionY + 1, 0);
+			this.sizeZ = ((z + radius) >> 4) - minSectionZ + 1;
+		}
+
+		public boolean isDone()
+		{
+			return isDone;
+		}
+
+		/** @returns The nearest block matching the first predicate, or null if there was none. */
+		public Point3D getResult()
+		{
+			return getResult(0);
+		}
+
+		/** @returns The nearest block matching the predicate at the given index, or null if there was none. */
+		public Point3D getResult(int index)
+		{
+			if (!isDone)
+			{
+				throw new IllegalStateException("Chore plan has not finished.");
+			}
+
+			return results[index];
+		}
+
+		/** Stops the plan from being delivered or made again. */
+		public void cancel()
+		{
+			isCancelled = true;
+		}
+	}
+
+	/** One chunk section as the packed palette indices its container holds, plus what those indices meant when copied. */
+	private static final class SectionSnapshot
+	{
+		private final long[] data;
+		private final int bits;
+		private final long maxEntryValue;
+		private final IBlockState[] paletteStates;
+		private final IBlockStatePalette globalPalette;
+
+		private SectionSnapshot(long[] data, int bits, IBlockState[] paletteStates, IBlockStatePalette globalPalette)
+		{
+			this.data = data;
+			this.bits = bits;
+			this.maxEntryValue = (1L << bits) - 1L;
+			this.paletteStates = paletteStates;
+			this.globalPalette = globalPalette;
+		}
+
+		/** @returns A copy of the section, or null if its container can't be read. */
+		private static SectionSnapshot copy(ExtendedBlockStorage storage)
+		{
+			try
+			{
+				final BitArray bitArray = (BitArray) CONTAINER_STORAGE.get(storage.getData());
+				final IBlockStatePalette palette = BlockSearch.getPalette(storage);
+
+				if (bitArray == null || palette == null)
+				{
+					return null;
+				}
+
+				final long[] data = bitArray.getBackingLongArray().clone();
+				final int bits = data.length / 64;
+
+				//Section palettes change as blocks are placed, so resolve them now. The global palette never changes.
+				if (bits <= 8)
+				{
+					final IBlockState[] paletteStates = new IBlockState[1 << bits];
+
+					for (int i = 0; i < paletteStates.length; i++)
+					{
+						paletteStates[i] = palette.getBlockState(i);
+					}
+
+					return new SectionSnapshot(data, bits, paletteStates, null);
+				}
+
+				else
+				{
+					return new SectionSnapshot(data, bits, null, palette);
+				}
+			}
+
+			catch (IllegalAccessException e)
+			{
+				return null;
+			}
+		}
+
+		private IBlockState get(int x, int y, int z)
+		{
+			//Same packing as BitArray, where an entry may straddle two longs.
+			final int index = y << 8 | z << 4 | x;
+			final int bitIndex = index * bits;
+			final int startLong = bitIndex >> 6;
+			final int endLong = ((index + 1) * bits - 1) >> 6;
+			final int startOffset = bitIndex & 63;
+			final int id;
+
+			if (startLong == endLong)
+			{
+				id = (int) (data[startLong] >>> startOffset & maxEntryValue);
+			}
+
+			else
+			{
+				id = (int) ((data[startLong] >>> startOffset | data[endLong] << (64 - startOffset)) & maxEntryValue);
+			}
+
+			return paletteStates != null ? paletteStates[id] : globalPalette.getBlockState(id);
+		}
+	}
+
+	private static final class SnapshotSource implements BlockSearch.BlockStateSource
+	{
+		private final Plan plan;
+		private final SectionSnapshot[] snapshot;
+
+		private SnapshotSource(Plan plan, SectionSnapshot[] snapshot)
+		{
+			this.plan = plan;
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public IBlockState getBlockState(int x, int y, int z)
+		{
+			if (y < 0 || y >= SECTIONS * 16)
+			{
+				return null;
+			}
+
+			final SectionSnapshot section = snapshot[(((x >> 4) - plan.minSectionX) * plan.sizeY + ((y >> 4) - plan.minSectionY)) * plan.sizeZ + ((z >> 4) - plan.minSectionZ)];
+			return section != null ? section.get(x & 15, y & 15, z & 15) : null;
+		}
+	}
+}
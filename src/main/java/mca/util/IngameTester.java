@@ -1,20 +1,39 @@
 package mca.util;
 
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+import com.google.common.base.Optional;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import mca.actions.ActionStoryProgression;
+import mca.core.Config;
 import mca.core.Constants;
 import mca.core.MCA;
 import mca.data.NBTPlayerData;
+import mca.data.NBTPlayerData.FieldID;
+import mca.data.NBTPlayerData.FieldUpdateObj;
+import mca.data.NBTPlayerData.TypeID;
+import mca.data.PlayerMemory;
+import mca.data.PlayerMemoryHandler;
 import mca.entity.EntityVillagerMCA;
+import mca.entity.VillagerAttributes;
 import mca.enums.EnumBabyState;
 import mca.enums.EnumGender;
 import mca.enums.EnumMarriageState;
 import mca.enums.EnumProfession;
 import mca.enums.EnumProgressionStep;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.datasync.DataParameter;
+import net.minecraft.network.datasync.EntityDataManager;
 import net.minecraft.util.text.TextComponentString;
 import radixcore.constant.Font.Color;
 import radixcore.constant.Font.Format;
 import radixcore.constant.Time;
+import radixcore.modules.RadixNettyIO;
 
 public class IngameTester 
 {
@@ -67,6 +86,58 @@ public class IngameTester
 		
 		passTest("Villager creation", player);
 		
+		try
+		{
+			NBTTagCompound saved = new NBTTagCompound();
+			adam.attributes.writeToNBT(saved);
+			
+			EntityVillagerMCA copy = new EntityVillagerMCA(player.world);
+			copy.attributes.readFromNBT(saved);
+			NBTTagCompound resaved = new NBTTagCompound();
+			copy.attributes.writeToNBT(resaved);
+			
+			assertTrue(saved.equals(resaved));
+			assertTrue(copy.attributes.getName().equals(adam.attributes.getName()));
+			assertTrue(copy.attributes.getGender() == adam.attributes.getGender());
+			assertTrue(copy.attributes.getSpouseUUID().equals(adam.attributes.getSpouseUUID()));
+			
+			//Report save/load throughput of the old reflection path against the current codec table.
+			final int rounds = 10000;
+			long startTime = System.nanoTime();
+			
+			for (int i = 0; i < rounds; i++)
+			{
+				NBTTagCompound nbt = new NBTTagCompound();
+				legacyWriteToNBT(adam, nbt);
+				legacyReadFromNBT(copy, nbt);
+			}
+			
+			long legacyMicros = (System.nanoTime() - startTime) / 1000;
+			startTime = System.nanoTime();
+			
+			for (int i = 0; i < rounds; i++)
+			{
+				NBTTagCompound nbt = new NBTTagCompound();
+				adam.attributes.writeToNBT(nbt);
+				copy.attributes.readFromNBT(nbt);
+			}
+			
+			long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+			addMessage("Villager NBT save/load (reflection): " + rounds + " rounds in " + legacyMicros / 1000 + "ms (" + legacyMicros / rounds + "us each)", player);
+			addMessage("Villager NBT save/load (codec): " + rounds + " rounds in " + elapsedMicros / 1000 + "ms (" + elapsedMicros / rounds + "us each)", player);
+		}
+		
+		catch (AssertionError e)
+		{
+			e.printStackTrace();
+			failTest("Villager NBT round trip", player);
+			adam.setDead();
+			eve.setDead();
+			return;
+		}
+		
+		passTest("Villager NBT round trip", player);
+		
 		try
 		{
 			adam.startMarriage(Either.<EntityVillagerMCA, EntityPlayer>withL(eve));
@@ -161,6 +232,244 @@ public class IngameTester
 		}
 		
 		passTest("Player marriage", player);
+		
+		try
+		{
+			//Each message is decoded and encoded again, which must give back the same bytes.
+			testCodec("Player data", MCA.getPlayerData(player), new Codec<NBTPlayerData>()
+			{
+				@Override
+				public void write(NBTPlayerData value, ByteBuf buf)
+				{
+					value.writeToByteBuf(buf);
+				}
+				
+				@Override
+				public NBTPlayerData read(ByteBuf buf)
+				{
+					return NBTPlayerData.readFromByteBuf(buf);
+				}
+			}, player);
+			
+			testCodec("Player memory", adam.attributes.getPlayerMemory(player), new Codec<PlayerMemory>()
+			{
+				@Override
+				public void write(PlayerMemory value, ByteBuf buf)
+				{
+					value.writeToByteBuf(buf);
+				}
+				
+				@Override
+				public PlayerMemory read(ByteBuf buf)
+				{
+					return PlayerMemory.readFromByteBuf(buf);
+				}
+			}, player);
+			
+			testCodec("Player data field", FieldUpdateObj.get(FieldID.MCA_NAME, TypeID.STRING, player.getName()), new Codec<FieldUpdateObj>()
+			{
+				@Override
+				public void write(FieldUpdateObj value, ByteBuf buf)
+				{
+					value.writeToByteBuf(buf);
+				}
+				
+				@Override
+				public FieldUpdateObj read(ByteBuf buf)
+				{
+					return FieldUpdateObj.readFromByteBuf(buf);
+				}
+			}, player);
+			
+			testCodec("Config", MCA.getConfig(), new Codec<Config>()
+			{
+				@Override
+				public void write(Config value, ByteBuf buf)
+				{
+					value.writeToByteBuf(buf);
+				}
+				
+				@Override
+				public Config read(ByteBuf buf)
+				{
+					return Config.readFromByteBuf(buf);
+				}
+			}, player);
+		}
+		
+		catch (AssertionError e)
+		{
+			e.printStackTrace();
+			failTest("Packet codecs", player);
+			return;
+		}
+		
+		passTest("Packet codecs", player);
+	}
+	
+	/**
+	 * Checks that the value survives being encoded and decoded, then reports its size and encoding time. Values that
+	 * are also Serializable are measured the way packets used to send them, for comparison.
+	 */
+	private static <T> void testCodec(String name, T value, Codec<T> codec, EntityPlayer player) throws AssertionError
+	{
+		ByteBuf encoded = Unpooled.buffer();
+		ByteBuf reencoded = Unpooled.buffer();
+		codec.write(value, encoded);
+		codec.write(codec.read(encoded.duplicate()), reencoded);
+		assertTrue(encoded.equals(reencoded));
+		
+		final int rounds = 10000;
+		ByteBuf buf = Unpooled.buffer();
+		long startTime = System.nanoTime();
+		
+		for (int i = 0; i < rounds; i++)
+		{
+			buf.clear();
+			codec.write(value, buf);
+			codec.read(buf);
+		}
+		
+		String message = name + ": " + encoded.readableBytes() + " bytes, " + (System.nanoTime() - startTime) / rounds + "ns each";
+		
+		if (value instanceof Serializable)
+		{
+			buf.clear();
+			RadixNettyIO.writeObject(buf, value);
+			final int serializedBytes = buf.readableBytes();
+			startTime = System.nanoTime();
+			
+			for (int i = 0; i < rounds; i++)
+			{
+				buf.clear();
+				RadixNettyIO.writeObject(buf, value);
+				RadixNettyIO.readObject(buf);
+			}
+			
+			message += " (serialized: " + serializedBytes + " bytes, " + (System.nanoTime() - startTime) / rounds + "ns each)";
+		}
+		
+		addMessage(message, player);
+	}
+	
+	/** Reflection-based save that VillagerAttributes used before its codec table. Kept only for the throughput comparison. */
+	@SuppressWarnings("unchecked")
+	private static void legacyWriteToNBT(EntityVillagerMCA villager, NBTTagCompound nbt)
+	{
+		EntityDataManager dataManager = villager.getDataManager();
+		
+		for (Field f : VillagerAttributes.class.getDeclaredFields())
+		{
+			try
+			{
+				if (f.getType() == DataParameter.class)
+				{
+					f.setAccessible(true);
+					String typeName = f.getGenericType().getTypeName();
+					DataParameter param = (DataParameter) f.get(null);
+					String paramName = f.getName();
+
+					if (typeName.contains("Boolean"))
+					{
+						nbt.setBoolean(paramName, dataManager.get((DataParameter<Boolean>)param).booleanValue());
+					}
+
+					else if (typeName.contains("Integer"))
+					{
+						nbt.setInteger(paramName, dataManager.get((DataParameter<Integer>)param).intValue());
+					}
+
+					else if (typeName.contains("String"))
+					{
+						nbt.setString(paramName, dataManager.get((DataParameter<String>)param));
+					}
+
+					else if (typeName.contains("Float"))
+					{
+						nbt.setFloat(paramName, dataManager.get((DataParameter<Float>)param).floatValue());
+					}
+
+					else if (typeName.contains("Optional<java.util.UUID>"))
+					{
+						nbt.setUniqueId(paramName, dataManager.get((DataParameter<Optional<UUID>>)param).get());
+					}
+
+					else
+					{
+						throw new RuntimeException("Field type not handled while saving to NBT: " + f.getName());
+					}
+				}
+			}
+
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		nbt.setInteger("ticksAlive", villager.attributes.getTicksAlive());
+		nbt.setInteger("timesWarnedForLowHearts", villager.attributes.getLowHeartWarnings());
+		PlayerMemoryHandler.writePlayerMemoryToNBT(villager.attributes.getPlayerMemories(), nbt);
+	}
+	
+	/** Reflection-based load matching legacyWriteToNBT. */
+	@SuppressWarnings("unchecked")
+	private static void legacyReadFromNBT(EntityVillagerMCA villager, NBTTagCompound nbt)
+	{
+		EntityDataManager dataManager = villager.getDataManager();
+		
+		for (Field f : VillagerAttributes.class.getDeclaredFields())
+		{
+			try
+			{
+				if (f.getType() == DataParameter.class)
+				{
+					f.setAccessible(true);
+					String typeName = f.getGenericType().getTypeName();
+					DataParameter param = (DataParameter) f.get(null);
+					String paramName = f.getName();
+
+					if (typeName.contains("Boolean"))
+					{
+						dataManager.set((DataParameter<Boolean>)param, nbt.getBoolean(paramName));
+					}
+
+					else if (typeName.contains("Integer"))
+					{
+						dataManager.set((DataParameter<Integer>)param, nbt.getInteger(paramName));
+					}
+
+					else if (typeName.contains("String"))
+					{
+						dataManager.set((DataParameter<String>)param, nbt.getString(paramName));
+					}
+
+					else if (typeName.contains("Float"))
+					{
+						dataManager.set((DataParameter<Float>)param, nbt.getFloat(paramName));
+					}
+
+					else if (typeName.contains("Optional<java.util.UUID>"))
+					{
+						dataManager.set((DataParameter<Optional<UUID>>)param, Optional.of(nbt.getUniqueId(paramName)));
+					}
+
+					else
+					{
+						throw new RuntimeException("Field type not handled while loading from NBT: " + f.getName());
+					}
+				}
+			}
+
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		//The low heart warning count has no setter, so only ticksAlive is restored here.
+		villager.attributes.setTicksAlive(nbt.getInteger("ticksAlive"));
+		PlayerMemoryHandler.readPlayerMemoryFromNBT(villager, villager.attributes.getPlayerMemories(), nbt);
 	}
 	
 	private static void addMessage(String message, EntityPlayer player)
@@ -193,4 +502,11 @@ public class IngameTester
 			throw new AssertionError();
 		}
 	}
+	
+	private static abstract class Codec<T>
+	{
+		public abstract void write(T value, ByteBuf buf);
+		
+		public abstract T read(ByteBuf buf);
+	}
 }
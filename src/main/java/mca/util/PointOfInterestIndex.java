@@ -0,0 +1,297 @@
+package mca.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mca.enums.EnumPointOfInterest;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import radixcore.math.Point3D;
+
+/**
+ * Server-side cache of the blocks listed in EnumPointOfInterest, kept as a bitset per chunk section and type.
+ * A chunk is scanned the first time a search reaches it once it has been populated, and is then kept current by
+ * the BlockChangeListener until it unloads. Searches only read the sections overlapping the search area instead
+ * of every block in it, and check each hit against the world so that changes the listener can't hear, such as
+ * those made without any notification, are never returned.
+ */
+public final class PointOfInterestIndex
+{
+	private static final Map<World, PointOfInterestIndex> INDEXES = new HashMap<World, PointOfInterestIndex>();
+	private static final EnumPointOfInterest[] TYPES = EnumPointOfInterest.values();
+	private static final int SECTIONS = 16;
+	private static final int WORDS_PER_SECTION = 4096 / 64;
+
+	private final World world;
+	private final Map<Long, Section[]> chunks = new HashMap<Long, Section[]>();
+
+	private PointOfInterestIndex(World world)
+	{
+		this.world = world;
+	}
+
+	/** @returns The index for the provided world, creating it if needed. */
+	public static PointOfInterestIndex get(World world)
+	{
+		PointOfInterestIndex index = INDEXES.get(world);
+
+		if (index == null)
+		{
+			index = new PointOfInterestIndex(world);
+			INDEXES.put(world, index);
+		}
+
+		return index;
+	}
+
+	/** Drops the index of a world that is unloading. */
+	public static void remove(World world)
+	{
+		INDEXES.remove(world);
+	}
+
+	/** Forgets an unloading chunk. It is scanned again if a search reaches it after it reloads. */
+	public static void onChunkUnload(World world, int chunkX, int chunkZ)
+	{
+		final PointOfInterestIndex index = INDEXES.get(world);
+
+		if (index != null)
+		{
+			index.chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+		}
+	}
+
+	/** Updates the cached types of a block that has just changed to the provided state. */
+	public static void onBlockChanged(World world, BlockPos pos, IBlockState state)
+	{
+		final PointOfInterestIndex index = INDEXES.get(world);
+
+		if (index == null || pos.getY() < 0 || pos.getY() >= SECTIONS * 16)
+		{
+			return;
+		}
+
+		final Section[] sections = index.chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+
+		if (sections != null)
+		{
+			final int sectionY = pos.getY() >> 4;
+
+			for (EnumPointOfInterest type : TYPES)
+			{
+				final boolean matches = type.matches(state);
+
+				if (sections[sectionY] == null)
+				{
+					if (!matches)
+					{
+						continue;
+					}
+
+					sections[sectionY] = new Section();
+				}
+
+				sections[sectionY].set(type, getLocalIndex(pos.getX(), pos.getY(), pos.getZ()), matches);
+			}
+		}
+	}
+
+	/** @returns Every block of the type in the cube of the given radius around the entity. */
+	public List<Point3D> getPoints(EnumPointOfInterest type, Entity entity, int radius)
+	{
+		return getPoints(type, MathHelper.floor(entity.posX), MathHelper.floor(entity.posY), MathHelper.floor(entity.posZ), radius);
+	}
+
+	/** @returns Every block of the type in the cube of the given radius around the point. */
+	public List<Point3D> getPoints(EnumPointOfInterest type, int x, int y, int z, int radius)
+	{
+		final List<Point3D> points = new ArrayList<Point3D>();
+		final int minY = Math.max(y - radius, 0);
+		final int maxY = Math.min(y + radius, SECTIONS * 16 - 1);
+
+		for (int chunkX = (x - radius) >> 4; chunkX <= (x + radius) >> 4; chunkX++)
+		{
+			for (int chunkZ = (z - radius) >> 4; chunkZ <= (z + radius) >> 4; chunkZ++)
+			{
+				final Section[] sections = getSections(chunkX, chunkZ);
+
+				if (sections == null)
+				{
+					continue;
+				}
+
+				final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+				for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++)
+				{
+					final long[] bits = sections[sectionY] != null ? sections[sectionY].bits[type.ordinal()] : null;
+
+					if (bits == null)
+					{
+						continue;
+					}
+
+					for (int word = 0; word < WORDS_PER_SECTION; word++)
+					{
+						long remaining = bits[word];
+
+						while (remaining != 0L)
+						{
+							final int localIndex = word * 64 + Long.numberOfTrailingZeros(remaining);
+							final int pointX = (chunkX << 4) + (localIndex & 15);
+							final int pointY = (sectionY << 4) + (localIndex >> 8);
+							final int pointZ = (chunkZ << 4) + ((localIndex >> 4) & 15);
+							remaining &= remaining - 1;
+
+							if (Math.abs(pointX - x) > radius || pointY < minY || pointY > maxY || Math.abs(pointZ - z) > radius)
+							{
+								continue;
+							}
+
+							//Drop a stale hit from the cache rather than return it.
+							if (!type.matches(world.getBlockState(pos.setPos(pointX, pointY, pointZ))))
+							{
+								sections[sectionY].set(type, localIndex, false);
+								continue;
+							}
+
+							points.add(new Point3D(pointX, pointY, pointZ));
+						}
+					}
+				}
+			}
+		}
+
+		return points;
+	}
+
+	/** @returns The block of the type closest to the entity in the cube of the given radius around it. Null if there is none. */
+	public Point3D getNearestPoint(EnumPointOfInterest type, Entity entity, int radius)
+	{
+		final List<Point3D> nearest = getNearestPoints(type, entity, radius, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/** @returns Up to k blocks of the type in the cube of the given radius around the entity, closest first. */
+	public List<Point3D> getNearestPoints(EnumPointOfInterest type, final Entity entity, int radius, int k)
+	{
+		final List<Point3D> points = getPoints(type, entity, radius);
+
+		Collections.sort(points, new Comparator<Point3D>()
+		{
+			@Override
+			public int compare(Point3D o1, Point3D o2)
+			{
+				return Double.compare(entity.getDistanceSq(o1.iX(), o1.iY(), o1.iZ()), entity.getDistanceSq(o2.iX(), o2.iY(), o2.iZ()));
+			}
+		});
+
+		return points.size() > k ? new ArrayList<Point3D>(points.subList(0, k)) : points;
+	}
+
+	/** @returns The cached sections of the chunk, scanning it if needed. Null if the chunk is not loaded or populated. */
+	private Section[] getSections(int chunkX, int chunkZ)
+	{
+		final long key = ChunkPos.asLong(chunkX, chunkZ);
+		Section[] sections = chunks.get(key);
+
+		if (sections == null)
+		{
+			final Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+
+			//Features are still being placed into unpopulated chunks, which isn't always heard by the listener.
+			if (chunk == null || !chunk.isTerrainPopulated())
+			{
+				return null;
+			}
+
+			sections = scanChunk(chunk);
+			chunks.put(key, sections);
+		}
+
+		return sections;
+	}
+
+	private static Section[] scanChunk(Chunk chunk)
+	{
+		final Section[] sections = new Section[SECTIONS];
+		final ExtendedBlockStorage[] storageArray = chunk.getBlockStorageArray();
+
+		for (int sectionY = 0; sectionY < storageArray.length && sectionY < SECTIONS; sectionY++)
+		{
+			final ExtendedBlockStorage storage = storageArray[sectionY];
+
+			if (storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty())
+			{
+				continue;
+			}
+
+			for (int localIndex = 0; localIndex < 4096; localIndex++)
+			{
+				final IBlockState state = storage.get(localIndex & 15, localIndex >> 8, (localIndex >> 4) & 15);
+
+				for (EnumPointOfInterest type : TYPES)
+				{
+					if (type.matches(state))
+					{
+						if (sections[sectionY] == null)
+						{
+							sections[sectionY] = new Section();
+						}
+
+						sections[sectionY].set(type, localIndex, true);
+					}
+				}
+			}
+		}
+
+		return sections;
+	}
+
+	private static int getLocalIndex(int x, int y, int z)
+	{
+		return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+	}
+
+	/** One bit per block of a 16x16x16 chunk section for each type, allocated on first use. */
+	private static final class Section
+	{
+		private final long[][] bits = new long[TYPES.length][];
+
+		private void set(EnumPointOfInterest type, int localIndex, boolean value)
+		{
+			long[] typeBits = bits[type.ordinal()];
+
+			if (typeBits == null)
+			{
+				if (!value)
+				{
+					return;
+				}
+
+				typeBits = new long[WORDS_PER_SECTION];
+				bits[type.ordinal()] = typeBits;
+			}
+
+			if (value)
+			{
+				typeBits[localIndex >> 6] |= 1L << localIndex;
+			}
+
+			else
+			{
+				typeBits[localIndex >> 6] &= ~(1L << localIndex);
+			}
+		}
+	}
+}
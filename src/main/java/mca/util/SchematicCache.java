@@ -0,0 +1,388 @@
+package mca.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mca.core.MCA;
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import radixcore.math.Point3D;
+import radixcore.modules.schematics.BlockObj;
+import radixcore.modules.schematics.RadixSchematics;
+
+/**
+ * Schematics parsed once and shared by everything that reads them, along with the block counts and build orders
+ * worked out from them. Cached schematics must never be modified, including their points. Build orders are stored
+ * as packed positions and palette indexes rather than as objects, as every building villager shares them.
+ */
+public final class SchematicCache
+{
+	/** Every schematic MCA ships with, parsed when the mod starts. */
+	private static final String[] BUNDLED_SCHEMATICS = new String[]
+	{
+		"/assets/mca/schematic/bachelor.schematic",
+		"/assets/mca/schematic/destiny-test.schematic",
+		"/assets/mca/schematic/family.schematic",
+		"/assets/mca/schematic/melon1.schematic",
+		"/assets/mca/schematic/mine1.schematic",
+		"/assets/mca/schematic/player-family-house.schematic",
+		"/assets/mca/schematic/sugarcane1.schematic",
+		"/assets/mca/schematic/village1.schematic",
+		"/assets/mca/schematic/wheat1.schematic"
+	};
+
+	//Packed positions use the same layout as BlockPos.toLong().
+	private static final int XZ_BITS = 26;
+	private static final int Y_BITS = 12;
+	private static final int Y_SHIFT = XZ_BITS;
+	private static final int X_SHIFT = Y_SHIFT + Y_BITS;
+	private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+	private static final long Y_MASK = (1L << Y_BITS) - 1;
+
+	//Read from both the client and the integrated server's threads.
+	private static final Map<String, Schematic> CACHE = new ConcurrentHashMap<String, Schematic>();
+
+	private SchematicCache()
+	{
+	}
+
+	/** Parses every bundled schematic so that the first build doesn't have to. */
+	public static void warm()
+	{
+		for (String location : BUNDLED_SCHEMATICS)
+		{
+			get(location);
+		}
+
+		MCA.getLog().info("Cached " + CACHE.size() + " schematics.");
+	}
+
+	/** @returns The parsed schematic at the resource location, parsing it on first use. */
+	public static Schematic get(String location)
+	{
+		Schematic schematic = CACHE.get(location);
+
+		if (schematic == null)
+		{
+			final SortedMap<Point3D, BlockObj> blocks = RadixSchematics.readSchematic(location);
+
+			if (blocks == null)
+			{
+				throw new IllegalArgumentException("Unable to read schematic " + location);
+			}
+
+			schematic = new Schematic(blocks);
+			CACHE.put(location, schematic);
+		}
+
+		return schematic;
+	}
+
+	/** @returns A block position relative to a schematic's origin packed into a long, as BlockPos does. */
+	public static long packPosition(int x, int y, int z)
+	{
+		return ((long) x & XZ_MASK) << X_SHIFT | ((long) y & Y_MASK) << Y_SHIFT | ((long) z & XZ_MASK);
+	}
+
+	public static int unpackX(long position)
+	{
+		return (int) (position >> X_SHIFT);
+	}
+
+	public static int unpackY(long position)
+	{
+		return (int) (position << (64 - X_SHIFT) >> (64 - Y_BITS));
+	}
+
+	public static int unpackZ(long position)
+	{
+		return (int) (position << (64 - XZ_BITS) >> (64 - XZ_BITS));
+	}
+
+	public static final class Schematic
+	{
+		//Build orders only cover this range of heights relative to the origin.
+		private static final int MIN_Y = -25;
+		private static final int MAX_Y = 25;
+
+		private final SortedMap<Point3D, BlockObj> blocks;
+		private final Map<Long, Integer> blockCounts = new HashMap<Long, Integer>();
+
+		//Each distinct block and metadata, referred to by its index everywhere else.
+		private final BlockObj[] palette;
+		private final Map<Long, Short> paletteIndexes = new HashMap<Long, Short>();
+
+		//Every block's packed position in ascending order, with its palette index, for lookups by position.
+		private final long[] sortedPositions;
+		private final short[] sortedBlocks;
+
+		//Every block in schematic order, which build orders are sorted from.
+		private final long[] positions;
+		private final short[] paletteBlocks;
+		private final byte[] kinds;
+		private final int buildableCount;
+		private final int torchCount;
+
+		//Keyed by direction and the origin's position within its chunk, which decides the chunk each block lands in.
+		private final Map<Integer, BuildOrder> buildOrders = new ConcurrentHashMap<Integer, BuildOrder>();
+
+		private Schematic(SortedMap<Point3D, BlockObj> parsedBlocks)
+		{
+			final List<BlockObj> paletteList = new ArrayList<BlockObj>();
+			final int size = parsedBlocks.size();
+			final long[] positions = new long[size];
+			final short[] paletteBlocks = new short[size];
+			//Left at zero for blocks outside of the build range, which no order includes.
+			final byte[] kinds = new byte[size];
+			int buildableCount = 0;
+			int torchCount = 0;
+			int i = 0;
+
+			for (Map.Entry<Point3D, BlockObj> entry : parsedBlocks.entrySet())
+			{
+				final Point3D point = entry.getKey();
+				final BlockObj blockObj = entry.getValue();
+				final long key = getCountKey(blockObj.getBlock(), blockObj.getMeta());
+				final Integer count = blockCounts.get(key);
+				blockCounts.put(key, count == null ? 1 : count + 1);
+
+				Short paletteIndex = paletteIndexes.get(key);
+
+				if (paletteIndex == null)
+				{
+					if (paletteList.size() > Short.MAX_VALUE)
+					{
+						throw new IllegalArgumentException("Schematic has too many distinct blocks to be cached.");
+					}
+
+					paletteIndex = (short) paletteList.size();
+					paletteIndexes.put(key, paletteIndex);
+					paletteList.add(blockObj);
+				}
+
+				positions[i] = packPosition(point.iX(), point.iY(), point.iZ());
+				paletteBlocks[i] = paletteIndex;
+
+				//Torches need something to stand on, so they're placed once everything else is built.
+				if (blockObj.getBlock() == Blocks.TORCH)
+				{
+					kinds[i] = BuildOrder.TORCH;
+					torchCount++;
+				}
+
+				else if (point.iY() >= MIN_Y && point.iY() < MAX_Y)
+				{
+					kinds[i] = BuildOrder.BLOCK;
+					buildableCount++;
+				}
+
+				i++;
+			}
+
+			this.palette = paletteList.toArray(new BlockObj[paletteList.size()]);
+			this.positions = positions;
+			this.paletteBlocks = paletteBlocks;
+			this.kinds = kinds;
+			this.buildableCount = buildableCount;
+			this.torchCount = torchCount;
+
+			//Lookups cover every block, including those outside of the build range.
+			final SortedMap<Long, Short> blocksByPosition = new TreeMap<Long, Short>();
+
+			for (i = 0; i < size; i++)
+			{
+				blocksByPosition.put(positions[i], paletteBlocks[i]);
+			}
+
+			this.sortedPositions = new long[blocksByPosition.size()];
+			this.sortedBlocks = new short[sortedPositions.length];
+			i = 0;
+
+			for (Map.Entry<Long, Short> entry : blocksByPosition.entrySet())
+			{
+				sortedPositions[i] = entry.getKey();
+				sortedBlocks[i++] = entry.getValue();
+			}
+
+			this.blocks = Collections.unmodifiableSortedMap(new TreeMap<Point3D, BlockObj>(parsedBlocks));
+		}
+
+		/** @returns Every block in the schematic by its position relative to the origin, in schematic order. */
+		public SortedMap<Point3D, BlockObj> getBlocks()
+		{
+			return blocks;
+		}
+
+		/** @returns The number of blocks in the schematic of the block with the given metadata. */
+		public int getCount(Block block, int meta)
+		{
+			final Integer count = blockCounts.get(getCountKey(block, meta));
+			return count == null ? 0 : count;
+		}
+
+		/**
+		 * @returns The order to build the schematic in at the given origin: one layer at a time, a chunk at a time
+		 * within each layer, and torches last. Blocks outside of the build range are skipped.
+		 */
+		public BuildOrder getBuildOrder(boolean topDown, int originX, int originZ)
+		{
+			final int key = (topDown ? 1 << 8 : 0) | (originX & 15) << 4 | (originZ & 15);
+			BuildOrder order = buildOrders.get(key);
+
+			if (order == null)
+			{
+				order = new BuildOrder(this, topDown, originX & 15, originZ & 15);
+				buildOrders.put(key, order);
+			}
+
+			return order;
+		}
+
+		public BlockObj getPaletteBlock(short paletteIndex)
+		{
+			return palette[paletteIndex];
+		}
+
+		/** @returns The palette index of the block with the given metadata, or -1 if the schematic doesn't contain it. */
+		public short getPaletteIndex(Block block, int meta)
+		{
+			final Short paletteIndex = paletteIndexes.get(getCountKey(block, meta));
+			return paletteIndex == null ? -1 : paletteIndex;
+		}
+
+		/** @returns The palette index of the block at the packed position, or -1 if there is none. */
+		public short getPaletteIndexAt(long position)
+		{
+			final int i = Arrays.binarySearch(sortedPositions, position);
+			return i >= 0 ? sortedBlocks[i] : -1;
+		}
+
+		/** Places the whole schematic at once relative to the origin, torches last. */
+		public void placeAt(World world, Point3D origin)
+		{
+			for (Map.Entry<Point3D, BlockObj> entry : blocks.entrySet())
+			{
+				if (entry.getValue().getBlock() != Blocks.TORCH)
+				{
+					placeBlock(world, origin, entry.getKey(), entry.getValue());
+				}
+			}
+
+			for (Map.Entry<Point3D, BlockObj> entry : blocks.entrySet())
+			{
+				if (entry.getValue().getBlock() == Blocks.TORCH)
+				{
+					placeBlock(world, origin, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		private static void placeBlock(World world, Point3D origin, Point3D point, BlockObj blockObj)
+		{
+			final BlockPos pos = new BlockPos(origin.iX() + point.iX(), origin.iY() + point.iY(), origin.iZ() + point.iZ());
+			world.setBlockState(pos, blockObj.getBlock().getStateFromMeta(blockObj.getMeta()));
+		}
+
+		private static long getCountKey(Block block, int meta)
+		{
+			return (long) Block.getIdFromBlock(block) << 32 | (meta & 0xFFFFFFFFL);
+		}
+	}
+
+	/**
+	 * The packed positions and palette indexes of a schematic's blocks in the order they are built. Shared by every
+	 * villager building the schematic with the same alignment to the chunk grid, who each only keep their place in it.
+	 */
+	public static final class BuildOrder
+	{
+		private static final byte BLOCK = 1;
+		private static final byte TORCH = 2;
+
+		private final long[] positions;
+		private final short[] blocks;
+
+		private BuildOrder(Schematic schematic, final boolean topDown, final int chunkOffsetX, final int chunkOffsetZ)
+		{
+			final long[] allPositions = schematic.positions;
+			final Integer[] buildable = new Integer[schematic.buildableCount];
+			int next = 0;
+
+			positions = new long[schematic.buildableCount + schematic.torchCount];
+			blocks = new short[positions.length];
+
+			for (int i = 0; i < allPositions.length; i++)
+			{
+				if (schematic.kinds[i] == BLOCK)
+				{
+					buildable[next++] = i;
+				}
+			}
+
+			//Stable, so blocks in the same layer and chunk keep their schematic order.
+			Arrays.sort(buildable, new Comparator<Integer>()
+			{
+				@Override
+				public int compare(Integer first, Integer second)
+				{
+					final long firstPosition = allPositions[first];
+					final long secondPosition = allPositions[second];
+					final int layerCompare = Integer.compare(unpackY(firstPosition), unpackY(secondPosition));
+
+					if (layerCompare != 0)
+					{
+						return topDown ? -layerCompare : layerCompare;
+					}
+
+					final int chunkCompareX = Integer.compare((unpackX(firstPosition) + chunkOffsetX) >> 4, (unpackX(secondPosition) + chunkOffsetX) >> 4);
+
+					if (chunkCompareX != 0)
+					{
+						return chunkCompareX;
+					}
+
+					return Integer.compare((unpackZ(firstPosition) + chunkOffsetZ) >> 4, (unpackZ(secondPosition) + chunkOffsetZ) >> 4);
+				}
+			});
+
+			for (next = 0; next < buildable.length; next++)
+			{
+				positions[next] = allPositions[buildable[next]];
+				blocks[next] = schematic.paletteBlocks[buildable[next]];
+			}
+
+			for (int i = 0; i < allPositions.length; i++)
+			{
+				if (schematic.kinds[i] == TORCH)
+				{
+					positions[next] = allPositions[i];
+					blocks[next++] = schematic.paletteBlocks[i];
+				}
+			}
+		}
+
+		public int size()
+		{
+			return positions.length;
+		}
+
+		public long getPosition(int index)
+		{
+			return positions[index];
+		}
+
+		public short getBlock(int index)
+		{
+			return blocks[index];
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package mca.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel keyed on a tick counter. Scheduling and cancelling a timeout are constant time,
+ * and advancing the wheel only touches timeouts that are about to expire, so thousands of long-running
+ * countdowns cost nothing per tick until they come due.
+ *
+ * Each level has 64 slots. Level 0 slots are one tick wide, level 1 slots 64 ticks, and so on. Timeouts
+ * further out than the top level can reach are parked in the furthest slot and re-filed when it comes due.
+ */
+public final class TimingWheel
+{
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+	private final List<Timeout> expiring = new ArrayList<Timeout>();
+	private long currentTick;
+
+	/** @returns The number of times tick() has been called. */
+	public long getCurrentTick()
+	{
+		return currentTick;
+	}
+
+	/**
+	 * Schedules the timeout to expire on the given tick, replacing any schedule it already had.
+	 * Deadlines that have already passed expire on the next tick.
+	 */
+	public void schedule(Timeout timeout, long deadline)
+	{
+		cancel(timeout);
+		timeout.deadline = Math.max(deadline, currentTick + 1);
+		insert(timeout);
+	}
+
+	public void cancel(Timeout timeout)
+	{
+		if (timeout.level == -1)
+		{
+			return;
+		}
+
+		if (timeout.prev == null)
+		{
+			slots[timeout.level][timeout.slot] = timeout.next;
+		}
+
+		else
+		{
+			timeout.prev.next = timeout.next;
+		}
+
+		if (timeout.next != null)
+		{
+			timeout.next.prev = timeout.prev;
+		}
+
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.level = -1;
+	}
+
+	/** Advances the wheel by one tick and fires every timeout whose deadline is reached. */
+	public void tick()
+	{
+		currentTick++;
+
+		//Move timeouts down from higher levels each time a lower level wraps around.
+		for (int level = 1; level < LEVELS; level++)
+		{
+			if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+			{
+				break;
+			}
+
+			Timeout timeout = detach(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+			while (timeout != null)
+			{
+				final Timeout next = timeout.next;
+				timeout.next = null;
+				insert(timeout);
+				timeout = next;
+			}
+		}
+
+		//Unlink the due slot before firing anything, since callbacks may reschedule other timeouts in it.
+		Timeout timeout = detach(0, (int) currentTick & SLOT_MASK);
+
+		while (timeout != null)
+		{
+			final Timeout next = timeout.next;
+			timeout.next = null;
+			expiring.add(timeout);
+			timeout = next;
+		}
+
+		for (int i = 0; i < expiring.size(); i++)
+		{
+			timeout = expiring.get(i);
+
+			//Skip anything rescheduled by an earlier callback.
+			if (timeout.level != -1)
+			{
+				continue;
+			}
+
+			else if (timeout.deadline <= currentTick)
+			{
+				timeout.onExpired();
+			}
+
+			else
+			{
+				insert(timeout);
+			}
+		}
+
+		expiring.clear();
+	}
+
+	/** Drops every scheduled timeout without firing it. */
+	public void clear()
+	{
+		for (int level = 0; level < LEVELS; level++)
+		{
+			for (int slot = 0; slot < SLOTS; slot++)
+			{
+				Timeout timeout = detach(level, slot);
+
+				while (timeout != null)
+				{
+					final Timeout next = timeout.next;
+					timeout.next = null;
+					timeout = next;
+				}
+			}
+		}
+	}
+
+	private void insert(Timeout timeout)
+	{
+		final long delay = timeout.deadline - currentTick;
+		final long filedDeadline = delay > MAX_DELAY ? currentTick + MAX_DELAY : timeout.deadline;
+		int level = 0;
+
+		while (level < LEVELS - 1 && filedDeadline - currentTick >= 1L << (SLOT_BITS * (level + 1)))
+		{
+			level++;
+		}
+
+		final int slot = (int) (filedDeadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+
+		timeout.level = level;
+		timeout.slot = slot;
+		timeout.prev = null;
+		timeout.next = slots[level][slot];
+
+		if (timeout.next != null)
+		{
+			timeout.next.prev = timeout;
+		}
+
+		slots[level][slot] = timeout;
+	}
+
+	/** Removes every timeout from a slot, returning them as a singly-linked list. */
+	private Timeout detach(int level, int slot)
+	{
+		final Timeout head = slots[level][slot];
+		slots[level][slot] = null;
+
+		for (Timeout timeout = head; timeout != null; timeout = timeout.next)
+		{
+			timeout.prev = null;
+			timeout.level = -1;
+		}
+
+		return head;
+	}
+
+	/**
+	 * An entry that can be scheduled on a timing wheel. An instance can be on at most one wheel at a time.
+	 */
+	public abstract static class Timeout
+	{
+		private long deadline;
+		private int level = -1;
+		private int slot;
+		private Timeout prev;
+		private Timeout next;
+
+		public boolean isScheduled()
+		{
+			return level != -1;
+		}
+
+		public long getDeadline()
+		{
+			return deadline;
+		}
+
+		/** Called from TimingWheel.tick() once the deadline is reached. */
+		protected abstract void onExpired();
+	}
+}